@@ -2,6 +2,7 @@ plugins {
     application
     id("com.gradleup.shadow") version "8.3.5"
     id("org.hidetake.ssh") version "2.11.2"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "canaryprism"
@@ -47,6 +48,26 @@ tasks.test {
     useJUnitPlatform()
 }
 
+jmh {
+    jmhVersion = "1.37"
+}
+
+// an offline load test against an in process fake discord, run with ./gradlew loadTest -PloadArgs="--clients 128"
+sourceSets {
+    create("load") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+        runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+    }
+}
+
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "runs the load driver against an in process fake discord"
+    classpath = sourceSets["load"].runtimeClasspath
+    mainClass = "canaryprism.timebot.LoadDriver"
+    args = (findProperty("loadArgs") as String?)?.split(" ")?.filter(String::isNotBlank) ?: emptyList()
+}
+
 tasks.shadowJar {
     mergeServiceFiles()
     archiveClassifier = ""
@@ -0,0 +1,39 @@
+package canaryprism.timebot;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * formatting a batch of durations, like listing every timer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatDurationBenchmark {
+    
+    @Param({ "10", "1000", "100000" })
+    public int durations;
+    
+    private Duration[] batch;
+    
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        batch = new Duration[durations];
+        for (int i = 0; i < durations; i++)
+            batch[i] = Duration.ofSeconds(random.nextLong(Duration.ofDays(30).toSeconds()));
+    }
+    
+    @Benchmark
+    public void formatDuration(Blackhole blackhole) {
+        for (var duration : batch)
+            blackhole.consume(Bot.formatDuration(duration));
+    }
+}
@@ -0,0 +1,94 @@
+package canaryprism.timebot;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.*;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * generates save files shaped like real ones, for benchmarks
+ */
+public final class SaveData {
+    
+    private static final List<String> ZONES = List.of(
+            "America/New_York", "America/Los_Angeles", "Europe/London", "Europe/Berlin",
+            "Asia/Kolkata", "Asia/Tokyo", "Australia/Sydney", "America/Sao_Paulo");
+    
+    private static final List<String> PATTERNS = List.of("yyyy-MM-dd HH:mm", "HH:mm:ss", "EEE d MMM h:mm a");
+    
+    private SaveData() {
+    }
+    
+    /**
+     * @param users how many users in total, spread over servers of about 100 users each
+     * @return the json of a save; every user has a timezone, about half have a birthday,
+     * a formatter, a timer or an alarm
+     */
+    public static JSONObject generate(int users, long seed) {
+        var random = new Random(seed);
+        var now = Instant.now();
+        
+        var servers = new JSONArray();
+        var server_count = Math.max(1, users / 100);
+        for (int s = 0; s < server_count; s++) {
+            var server_id = 1_000_000L + s;
+            var channel_id = 2_000_000L + s;
+            
+            var server_users = new JSONArray();
+            for (int u = s; u < users; u += server_count) {
+                var user = new JSONObject()
+                        .put("user_id", 3_000_000L + u)
+                        .put("timezone", ZONES.get(random.nextInt(ZONES.size())))
+                        .put("timers", new JSONArray())
+                        .put("alarms", new JSONArray());
+                
+                if (random.nextBoolean())
+                    user.put("formatter_string", PATTERNS.get(random.nextInt(PATTERNS.size())));
+                
+                if (random.nextBoolean())
+                    user.put("birthday", new JSONObject()
+                            .put("month", 1 + random.nextInt(12))
+                            .put("day", 1 + random.nextInt(28))
+                            .put("hour", random.nextInt(24))
+                            .put("next_birthday_year", Year.now().getValue() + 1)
+                            .put("channel", channel_id));
+                
+                if (random.nextBoolean()) {
+                    var duration = Duration.ofMinutes(1 + random.nextInt(60 * 24));
+                    user.getJSONArray("timers").put(new JSONObject()
+                            .put("target", now.plus(duration).toEpochMilli())
+                            .put("channel", channel_id)
+                            .put("message", "timer")
+                            .put("duration", duration.toString()));
+                }
+                
+                if (random.nextBoolean()) {
+                    var repeating_days = new JSONArray();
+                    for (var day : DayOfWeek.values())
+                        if (random.nextInt(3) == 0)
+                            repeating_days.put(day.getValue());
+                    
+                    user.getJSONArray("alarms").put(new JSONObject()
+                            .put("target", 0)
+                            .put("channel", channel_id)
+                            .put("message", "alarm")
+                            .put("local_time", LocalTime.of(random.nextInt(24), random.nextInt(60)).toString())
+                            .put("repeating_days", repeating_days));
+                }
+                
+                server_users.put(user);
+            }
+            
+            servers.put(new JSONObject()
+                    .put("server_id", server_id)
+                    .put("allowed_birthday_channels", new JSONArray().put(channel_id))
+                    .put("users", server_users));
+        }
+        
+        return new JSONObject()
+                .put("servers", servers)
+                .put("dms", new JSONArray());
+    }
+}
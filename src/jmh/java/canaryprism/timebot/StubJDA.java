@@ -0,0 +1,64 @@
+package canaryprism.timebot;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * a JDA that isn't connected to anything, for benchmarks
+ * <p>
+ * every channel lookup by id gives a text channel that only knows its id, everything else returns null or 0
+ */
+public final class StubJDA {
+    
+    private StubJDA() {
+    }
+    
+    public static JDA create() {
+        return (JDA) Proxy.newProxyInstance(StubJDA.class.getClassLoader(), new Class<?>[] { JDA.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getTextChannelById", "getGuildChannelById", "getChannelById" ->
+                            channel(((args[args.length - 1] instanceof String id) ? Long.parseLong(id) : (long) args[args.length - 1]));
+                    case "toString" -> "StubJDA";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> defaultValue(method);
+                });
+    }
+    
+    public static TextChannel channel(long id) {
+        return (TextChannel) Proxy.newProxyInstance(StubJDA.class.getClassLoader(), new Class<?>[] { TextChannel.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getIdLong" -> id;
+                    case "getId" -> Long.toUnsignedString(id);
+                    case "getAsMention" -> "<#" + id + ">";
+                    case "toString" -> "StubChannel:" + id;
+                    case "hashCode" -> Long.hashCode(id);
+                    case "equals" -> args[0] instanceof TextChannel other && other.getIdLong() == id;
+                    default -> defaultValue(method);
+                });
+    }
+    
+    private static Object defaultValue(Method method) {
+        var type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class)
+            return null;
+        if (type == boolean.class)
+            return false;
+        if (type == long.class)
+            return 0L;
+        if (type == int.class)
+            return 0;
+        if (type == double.class)
+            return 0.0;
+        if (type == float.class)
+            return 0.0f;
+        if (type == short.class)
+            return (short) 0;
+        if (type == byte.class)
+            return (byte) 0;
+        return '\0';
+    }
+}
@@ -0,0 +1,51 @@
+package canaryprism.timebot.autocomplete;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one autocomplete keystroke against the timezone and locale indexes
+ * <p>
+ * the indexes are fixed in size, so queries are parameterized by how many suggestions they match instead:
+ * a blank query, a single letter matching most of the index, a word matching a handful, and an exact id
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutocompleteBenchmark {
+    
+    @Param({ "timezone", "locale" })
+    public String index_name;
+    
+    @Param({ "", "e", "new", "America/New_York", "en-US" })
+    public String query;
+    
+    private SuggestionIndex<String> index;
+    
+    @Setup
+    public void setup() {
+        index = switch (index_name) {
+            case "timezone" -> TimezoneIndex.get();
+            case "locale" -> LocaleIndex.get();
+            default -> throw new IllegalArgumentException(index_name);
+        };
+    }
+    
+    @Benchmark
+    public List<?> search() {
+        return index.search(query);
+    }
+    
+    /**
+     * the autocompleters check this first to decide whether to offer the raw input
+     */
+    @Benchmark
+    public boolean hasExactMatch() {
+        return index.hasExactMatch(query);
+    }
+}
@@ -0,0 +1,44 @@
+package canaryprism.timebot.data;
+
+import canaryprism.timebot.SaveData;
+import canaryprism.timebot.StubJDA;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * working out the next birthday of every user, like the startup scan does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BirthdayDataBenchmark {
+    
+    @Param({ "1000", "10000", "100000" })
+    public int users;
+    
+    private List<BirthdayData> birthdays;
+    
+    @Setup
+    public void setup() {
+        var bot_data = new BotData(SaveData.generate(users, 42), StubJDA.create());
+        birthdays = bot_data.getServers()
+                .stream()
+                .flatMap((e) -> e.getUsers().stream())
+                .map(UserData::getBirthdayData)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+    
+    @Benchmark
+    public void getNextBirthday(Blackhole blackhole) {
+        for (var birthday : birthdays)
+            blackhole.consume(birthday.getNextBirthday());
+    }
+}
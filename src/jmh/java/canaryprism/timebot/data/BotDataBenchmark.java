@@ -0,0 +1,80 @@
+package canaryprism.timebot.data;
+
+import canaryprism.timebot.SaveData;
+import canaryprism.timebot.StubJDA;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * serializing and loading the whole bot data
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BotDataBenchmark {
+    
+    @Param({ "1000", "10000", "100000" })
+    public int users;
+    
+    private JDA api;
+    private JSONObject json;
+    private BotData bot_data;
+    private List<ServerData> servers;
+    
+    @Setup
+    public void setup() {
+        api = StubJDA.create();
+        json = SaveData.generate(users, 42);
+        bot_data = new BotData(json, api);
+        servers = List.copyOf(bot_data.getServers());
+    }
+    
+    /**
+     * every entity's json is cached, so this is the cost of a save where nothing changed
+     */
+    @Benchmark
+    public String toJSONCached() {
+        return bot_data.toJSON().toString();
+    }
+    
+    /**
+     * a save after a single user changed, which re-serializes that user and their server
+     */
+    @Benchmark
+    public String toJSONOneChanged() {
+        var server = servers.get(ThreadLocalRandom.current().nextInt(servers.size()));
+        server.getUsers().iterator().next().markDirty();
+        
+        var string = bot_data.toJSON().toString();
+        bot_data.drainChanges();
+        return string;
+    }
+    
+    /**
+     * a save with every cache cold, like the first snapshot after loading
+     */
+    @Benchmark
+    public String toJSONCold() {
+        return new BotData(json, api).toJSON().toString();
+    }
+    
+    @Benchmark
+    public BotData load() {
+        return new BotData(json, api);
+    }
+    
+    @Benchmark
+    public UserData lookup() {
+        var server = servers.get(ThreadLocalRandom.current().nextInt(servers.size()));
+        return server.getUserData(UserSnowflake.fromId(3_000_000L + ThreadLocalRandom.current().nextInt(users))).orElse(null);
+    }
+}
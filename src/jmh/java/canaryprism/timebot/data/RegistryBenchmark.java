@@ -0,0 +1,122 @@
+package canaryprism.timebot.data;
+
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares the striped user registry against the single monitor HashMap + copy-on-read one it replaced,
+ * with every thread hammering the same server
+ * <p>
+ * run with {@code ./gradlew jmh}, the gap widens with the thread count
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class RegistryBenchmark {
+    
+    @Param({ "1000", "100000" })
+    public int users;
+    
+    private ServerData server;
+    private SynchronizedRegistry baseline;
+    
+    @Setup
+    public void setup() {
+        server = new ServerData(1);
+        baseline = new SynchronizedRegistry();
+        for (long i = 0; i < users; i++) {
+            server.obtainUserData(UserSnowflake.fromId(i));
+            baseline.obtainUserData(UserSnowflake.fromId(i));
+        }
+    }
+    
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(users);
+    }
+    
+    @Benchmark
+    public Optional<UserData> lookup() {
+        return server.getUserData(UserSnowflake.fromId(randomId()));
+    }
+    
+    @Benchmark
+    public Optional<UserData> lookupSynchronized() {
+        return baseline.getUserData(UserSnowflake.fromId(randomId()));
+    }
+    
+    @Benchmark
+    public UserData obtain() {
+        return server.obtainUserData(UserSnowflake.fromId(randomId()));
+    }
+    
+    @Benchmark
+    public UserData obtainSynchronized() {
+        return baseline.obtainUserData(UserSnowflake.fromId(randomId()));
+    }
+    
+    // one thread scanning the whole registry (like a timer refresh) while the rest look users up
+    
+    @Benchmark
+    @Group("scan")
+    @GroupThreads(1)
+    public void scanIterate(Blackhole blackhole) {
+        for (var user : server.getUsers())
+            blackhole.consume(user);
+    }
+    
+    @Benchmark
+    @Group("scan")
+    @GroupThreads(7)
+    public Optional<UserData> scanLookup() {
+        return server.getUserData(UserSnowflake.fromId(randomId()));
+    }
+    
+    @Benchmark
+    @Group("scanSynchronized")
+    @GroupThreads(1)
+    public void scanSynchronizedIterate(Blackhole blackhole) {
+        for (var user : baseline.getUsers())
+            blackhole.consume(user);
+    }
+    
+    @Benchmark
+    @Group("scanSynchronized")
+    @GroupThreads(7)
+    public Optional<UserData> scanSynchronizedLookup() {
+        return baseline.getUserData(UserSnowflake.fromId(randomId()));
+    }
+    
+    /**
+     * the registry as it was before, one monitor around a boxed HashMap and a full copy for every read of the users
+     */
+    static class SynchronizedRegistry {
+        private final Map<Long, UserData> users = new HashMap<>();
+        
+        Optional<UserData> getUserData(UserSnowflake user) {
+            synchronized (users) {
+                return Optional.ofNullable(users.get(user.getIdLong()));
+            }
+        }
+        
+        UserData obtainUserData(UserSnowflake user) {
+            synchronized (users) {
+                return users.computeIfAbsent(user.getIdLong(), (e) -> new UserData(user));
+            }
+        }
+        
+        Set<UserData> getUsers() {
+            synchronized (users) {
+                return Set.copyOf(users.values());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package canaryprism.timebot.data.timers;
+
+import canaryprism.timebot.SaveData;
+import canaryprism.timebot.StubJDA;
+import canaryprism.timebot.data.BotData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * working out when every alarm fires next
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlarmDataBenchmark {
+    
+    @Param({ "1000", "10000", "100000" })
+    public int users;
+    
+    private List<AlarmData> alarms;
+    
+    @Setup
+    public void setup() {
+        var bot_data = new BotData(SaveData.generate(users, 42), StubJDA.create());
+        alarms = bot_data.getServers()
+                .stream()
+                .flatMap((e) -> e.getUsers().stream())
+                .flatMap((e) -> e.getAlarms().stream())
+                .toList();
+    }
+    
+    /**
+     * the target time is cached once known, so this is the common case
+     */
+    @Benchmark
+    public void getTargetTimeCached(Blackhole blackhole) {
+        for (var alarm : alarms)
+            blackhole.consume(alarm.getTargetTime());
+    }
+    
+    /**
+     * clears the cached target first, like after the alarm fires or is modified
+     */
+    @Benchmark
+    public void getTargetTimeComputed(Blackhole blackhole) {
+        for (var alarm : alarms) {
+            alarm.target = Instant.EPOCH;
+            blackhole.consume(alarm.getTargetTime());
+        }
+    }
+}
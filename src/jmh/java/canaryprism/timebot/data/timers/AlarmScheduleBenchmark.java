@@ -0,0 +1,96 @@
+package canaryprism.timebot.data.timers;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.*;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the closed form next alarm time, with day masks and recurrence rules, against walking forward a day at a time
+ * like alarms used to
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlarmScheduleBenchmark {
+    
+    private static final int ALARMS = 1024;
+    
+    /**
+     * how many days of the week the alarms repeat on, 1 is the loop's worst case
+     */
+    @Param({ "0", "1", "3", "7" })
+    public int days;
+    
+    private final LocalTime[] times = new LocalTime[ALARMS];
+    private final ZoneId[] zones = new ZoneId[ALARMS];
+    private final int[] masks = new int[ALARMS];
+    private final EnumSet<?>[] sets = new EnumSet<?>[ALARMS];
+    private final RecurrenceRule[] recurrences = new RecurrenceRule[ALARMS];
+    private Instant now;
+    
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        var zone_ids = ZoneId.getAvailableZoneIds().stream().sorted().map(ZoneId::of).toList();
+        for (int i = 0; i < ALARMS; i++) {
+            times[i] = LocalTime.of(random.nextInt(24), random.nextInt(60));
+            zones[i] = zone_ids.get(random.nextInt(zone_ids.size()));
+            
+            var set = EnumSet.noneOf(DayOfWeek.class);
+            while (set.size() < days)
+                set.add(DayOfWeek.of(1 + random.nextInt(7)));
+            sets[i] = set;
+            masks[i] = AlarmSchedule.mask(set);
+            
+            // every other week on the same days, or every third day when it has none
+            var start = LocalDate.now().minusDays(random.nextInt(30));
+            recurrences[i] = (masks[i] == 0)
+                    ? new RecurrenceRule(RecurrenceRule.Frequency.DAILY, 3, 0, 0, start, null, 0)
+                    : new RecurrenceRule(RecurrenceRule.Frequency.WEEKLY, 2, masks[i], 0, start, null, 0);
+        }
+        now = Instant.now();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ALARMS)
+    public void closedForm(Blackhole blackhole) {
+        for (int i = 0; i < ALARMS; i++)
+            blackhole.consume(AlarmSchedule.next(times[i], masks[i], zones[i].getRules(), now));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ALARMS)
+    public void recurrenceRule(Blackhole blackhole) {
+        for (int i = 0; i < ALARMS; i++)
+            blackhole.consume(AlarmSchedule.next(times[i], recurrences[i], zones[i].getRules(), now));
+    }
+    
+    /**
+     * what AlarmData did before
+     */
+    @Benchmark
+    @OperationsPerInvocation(ALARMS)
+    public void dayByDay(Blackhole blackhole) {
+        for (int i = 0; i < ALARMS; i++) {
+            var timezone = zones[i];
+            var datetime = ZonedDateTime.of(LocalDate.ofInstant(now, timezone), times[i], timezone);
+            
+            if (datetime.toInstant().isBefore(now))
+                datetime = datetime.plusDays(1);
+            
+            if (!sets[i].isEmpty()) {
+                while (!sets[i].contains(datetime.getDayOfWeek()))
+                    datetime = datetime.plusDays(1);
+            }
+            
+            blackhole.consume(datetime.toInstant());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package canaryprism.timebot.format;
+
+import org.apache.commons.lang3.time.DurationFormatUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * compares {@link DurationRenderer} against the DurationFormatUtils + regex implementation it replaced
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurationRendererBenchmark {
+    
+    @Param({ "PT1S", "PT1H1M1S", "PT26H3M", "P400DT23H59M59S" })
+    public String duration_string;
+    
+    private Duration duration;
+    private final StringBuilder builder = new StringBuilder(64);
+    
+    @Setup
+    public void setup() {
+        duration = Duration.parse(duration_string);
+        
+        var expected = legacy(duration);
+        var actual = DurationRenderer.ENGLISH.render(duration);
+        if (!expected.equals(actual))
+            throw new IllegalStateException(String.format("renderer gives '%s' but it used to be '%s'", actual, expected));
+    }
+    
+    @Benchmark
+    public String legacy() {
+        return legacy(duration);
+    }
+    
+    @Benchmark
+    public String renderer() {
+        return DurationRenderer.ENGLISH.render(duration);
+    }
+    
+    @Benchmark
+    public StringBuilder rendererIntoBuilder() {
+        builder.setLength(0);
+        return DurationRenderer.ENGLISH.render(duration, builder);
+    }
+    
+    private static final Pattern PLURAL_DAYS = Pattern.compile("\\b1 days\\b");
+    private static final Pattern PLURAL_HOURS = Pattern.compile("\\b1 hours\\b");
+    private static final Pattern PLURAL_MINUTES = Pattern.compile("\\b1 minutes\\b");
+    private static final Pattern PLURAL_SECONDS = Pattern.compile("\\b1 seconds\\b");
+    
+    /**
+     * Bot.formatDuration as it was before the renderer
+     */
+    static String legacy(Duration duration) {
+        if (duration.isNegative())
+            return "negative time";
+        
+        var str = DurationFormatUtils.formatDuration(duration.toMillis(),
+                "[d 'days' ][H 'hours' ]m 'minutes' s 'seconds'");
+        
+        str = PLURAL_DAYS.matcher(str).replaceAll("1 day");
+        str = PLURAL_HOURS.matcher(str).replaceAll("1 hour");
+        str = PLURAL_MINUTES.matcher(str).replaceAll("1 minute");
+        str = PLURAL_SECONDS.matcher(str).replaceAll("1 second");
+        
+        return str;
+    }
+}
@@ -0,0 +1,68 @@
+package canaryprism.timebot.format;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * everyone's current time through a {@link TimeRenderer} against formatting it once per person, for a server where
+ * the users are spread over some number of zones
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeRendererBenchmark {
+
+    @Param({ "100", "1000" })
+    public int users;
+
+    @Param({ "5", "50" })
+    public int zone_count;
+
+    private ZoneId[] zones;
+    private boolean[] visible;
+    private DateTimeFormatter formatter;
+    private Instant now;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        var zone_ids = ZoneId.getAvailableZoneIds().stream().sorted().map(ZoneId::of).toList();
+        var picked = new ZoneId[zone_count];
+        for (int i = 0; i < zone_count; i++)
+            picked[i] = zone_ids.get(random.nextInt(zone_ids.size()));
+
+        zones = new ZoneId[users];
+        visible = new boolean[users];
+        for (int i = 0; i < users; i++) {
+            zones[i] = picked[random.nextInt(zone_count)];
+            visible[i] = random.nextInt(10) != 0;
+        }
+
+        formatter = FormatterCache.shared().withLocale(DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM), Locale.UK);
+        now = Instant.now();
+    }
+
+    @Benchmark
+    public void perUser(Blackhole blackhole) {
+        for (int i = 0; i < users; i++)
+            blackhole.consume(TimeRenderer.render(now, zones[i], visible[i], formatter));
+    }
+
+    @Benchmark
+    public void renderer(Blackhole blackhole) {
+        var renderer = new TimeRenderer(now);
+        for (int i = 0; i < users; i++)
+            blackhole.consume(renderer.render(zones[i], visible[i], formatter));
+    }
+}
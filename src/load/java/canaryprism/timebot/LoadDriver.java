@@ -0,0 +1,297 @@
+package canaryprism.timebot;
+
+import canaryprism.timebot.load.FakeDiscord;
+import canaryprism.timebot.load.LatencyRecorder;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * drives a {@link Bot} wired to a {@link FakeDiscord} with a mix of commands from many concurrent clients,
+ * then reports throughput, latency per command, and how late timers and alarms fired
+ * <p>
+ * everything runs in process, no gateway or network is involved; commands are called directly on the
+ * command classes, the way the command handler would call them
+ */
+@CommandLine.Command(name = "load", mixinStandardHelpOptions = true)
+public class LoadDriver implements Callable<Integer> {
+
+    enum Op {
+        TIME, TIMER, ALARM, AUTOCOMPLETE
+    }
+
+    private static final Duration REPLY_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final List<String> ZONES = List.of(
+            "UTC", "Europe/London", "Europe/Berlin", "America/New_York", "America/Los_Angeles",
+            "Asia/Tokyo", "Asia/Kolkata", "Australia/Sydney", "America/Sao_Paulo", "Pacific/Auckland");
+
+    private static final List<String> TIMEZONE_QUERIES = List.of(
+            "", "new", "europe/", "tokyo", "utc+5", "gmt-3", "pacific", "kolk", "america/l", "est");
+
+    private static final List<String> LOCALE_QUERIES = List.of(
+            "", "en", "english", "fr-ca", "deutsch", "ja", "portug", "zh", "span", "nl");
+
+    @CommandLine.Option(names = "--duration", defaultValue = "30",
+            description = "how long to send commands for in seconds (default: ${DEFAULT-VALUE})")
+    private long duration_seconds;
+
+    @CommandLine.Option(names = "--clients", defaultValue = "64",
+            description = "concurrent clients sending commands (default: ${DEFAULT-VALUE})")
+    private int clients;
+
+    @CommandLine.Option(names = "--users", defaultValue = "1000",
+            description = "distinct users sending commands (default: ${DEFAULT-VALUE})")
+    private int users;
+
+    @CommandLine.Option(names = "--servers", defaultValue = "10",
+            description = "servers the users are spread over (default: ${DEFAULT-VALUE})")
+    private int servers;
+
+    @CommandLine.Option(names = "--mix", defaultValue = "time=60,timer=15,alarm=5,autocomplete=20",
+            description = "relative weights of each command (default: ${DEFAULT-VALUE})")
+    private String mix;
+
+    @CommandLine.Option(names = "--timer-max", defaultValue = "20",
+            description = "the longest timer or alarm to set in seconds (default: ${DEFAULT-VALUE})")
+    private long timer_max_seconds;
+
+    @CommandLine.Option(names = "--seed", defaultValue = "42",
+            description = "seed for choosing commands and arguments (default: ${DEFAULT-VALUE})")
+    private long seed;
+
+    // message -> when it should have been sent, removed once it is
+    private final Map<String, Instant> pending = new ConcurrentHashMap<>();
+    private final LatencyRecorder lateness = new LatencyRecorder();
+    private final LongAdder replies = new LongAdder();
+    private final LongAdder channel_messages = new LongAdder();
+    private final AtomicLong message_ids = new AtomicLong();
+
+    @Override
+    public Integer call() throws Exception {
+        var weights = parseMix(mix);
+        if (clients <= 0 || users <= 0 || servers <= 0 || timer_max_seconds <= 0)
+            throw new CommandLine.ParameterException(new CommandLine(this), "Error: counts must be positive");
+
+        var directory = Files.createTempDirectory("timebot-load");
+        System.setProperty("canaryprism.timebot.logdir", directory.resolve("logs").toString());
+
+        var discord = new FakeDiscord(this::received);
+        var bot = new Bot(discord.api(), directory.resolve("save.json"));
+
+        var global = bot.new GlobalInstallCommands();
+        var timezone = global.new Timezone();
+        var server_commands = bot.new ServerInstallCommands();
+        var timer = server_commands.new Timer();
+        var alarm = server_commands.new Alarm();
+
+        System.out.printf("setting up %d users in %d servers...%n", users, servers);
+        var random = new Random(seed);
+        var zones = new ZoneId[users];
+        for (int i = 0; i < users; i++) {
+            zones[i] = ZoneId.of(ZONES.get(random.nextInt(ZONES.size())));
+            var zone = zones[i].getId();
+            command(discord, i, (interaction) -> timezone.set(interaction, zone));
+        }
+
+        // built before the clock starts, like start() does in the background
+        timezone.getTimezones("");
+        global.getLocales("");
+
+        System.out.printf("running %d clients for %ds with mix %s...%n", clients, duration_seconds, mix);
+
+        var recorders = new ArrayList<EnumMap<Op, LatencyRecorder>>();
+        var threads = new ArrayList<Thread>();
+        var start = System.nanoTime();
+        var deadline = start + Duration.ofSeconds(duration_seconds).toNanos();
+
+        for (int c = 0; c < clients; c++) {
+            var recorder = new EnumMap<Op, LatencyRecorder>(Op.class);
+            for (var op : Op.values())
+                recorder.put(op, new LatencyRecorder());
+            recorders.add(recorder);
+
+            var client_random = new Random(seed + c + 1);
+            threads.add(Thread.ofPlatform().name("load_client_" + c).start(() -> {
+                while (System.nanoTime() < deadline) {
+                    var op = pick(weights, client_random);
+                    var user = client_random.nextInt(users);
+
+                    var began = System.nanoTime();
+                    switch (op) {
+                        case TIME -> command(discord, user,
+                                (interaction) -> global.time(interaction, Optional.empty(), Optional.empty()));
+                        case TIMER -> {
+                            var seconds = 1 + client_random.nextLong(timer_max_seconds);
+                            var message = "load timer " + message_ids.incrementAndGet();
+                            pending.put(message, Instant.now().plusSeconds(seconds));
+                            command(discord, user, (interaction) -> timer.$new(interaction,
+                                    Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(seconds),
+                                    Optional.of(message)));
+                        }
+                        case ALARM -> {
+                            // rounded up, so it's never close enough to now to be taken for tomorrow's
+                            var target = Instant.now()
+                                    .plusSeconds(1 + client_random.nextLong(timer_max_seconds))
+                                    .truncatedTo(ChronoUnit.SECONDS)
+                                    .plusSeconds(1);
+                            var time = target.atZone(zones[user]).toLocalTime();
+                            var message = "load alarm " + message_ids.incrementAndGet();
+                            pending.put(message, target);
+                            command(discord, user, (interaction) -> alarm.$new(interaction,
+                                    (long) time.getHour(), (long) time.getMinute(), Optional.of((long) time.getSecond()),
+                                    Optional.of(message)));
+                        }
+                        case AUTOCOMPLETE -> {
+                            if (client_random.nextBoolean())
+                                timezone.getTimezones(TIMEZONE_QUERIES.get(client_random.nextInt(TIMEZONE_QUERIES.size())));
+                            else
+                                global.getLocales(LOCALE_QUERIES.get(client_random.nextInt(LOCALE_QUERIES.size())));
+                        }
+                    }
+                    recorder.get(op).record(System.nanoTime() - began);
+                }
+            }));
+        }
+
+        for (var thread : threads)
+            thread.join();
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        System.out.printf("waiting up to %ds for %d timers and alarms to fire...%n", timer_max_seconds + 5, pending.size());
+        var fire_deadline = Instant.now().plusSeconds(timer_max_seconds + 5);
+        while (!pending.isEmpty() && Instant.now().isBefore(fire_deadline))
+            Thread.sleep(100);
+
+        bot.shutdown();
+
+        report(recorders, elapsed);
+
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach((e) -> e.toFile().delete());
+        } catch (IOException e) {
+            System.err.printf("couldn't clean up '%s': %s%n", directory, e);
+        }
+
+        return 0;
+    }
+
+    private void received(FakeDiscord.SentMessage message) {
+        if (message.channel_id() == 0) {
+            replies.increment();
+            return;
+        }
+
+        channel_messages.increment();
+
+        // reminders sent to a channel together are merged a line each
+        for (var line : message.content().split("\n")) {
+            var expected = pending.remove(line);
+            if (expected == null)
+                continue;
+
+            synchronized (lateness) {
+                lateness.record(Duration.between(expected, message.time()).toMillis());
+            }
+        }
+    }
+
+    private void report(List<EnumMap<Op, LatencyRecorder>> recorders, Duration elapsed) {
+        var seconds = elapsed.toNanos() / 1e9;
+
+        var total = 0;
+        System.out.printf("%n%-14s %10s %10s %10s %10s %10s%n", "command", "count", "ops/s", "p50 (us)", "p99 (us)", "max (us)");
+        for (var op : Op.values()) {
+            var merged = new LatencyRecorder();
+            for (var recorder : recorders)
+                merged.merge(recorder.get(op));
+
+            var summary = merged.summarize();
+            total += summary.count();
+            System.out.printf("%-14s %10d %10.0f %10.1f %10.1f %10.1f%n", op.name().toLowerCase(),
+                    summary.count(), summary.count() / seconds,
+                    summary.p50() / 1e3, summary.p99() / 1e3, summary.max() / 1e3);
+        }
+        System.out.printf("%-14s %10d %10.0f%n", "total", total, total / seconds);
+        System.out.printf("interaction replies: %d%n", replies.sum());
+
+        LatencyRecorder.Summary summary;
+        synchronized (lateness) {
+            summary = lateness.summarize();
+        }
+        System.out.printf("%nfired: %d in %d channel messages, missed: %d%n",
+                summary.count(), channel_messages.sum(), pending.size());
+
+        pending.entrySet().stream().limit(5).forEach((e) -> System.out.printf("  '%s' due at %s%n", e.getKey(), e.getValue()));
+
+        System.out.printf("lateness (ms): p50 %d, p99 %d, max %d%n", summary.p50(), summary.p99(), summary.max());
+    }
+
+    /**
+     * runs a slash command as the user and waits for its reply, as commands reply from their own thread
+     * <p>
+     * user i lives in server 1 + (i % servers), and always talks in that server's one channel
+     */
+    private void command(FakeDiscord discord, int user, Consumer<SlashCommandInteraction> command) {
+        var server = 1 + (user % servers);
+        var replied = new CountDownLatch(1);
+        command.accept(discord.interaction(10_000L + user, server, 1_000L + server, (e) -> replied.countDown()));
+
+        try {
+            if (!replied.await(REPLY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS))
+                throw new IllegalStateException(String.format("Error: no reply within %s", REPLY_TIMEOUT));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Op pick(EnumMap<Op, Integer> weights, Random random) {
+        var total = 0;
+        for (var weight : weights.values())
+            total += weight;
+
+        var roll = random.nextInt(total);
+        for (var e : weights.entrySet()) {
+            roll -= e.getValue();
+            if (roll < 0)
+                return e.getKey();
+        }
+        throw new AssertionError();
+    }
+
+    private static EnumMap<Op, Integer> parseMix(String mix) {
+        var weights = new EnumMap<Op, Integer>(Op.class);
+        for (var part : mix.split(",")) {
+            var split = part.split("=", 2);
+            if (split.length != 2)
+                throw new IllegalArgumentException(String.format("Error: '%s' isn't of the form command=weight", part));
+
+            var op = Op.valueOf(split[0].strip().toUpperCase());
+            var weight = Integer.parseInt(split[1].strip());
+            if (weight < 0)
+                throw new IllegalArgumentException(String.format("Error: weight of %s is negative", split[0]));
+            weights.put(op, weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0)
+            throw new IllegalArgumentException("Error: mix has no positive weights");
+        return weights;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new LoadDriver()).execute(args));
+    }
+}
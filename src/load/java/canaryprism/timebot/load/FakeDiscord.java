@@ -0,0 +1,217 @@
+package canaryprism.timebot.load;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.requests.restaction.CacheRestAction;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageCreateAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * an in process stand in for the parts of discord the bot talks to
+ * <p>
+ * users, guilds, text channels and slash command interactions are proxies that only know their ids;
+ * every rest action completes immediately, and anything sent (channel messages and interaction replies)
+ * is handed to a sink instead
+ */
+public final class FakeDiscord {
+
+    /**
+     * @param channel_id the channel the message went to, or 0 for an interaction reply
+     * @param time when the bot sent it
+     */
+    public record SentMessage(long channel_id, String content, Instant time) {}
+
+    private final Consumer<SentMessage> sink;
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final Map<Long, Guild> guilds = new ConcurrentHashMap<>();
+    private final Map<Long, TextChannel> channels = new ConcurrentHashMap<>();
+
+    private final JDA api;
+
+    /**
+     * @param sink receives everything the bot sends, from whichever thread sent it
+     */
+    public FakeDiscord(Consumer<SentMessage> sink) {
+        this.sink = Objects.requireNonNull(sink, "sink can't be null");
+        this.api = proxy(JDA.class, Map.of(
+                "getTextChannelById", this::channelArgument,
+                "getGuildChannelById", this::channelArgument,
+                "getChannelById", this::channelArgument,
+                "getUserById", (args) -> users.get(id(args[0])),
+                "getGuildById", (args) -> guilds.get(id(args[0])),
+                "retrieveUserById", (args) -> action(CacheRestAction.class, () -> user(id(args[0])))
+        ));
+    }
+
+    public JDA api() {
+        return api;
+    }
+
+    public User user(long id) {
+        return users.computeIfAbsent(id, (e) -> proxy(User.class, Map.of(
+                "getIdLong", (args) -> id,
+                "getId", (args) -> Long.toUnsignedString(id),
+                "getName", (args) -> "user" + id,
+                "getAsMention", (args) -> "<@" + id + ">"
+        )));
+    }
+
+    /**
+     * @return the guild, where every member may manage messages
+     */
+    public Guild guild(long id) {
+        return guilds.computeIfAbsent(id, (e) -> proxy(Guild.class, Map.of(
+                "getIdLong", (args) -> id,
+                "getId", (args) -> Long.toUnsignedString(id),
+                "getTextChannelById", this::channelArgument,
+                "getGuildChannelById", this::channelArgument,
+                "retrieveMember", (args) -> action(CacheRestAction.class, () -> member(((UserSnowflake) args[0]).getIdLong())),
+                "retrieveMemberById", (args) -> action(CacheRestAction.class, () -> member(id(args[0])))
+        )));
+    }
+
+    public TextChannel channel(long id) {
+        return channels.computeIfAbsent(id, (e) -> proxy(TextChannel.class, Map.of(
+                "getIdLong", (args) -> id,
+                "getId", (args) -> Long.toUnsignedString(id),
+                "getAsMention", (args) -> "<#" + id + ">",
+                "sendMessage", (args) -> action(MessageCreateAction.class, () -> {
+                    sink.accept(new SentMessage(id, args[0].toString(), Instant.now()));
+                    return null;
+                })
+        )));
+    }
+
+    /**
+     * @return a slash command interaction by the user in the guild's channel
+     */
+    public SlashCommandInteraction interaction(long user_id, long guild_id, long channel_id) {
+        return interaction(user_id, guild_id, channel_id, (e) -> {});
+    }
+
+    /**
+     * @param on_reply also gets the interaction's reply, after the sink
+     * @return a slash command interaction by the user in the guild's channel
+     */
+    public SlashCommandInteraction interaction(long user_id, long guild_id, long channel_id, Consumer<SentMessage> on_reply) {
+        var user = user(user_id);
+        var guild = guild(guild_id);
+        var channel = channel(channel_id);
+        Function<Object[], Object> reply = (args) -> action(WebhookMessageCreateAction.class, () -> {
+            var message = new SentMessage(0, String.valueOf(args[0]), Instant.now());
+            sink.accept(message);
+            on_reply.accept(message);
+            return null;
+        });
+        var hook = proxy(InteractionHook.class, Map.of("sendMessage", reply));
+        return proxy(SlashCommandInteraction.class, Map.ofEntries(
+                Map.entry("getUser", (args) -> user),
+                Map.entry("getMember", (args) -> member(user_id)),
+                Map.entry("getGuild", (args) -> guild),
+                Map.entry("getChannel", (args) -> channel),
+                Map.entry("getChannelIdLong", (args) -> channel_id),
+                Map.entry("getMessageChannel", (args) -> channel),
+                Map.entry("getUserLocale", (args) -> DiscordLocale.ENGLISH_US),
+                Map.entry("getGuildLocale", (args) -> DiscordLocale.ENGLISH_US),
+                Map.entry("deferReply", (args) -> action(ReplyCallbackAction.class, () -> hook)),
+                Map.entry("getHook", (args) -> hook)
+        ));
+    }
+
+    private Member member(long user_id) {
+        var user = user(user_id);
+        return proxy(Member.class, Map.of(
+                "getUser", (args) -> user,
+                "getIdLong", (args) -> user_id,
+                "getPermissions", (args) -> EnumSet.of(Permission.MESSAGE_MANAGE, Permission.MESSAGE_SEND)
+        ));
+    }
+
+    private Object channelArgument(Object[] args) {
+        return channel(id(args[0]));
+    }
+
+    private static long id(Object id) {
+        return (id instanceof String string) ? Long.parseUnsignedLong(string) : (long) id;
+    }
+
+    /**
+     * a rest action that succeeds immediately, running the result supplier every time it's executed;
+     * every builder style method returns the action itself
+     */
+    private static <A> A action(Class<A> type, Supplier<?> result) {
+        return proxy(type, Map.of(
+                "complete", (args) -> result.get(),
+                "submit", (args) -> CompletableFuture.completedFuture(result.get()),
+                "queue", (args) -> {
+                    var value = result.get();
+                    if (args != null && args.length > 0 && args[0] instanceof Consumer<?>) {
+                        // the action's result type is erased, so the caller's consumer takes whatever the supplier gives
+                        @SuppressWarnings("unchecked")
+                        var success = (Consumer<Object>) args[0];
+                        success.accept(value);
+                    }
+                    return null;
+                }
+        ));
+    }
+
+    private static <T> T proxy(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(FakeDiscord.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    var implementation = methods.get(method.getName());
+                    if (implementation != null)
+                        return implementation.apply(args);
+
+                    return switch (method.getName()) {
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "toString" -> String.format("Fake%s@%x", type.getSimpleName(), System.identityHashCode(proxy));
+                        default -> method.getReturnType().isInstance(proxy) ? proxy : defaultValue(method);
+                    };
+                }));
+    }
+
+    private static Object defaultValue(Method method) {
+        var type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class)
+            return null;
+        if (type == boolean.class)
+            return false;
+        if (type == long.class)
+            return 0L;
+        if (type == int.class)
+            return 0;
+        if (type == double.class)
+            return 0.0;
+        if (type == float.class)
+            return 0.0f;
+        if (type == short.class)
+            return (short) 0;
+        if (type == byte.class)
+            return (byte) 0;
+        return '\0';
+    }
+}
@@ -0,0 +1,45 @@
+package canaryprism.timebot.load;
+
+import java.util.Arrays;
+
+/**
+ * collects raw samples and reports percentiles over all of them
+ * <p>
+ * not thread safe, give each client its own and {@link #merge} them at the end
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    public void record(long value) {
+        if (count == samples.length)
+            samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = value;
+    }
+
+    public void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++)
+            record(other.samples[i]);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public record Summary(int count, long p50, long p99, long max) {}
+
+    public Summary summarize() {
+        if (count == 0)
+            return new Summary(0, 0, 0, 0);
+
+        var sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(count, percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[count - 1]);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        var index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
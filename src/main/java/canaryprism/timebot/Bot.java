@@ -12,40 +12,56 @@ import canaryprism.slavacord.annotations.optionbounds.StringLengthBounds;
 import canaryprism.slavacord.autocomplete.AutocompleteSuggestion;
 import canaryprism.slavacord.autocomplete.annotations.Autocompleter;
 import canaryprism.slavacord.autocomplete.annotations.Autocompletes;
-import canaryprism.slavacord.autocomplete.annotations.SearchSuggestions;
-import canaryprism.slavacord.autocomplete.filteroptions.MatchStart;
+import canaryprism.timebot.autocomplete.LocaleIndex;
+import canaryprism.timebot.autocomplete.SuggestionIndex;
+import canaryprism.timebot.autocomplete.TimezoneIndex;
 import canaryprism.timebot.data.*;
 import canaryprism.timebot.data.timers.AlarmData;
+import canaryprism.timebot.data.timers.AlarmSchedule;
+import canaryprism.timebot.data.timers.RecurrenceRule;
 import canaryprism.timebot.data.timers.TimerData;
+import canaryprism.timebot.dispatch.MessageDispatcher;
+import canaryprism.timebot.format.DurationRenderer;
+import canaryprism.timebot.format.FormatterCache;
+import canaryprism.timebot.format.TimeRenderer;
+import canaryprism.timebot.metrics.Histogram;
+import canaryprism.timebot.metrics.MetricsRegistry;
+import canaryprism.timebot.permissions.PermissionCache;
+import canaryprism.timebot.persistence.JournaledStore;
+import canaryprism.timebot.persistence.SaveScheduler;
+import canaryprism.timebot.scheduler.BirthdayCalendar;
+import canaryprism.timebot.scheduler.TaskScheduler;
+import canaryprism.timebot.scheduler.TimingWheelScheduler;
+import canaryprism.timebot.util.KeyedExecutor;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.exceptions.DetachedEntityException;
 import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
 import net.dv8tion.jda.api.interactions.commands.CommandInteractionPayload;
 import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
 import net.dv8tion.jda.api.requests.RestAction;
 import org.apache.commons.lang3.LocaleUtils;
-import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.JSONObject;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.FormatStyle;
-import java.time.temporal.TemporalAccessor;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class Bot {
     
@@ -57,51 +73,199 @@ public class Bot {
             .toFormatter();
     
     private static final DateTimeFormatter DEFAULT_FORMATTER_NO_YEAR = DateTimeFormatter.ofPattern("MM/dd HH:mm:ss (zzz)");
-
-    private final Path save_file;
+    
+    private final JournaledStore store;
     private final CommandHandler command_handler;
     private final BotData bot_data;
     
-    private final Timer timer = new Timer("birthday_timer");
+    private final TaskScheduler scheduler;
+    private final SaveScheduler save_scheduler;
+    
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MessageDispatcher dispatcher;
+    private final PermissionCache permission_cache = new PermissionCache();
+    
+    /**
+     * @param chat_id the server, or the channel outside of servers
+     */
+    private record CommandKey(long chat_id, long user_id) {}
+    
+    private final KeyedExecutor<CommandKey> command_executor = new KeyedExecutor<>("command");
+    private final Map<String, Histogram> command_durations = new ConcurrentHashMap<>();
+    private final Histogram save_duration;
+    private final Histogram birthday_lateness, timer_lateness, alarm_lateness;
+    private final Histogram retrieve_member_wait;
     
     public Bot(JDA api, Path save_file) {
-        this.save_file = save_file;
+        this(api, save_file, new TimingWheelScheduler(), SaveScheduler.DEFAULT_WINDOW);
+    }
+    
+    public Bot(JDA api, Path save_file, TaskScheduler scheduler, Duration save_window) {
+        this(api, save_file, scheduler, save_window, MessageDispatcher.DEFAULT_COALESCE_WINDOW);
+    }
+    
+    /**
+     * @param coalesce_window how long to wait for more reminders to the same channel to send them together
+     */
+    public Bot(JDA api, Path save_file, TaskScheduler scheduler, Duration save_window, Duration coalesce_window) {
+        this.store = new JournaledStore(save_file);
+        this.dispatcher = new MessageDispatcher(metrics, coalesce_window);
+
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler can't be null");
+        this.save_scheduler = new SaveScheduler(this::save, save_window);
         
         this.command_handler = new CommandHandler(api);
         
-        if (Files.isRegularFile(save_file)) {
-            logger.info("save file found");
-            try {
-                var str = Files.readString(save_file);
-                var json = new JSONObject(str);
-                this.bot_data = new BotData(json, api);
-            } catch (IOException e) {
-                throw new RuntimeException(String.format("couldn't read save file '%s'!", save_file), e);
-            }
-        } else {
-            logger.info("no save file found");
-            this.bot_data = new BotData();
+        try {
+            this.bot_data = store.load(api);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("couldn't read save file '%s'!", save_file), e);
         }
+        
+        this.save_duration = metrics.histogram("timebot_save_duration_seconds",
+                "how long committing changes to the store took", Histogram.LATENCY_BUCKETS);
+        metrics.counter("timebot_save_bytes_total",
+                "bytes written to journals and snapshots", store::getBytesWritten);
+        metrics.counter("timebot_save_requests_total",
+                "saves requested, many are coalesced into one", () -> save_scheduler.getStats().requested());
+        
+        var lateness_help = "how long after its target time a scheduled task started running";
+        this.birthday_lateness = metrics.histogram("timebot_task_lateness_seconds", lateness_help,
+                Histogram.LATENESS_BUCKETS, "task", "birthday");
+        this.timer_lateness = metrics.histogram("timebot_task_lateness_seconds", lateness_help,
+                Histogram.LATENESS_BUCKETS, "task", "timer");
+        this.alarm_lateness = metrics.histogram("timebot_task_lateness_seconds", lateness_help,
+                Histogram.LATENESS_BUCKETS, "task", "alarm");
+        
+        metrics.gauge("timebot_scheduler_pending_tasks",
+                "tasks waiting in the scheduler", scheduler::pendingCount);
+        var scheduled_help = "timers and alarms with a task scheduled";
+        metrics.gauge("timebot_scheduled_tasks", scheduled_help, timer_timer_tasks::size, "task", "timer");
+        metrics.gauge("timebot_scheduled_tasks", scheduled_help, alarm_tasks::size, "task", "alarm");
+        metrics.gauge("timebot_birthdays",
+                "birthdays in the calendar, all woken for by one task an hour", birthday_calendar::size);
+        
+        var wait_help = "how long a blocking rest call waited for discord";
+        this.retrieve_member_wait = metrics.histogram("timebot_rest_complete_seconds", wait_help,
+                Histogram.LATENCY_BUCKETS, "action", "retrieve_member");
+        
+        metrics.gauge("timebot_commands_pending",
+                "commands waiting for or running on a command thread", command_executor::getPendingCount);
+        
+        metrics.counter("timebot_permission_cache_hits_total",
+                "member permission lookups answered from the cache", () -> permission_cache.getStats().hits());
+        metrics.counter("timebot_permission_cache_misses_total",
+                "member permission lookups that had to ask discord", () -> permission_cache.getStats().misses());
+        
+        metrics.counter("timebot_formatter_cache_hits_total",
+                "formatter lookups answered from the cache", () -> FormatterCache.shared().getStats().hits());
+        metrics.counter("timebot_formatter_cache_misses_total",
+                "formatter lookups that had to build the formatter", () -> FormatterCache.shared().getStats().misses());
+        metrics.counter("timebot_formatter_cache_evictions_total",
+                "formatters dropped to stay within capacity", () -> FormatterCache.shared().getStats().evictions());
+        
+        bot_data.setDataListener(new ScheduleListener());
+    }
+    
+    public MetricsRegistry getMetrics() {
+        return metrics;
     }
     
-    public void save() {
+    public boolean save() {
+        var start = System.nanoTime();
         try {
-            logger.debug("saving...");
-            Files.writeString(save_file, bot_data.toJSON().toString(),
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            logger.debug("saved");
+            logger.trace("saving...");
+            var saved = store.commit(bot_data);
+            logger.trace("saved");
+            return saved;
         } catch (IOException e) {
             logger.error("failed to save data: ", e);
-            logger.error("""
-                    with json data:
-                    {}
-                    to file '{}'
-                    """, bot_data.toJSON().toString(4), save_file);
+            return false;
+        } finally {
+            save_duration.observeNanos(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * runs a blocking rest call, recording how long it waited
+     */
+    private static <T> T complete(RestAction<T> action, Histogram wait) {
+        var start = System.nanoTime();
+        try {
+            return action.complete();
+        } finally {
+            wait.observeNanos(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * runs a command on its own virtual thread, after every earlier command by the same user in the same chat,
+     * then replies ephemerally with what it returned
+     */
+    private void execute(String command, CommandInteractionPayload interaction, Supplier<String> body) {
+        execute(command, interaction, Optional.of(ResponderFlags.EPHEMERAL), body);
+    }
+    
+    /**
+     * runs a command on its own virtual thread, after every earlier command by the same user in the same chat,
+     * then replies with what it returned
+     * <p>
+     * a user's commands are what mutate their data, so running them in order keeps their changes ordered without
+     * holding anyone else up; the interaction is acknowledged first, so a command waiting its turn or on discord
+     * doesn't miss the 3 seconds discord gives to answer
+     *
+     * @param flag how the reply is sent, decided up front since acknowledging fixes whether it's ephemeral
+     */
+    private void execute(String command, CommandInteractionPayload interaction, Optional<ResponderFlags> flag, Supplier<String> body) {
+        var callback = (IReplyCallback) interaction;
+        callback.deferReply(flag.orElse(null) == ResponderFlags.EPHEMERAL).queue();
+        
+        var chat_id = (interaction.getGuild() != null) ? interaction.getGuild().getIdLong() : interaction.getChannelIdLong();
+        
+        try {
+            command_executor.execute(new CommandKey(chat_id, interaction.getUser().getIdLong()), () -> {
+                String response;
+                try {
+                    response = timed(command, body);
+                } catch (RuntimeException e) {
+                    logger.error("/{} command failed: ", command, e);
+                    response = "Error: something went wrong running this command";
+                }
+                
+                if (response != null)
+                    callback.getHook()
+                            .sendMessage(response)
+                            .setAllowedMentions(Collections.emptySet())
+                            .setSuppressedNotifications(flag.orElse(null) == ResponderFlags.SILENT)
+                            .queue();
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("/{} command rejected, shutting down", command);
+            callback.getHook().sendMessage("Error: the bot is shutting down, try again in a bit").queue();
+        }
+    }
+    
+    /**
+     * runs a command, recording how long it took under its full name
+     */
+    private String timed(String command, Supplier<String> body) {
+        var duration = command_durations.computeIfAbsent(command, (e) -> metrics.histogram(
+                "timebot_command_duration_seconds", "how long a slash command took to handle",
+                Histogram.LATENCY_BUCKETS, "command", e));
+        var start = System.nanoTime();
+        try {
+            return body.get();
+        } finally {
+            duration.observeNanos(System.nanoTime() - start);
         }
     }
     
     public void saveAsync() {
-        Thread.ofVirtual().start(this::save);
+        save_scheduler.request();
+    }
+    
+    public SaveScheduler.Stats getSaveStats() {
+        return save_scheduler.getStats();
     }
     
     public void start() {
@@ -112,318 +276,292 @@ public class Bot {
         command_handler.register(new GlobalInstallServerCommands(), false);
         command_handler.register(new ServerInstallCommands(), false);
         
+        // loading every locale's display names takes a while, so build the indexes off the startup path
+        Thread.ofVirtual()
+                .name("autocomplete_index")
+                .start(() -> {
+                    TimezoneIndex.get();
+                    LocaleIndex.get();
+                    logger.debug("autocomplete indexes built");
+                });
         
-        refreshBirthdayTimers();
-        refreshTimers();
-        refreshAlarms();
+        scheduleAll();
         
         logger.info("Bot started normally");
     }
     
-    abstract class AbstractTimerTask extends TimerTask {
+    public void shutdown() {
+        logger.info("Shutting down Bot");
+        
+        command_executor.close();
+        scheduler.close();
+        dispatcher.close();
+        save_scheduler.close();
+        
+        logger.info("formatter cache: {}", FormatterCache.shared().getStats());
+        logger.info("permission cache: {}", permission_cache.getStats());
+        
+        try {
+            store.close();
+        } catch (IOException e) {
+            logger.error("failed to close store: ", e);
+        }
+        
+        logger.info("Bot shut down");
+    }
+    
+    abstract class AbstractTimerTask implements Runnable {
         protected final Instant target_time;
+        private final Histogram lateness;
+        
+        private TaskScheduler.Handle handle;
         
-        AbstractTimerTask(Instant target_time) {
+        AbstractTimerTask(Instant target_time, Histogram lateness) {
             this.target_time = target_time;
+            this.lateness = lateness;
         }
         
+        @Override
+        public final void run() {
+            lateness.observeNanos(Duration.between(target_time, Instant.now()).toNanos());
+            fire();
+        }
+        
+        protected abstract void fire();
+        
         public synchronized final void schedule() {
-            timer.schedule(this, Date.from(target_time));
+            handle = scheduler.schedule(this, target_time);
         }
         
-        public abstract void update();
+        public synchronized final boolean cancel() {
+            return handle != null && handle.cancel();
+        }
         
     }
     
-    class BirthdayTask extends AbstractTimerTask {
+    /**
+     * brings the task for a key in line with its data, only touching that one task
+     * <p>
+     * the task is left alone if its time didn't change, replaced if it did, and dropped if there's no time anymore
+     *
+     * @param target_time reads the time the task should run at, checked while the key's task is locked
+     * @param factory creates a task for a new time
+     */
+    private <K, T extends AbstractTimerTask> void reschedule(Map<K, T> tasks, K key,
+                                                             Supplier<Optional<Instant>> target_time,
+                                                             Function<Instant, T> factory) {
+        tasks.compute(key, (k, task) -> {
+            var time = target_time.get();
+            
+            if (task != null) {
+                if (time.isPresent() && time.get().equals(task.target_time))
+                    return task;
+                
+                task.cancel();
+            }
+            
+            if (time.isEmpty())
+                return null;
+            
+            var new_task = factory.apply(time.get());
+            new_task.schedule();
+            return new_task;
+        });
+    }
+    
+    private class ScheduleListener implements DataListener {
         
-        private final UserData data;
+        @Override
+        public void timerAdded(TimerData timer) {
+            scheduleTimer(timer);
+        }
         
-        BirthdayTask(UserData data) {
-            super(data.getBirthdayData().orElseThrow().getNextBirthday());
-            this.data = data;
+        @Override
+        public void timerRemoved(TimerData timer) {
+            scheduleTimer(timer);
         }
         
         @Override
-        public synchronized void run() {
-            var birthday = data.getBirthdayData().orElseThrow();
-            
-            var channel = birthday.getChannel();
-            
-            if (birthday.getAge().isPresent()) {
-                channel.sendMessage(String.format("Today is %s's birthday! They're now %s years old! Happy birthday!", data.getUser().getAsMention(), birthday.getAge().get()));
-            } else {
-                channel.sendMessage(String.format("Today is %s's birthday! Happy birthday!", data.getUser().getAsMention()));
-            }
-            
-            birthday.birthdayNotified();
-            this.update();
-            
-            saveAsync();
+        public void alarmAdded(AlarmData alarm) {
+            scheduleAlarm(alarm);
         }
         
         @Override
-        public synchronized void update() {
-            logger.trace("updating timer for user {}", data.getUser());
-            synchronized (data) {
-                if (!data.getBirthdayData().map(BirthdayData::getNextBirthday).map(target_time::equals).orElse(false)) {
-                    var opt_birthday = data.getBirthdayData();
-                    if (opt_birthday.isPresent()) {
-                        logger.trace("time changed, rescheduling to {}...",
-                                () -> data.getBirthdayData().map(BirthdayData::getNextBirthday));
-                        
-                        this.cancel();
-                        
-                        var new_task = new BirthdayTask(data);
-                        
-                        synchronized (birthday_tasks) {
-                            birthday_tasks.remove(this);
-                            birthday_tasks.add(new_task);
-                        }
-                        
-                        new_task.schedule();
-                    } else {
-                        logger.trace("birthday removed, cancelling task");
-                        
-                        this.cancel();
-                        
-                        synchronized (birthday_tasks) {
-                            birthday_tasks.remove(this);
-                        }
-                    }
-                }
-            }
+        public void alarmChanged(AlarmData alarm) {
+            scheduleAlarm(alarm);
         }
         
+        @Override
+        public void alarmRemoved(AlarmData alarm) {
+            scheduleAlarm(alarm);
+        }
+        
+        @Override
+        public void birthdayChanged(UserData user) {
+            scheduleBirthday(user);
+        }
     }
     
-    private final Set<BirthdayTask> birthday_tasks = new HashSet<>();
+    /**
+     * schedules everything that was loaded from the save, after this tasks are only kept up to date by data events
+     */
+    private void scheduleAll() {
+        logger.debug("scheduling stored timers, alarms and birthdays");
+        
+        allUsers().forEach((user) -> {
+            scheduleBirthday(user);
+            user.getTimers().forEach(this::scheduleTimer);
+            user.getAlarms().forEach(this::scheduleAlarm);
+        });
+        
+        // birthdays whose hour passed while the bot was down, the hourly task only looks forward from here
+        var missed = allUsers()
+                .filter(this::announceBirthdayIfDue)
+                .count();
+        if (missed > 0) {
+            logger.info("announced {} birthdays missed while offline", missed);
+            saveAsync();
+        }
+        
+        new BirthdayHourTask(Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS)).schedule();
+        
+        logger.debug("{} tasks scheduled, {} birthdays in the calendar", scheduler.pendingCount(), birthday_calendar.size());
+    }
     
-    private void refreshBirthdayTimersAsync() {
-        Thread.ofVirtual().start(this::refreshBirthdayTimers);
+    private Stream<UserData> allUsers() {
+        return Stream.concat(
+                bot_data.getServers().stream().flatMap((e) -> e.getUsers().stream()),
+                bot_data.getDms().stream().flatMap((e) -> e.getUsers().stream()));
     }
     
-    private void refreshBirthdayTimers() {
-        logger.debug("refreshing birthday timers");
+    /**
+     * wakes up at the start of a utc hour to announce the birthdays in it, then schedules itself for the next hour
+     * <p>
+     * one of these is pending at a time however many birthdays there are; a run that's late by hours is followed
+     * straight away by the runs for the hours it missed
+     */
+    class BirthdayHourTask extends AbstractTimerTask {
         
-        Set<UserData> birthday_users;
-        synchronized (birthday_tasks) {
-            birthday_users = birthday_tasks.stream()
-                    .map((e) -> e.data)
-                    .collect(Collectors.toUnmodifiableSet());
+        BirthdayHourTask(Instant target_time) {
+            super(target_time, birthday_lateness);
         }
         
-        bot_data.getServers()
-                .stream()
-                .flatMap((e) -> e.getUsers().stream())
-                .filter((e) -> e.getBirthdayData().isPresent())
-                .filter((e) -> !birthday_users.contains(e))
-                .forEach((e) -> {
-                    var task = new BirthdayTask(e);
-                    
-                    logger.debug("new birthday timer for user {}", e.getUser());
-                    
-                    synchronized (birthday_tasks) {
-                        birthday_tasks.add(task);
-                    }
-                    
-                    task.schedule();
-                });
+        @Override
+        protected void fire() {
+            try {
+                var announced = 0;
+                for (var user : birthday_calendar.due(LocalDateTime.ofInstant(target_time, ZoneOffset.UTC)))
+                    if (announceBirthdayIfDue(user))
+                        announced++;
+                
+                if (announced > 0)
+                    saveAsync();
+            } finally {
+                new BirthdayHourTask(target_time.plus(1, ChronoUnit.HOURS)).schedule();
+            }
+        }
+    }
+    
+    // by identity, someone in two servers has separate data and a separate announcement in each
+    private final BirthdayCalendar<UserData> birthday_calendar = new BirthdayCalendar<>();
+    
+    private void scheduleBirthday(UserData user) {
+        logger.trace("updating birthday for user {}", user.getUserId());
+        user.getBirthdayData().ifPresentOrElse(
+                (e) -> birthday_calendar.put(user, e.getMonth(), e.getDay(), e.getHour()),
+                () -> birthday_calendar.remove(user));
+    }
+    
+    /**
+     * announces the user's birthday if it's come and it hasn't been announced yet
+     *
+     * @return true if it was announced
+     */
+    private boolean announceBirthdayIfDue(UserData user) {
+        var opt_birthday = user.getBirthdayData();
+        if (opt_birthday.isEmpty() || opt_birthday.get().getNextBirthday().isAfter(Instant.now()))
+            return false;
+        
+        var birthday = opt_birthday.get();
+        var channel = birthday.getChannel();
         
-        synchronized (birthday_tasks) {
-            for (var e : birthday_tasks)
-                e.update();
+        if (birthday.getAge().isPresent()) {
+            dispatcher.send(channel, String.format("Today is %s's birthday! They're now %s years old! Happy birthday!", user.getUser().getAsMention(), birthday.getAge().get()));
+        } else {
+            dispatcher.send(channel, String.format("Today is %s's birthday! Happy birthday!", user.getUser().getAsMention()));
         }
+        
+        // moves the birthday on to next year's, it stays in the same bucket
+        birthday.birthdayNotified();
+        return true;
     }
     
     class TimerTimerTask extends AbstractTimerTask {
         
         private final TimerData data;
         
-        TimerTimerTask(TimerData data) {
-            super(data.getTargetTime());
+        TimerTimerTask(TimerData data, Instant target_time) {
+            super(target_time, timer_lateness);
             
             this.data = data;
         }
         
         @Override
-        public void run() {
+        protected void fire() {
             if (!data.isActive())
                 throw new IllegalStateException("User doesn't have this timer anymore without updating");
             
-            data.getChannel().sendMessage(data.getMessage()).complete();
+            dispatcher.send(data.getChannel(), data.getMessage());
             
             data.complete();
             
-            this.update();
-            
             saveAsync();
         }
-        
-        @Override
-        public void update() {
-            if (!data.isActive()) {
-                logger.trace("timer timer cancelled, user dosn't have timer");
-                
-                this.cancel();
-                
-                synchronized (timer_timer_tasks) {
-                    timer_timer_tasks.remove(this);
-                }
-            }
-        }
     }
     
-    private final Set<TimerTimerTask> timer_timer_tasks = new HashSet<>();
-    
-    private void refreshTimersAsync() {
-        Thread.ofVirtual().start(this::refreshTimers);
-    }
+    private final Map<TimerData, TimerTimerTask> timer_timer_tasks = new ConcurrentHashMap<>();
     
-    private void refreshTimers() {
-        logger.debug("refreshing timers");
-        
-        Set<TimerData> timers;
-        synchronized (timer_timer_tasks) {
-            timers = timer_timer_tasks.stream()
-                    .map((e) -> e.data)
-                    .collect(Collectors.toUnmodifiableSet());
-        }
-        
-        bot_data.getServers()
-                .stream()
-                .flatMap((e) -> e.getUsers().stream())
-                .flatMap((e) -> e.getTimers().stream())
-                .filter((e) -> !timers.contains(e))
-                .forEach((timer) -> {
-                    var task = new TimerTimerTask(timer);
-                    
-                    logger.debug("new timer timer for user {}", timer.getOwner());
-                    
-                    synchronized (timer_timer_tasks) {
-                        timer_timer_tasks.add(task);
-                    }
-                    
-                    task.schedule();
-                    
-                });
-        
-        synchronized (timer_timer_tasks) {
-            for (var e : timer_timer_tasks)
-                e.update();
-        }
+    private void scheduleTimer(TimerData timer) {
+        logger.trace("updating timer timer for user {}", timer.getOwner().getUserId());
+        reschedule(timer_timer_tasks, timer,
+                () -> timer.isActive() ? Optional.of(timer.getTargetTime()) : Optional.empty(),
+                (time) -> new TimerTimerTask(timer, time));
     }
     
     class AlarmTimerTask extends AbstractTimerTask {
         
         private final AlarmData data;
         
-        AlarmTimerTask(AlarmData data) {
-            super(data.getTargetTime().orElseThrow());
+        AlarmTimerTask(AlarmData data, Instant target_time) {
+            super(target_time, alarm_lateness);
             
             this.data = data;
         }
         
         @Override
-        public void run() {
+        protected void fire() {
             if (!data.isActive())
                 throw new IllegalStateException("User doesn't have this alarm anymore without updating");
             
-            data.getChannel().sendMessage(data.getMessage()).complete();
+            dispatcher.send(data.getChannel(), data.getMessage());
             
             data.complete();
             
-            this.update();
-            
             saveAsync();
         }
-        
-        @Override
-        public void update() {
-            if (!data.isActive() || data.getTargetTime().isEmpty()) {
-                logger.trace("alarm cancelled, user dosn't have alarm");
-                
-                this.cancel();
-                
-                synchronized (alarm_tasks) {
-                    alarm_tasks.remove(this);
-                }
-            } else if (!data.getTargetTime().get().equals(target_time)) {
-                logger.trace("alarm changed, rescheduling");
-                
-                this.cancel();
-                
-                var new_task = new AlarmTimerTask(data);
-                
-                synchronized (alarm_tasks) {
-                    alarm_tasks.remove(this);
-                    alarm_tasks.add(new_task);
-                }
-                
-                new_task.schedule();
-            }
-        }
     }
     
-    private final Set<AlarmTimerTask> alarm_tasks = new HashSet<>();
+    private final Map<AlarmData, AlarmTimerTask> alarm_tasks = new ConcurrentHashMap<>();
     
-    private void refreshAlarmsAsync() {
-        Thread.ofVirtual().start(this::refreshAlarms);
-    }
-    
-    private void refreshAlarms() {
-        logger.debug("refreshing alarms");
-        
-        Set<AlarmData> alarms;
-        synchronized (alarm_tasks) {
-            alarms = alarm_tasks.stream()
-                    .map((e) -> e.data)
-                    .collect(Collectors.toUnmodifiableSet());
-        }
-        
-        bot_data.getServers()
-                .stream()
-                .flatMap((e) -> e.getUsers().stream())
-                .flatMap((e) -> e.getAlarms().stream())
-                .filter((e) -> !alarms.contains(e))
-                .forEach((timer) -> {
-                    var task = new AlarmTimerTask(timer);
-                    
-                    logger.debug("new timer timer for user {}", timer.getOwner());
-                    
-                    synchronized (alarm_tasks) {
-                        alarm_tasks.add(task);
-                    }
-                    
-                    task.schedule();
-                    
-                });
-        
-        synchronized (alarm_tasks) {
-            for (var e : alarm_tasks)
-                e.update();
-        }
+    private void scheduleAlarm(AlarmData alarm) {
+        logger.trace("updating alarm for user {}", alarm.getOwner().getUserId());
+        reschedule(alarm_tasks, alarm,
+                () -> alarm.isActive() ? alarm.getTargetTime() : Optional.empty(),
+                (time) -> new AlarmTimerTask(alarm, time));
     }
     
     public static String formatDuration(Duration duration) {
-        if (duration.isNegative())
-            return "negative time";
-
-        class Regexes {
-            static final Pattern PLURAL_DAYS = Pattern.compile("\\b1 days\\b");
-            static final Pattern PLURAL_HOURS = Pattern.compile("\\b1 hours\\b");
-            static final Pattern PLURAL_MINUTES = Pattern.compile("\\b1 minutes\\b");
-            static final Pattern PLURAL_SECONDS = Pattern.compile("\\b1 seconds\\b");
-        }
-        var str = DurationFormatUtils.formatDuration(duration.toMillis(),
-                "[d 'days' ][H 'hours' ]m 'minutes' s 'seconds'");
-        
-        str = Regexes.PLURAL_DAYS.matcher(str).replaceAll("1 day");
-        str = Regexes.PLURAL_HOURS.matcher(str).replaceAll("1 hour");
-        str = Regexes.PLURAL_MINUTES.matcher(str).replaceAll("1 minute");
-        str = Regexes.PLURAL_SECONDS.matcher(str).replaceAll("1 second");
-        
-        return str;
+        return DurationRenderer.ENGLISH.render(duration);
     }
 
     enum DayOfWeekOption implements CustomChoiceName {
@@ -451,8 +589,69 @@ public class Bot {
         }
     }
 
-    private boolean canCustomMessages(User user, Guild server) {
-        if (Objects.requireNonNull(server.retrieveMember(user).complete()).getPermissions().contains(Permission.MESSAGE_MANAGE))
+    enum FrequencyOption implements CustomChoiceName {
+        NEVER("Never", null),
+        DAILY("Daily", RecurrenceRule.Frequency.DAILY),
+        WEEKLY("Weekly", RecurrenceRule.Frequency.WEEKLY),
+        MONTHLY("Monthly", RecurrenceRule.Frequency.MONTHLY);
+
+        private final String choice_name;
+        private final RecurrenceRule.Frequency frequency;
+
+        FrequencyOption(String choice_name, RecurrenceRule.Frequency frequency) {
+            this.choice_name = choice_name;
+            this.frequency = frequency;
+        }
+
+        @Override
+        public String getCustomName() {
+            return choice_name;
+        }
+    }
+
+    enum WeekOfMonthOption implements CustomChoiceName {
+        FIRST("First", 1),
+        SECOND("Second", 2),
+        THIRD("Third", 3),
+        FOURTH("Fourth", 4),
+        LAST("Last", -1);
+
+        private final String choice_name;
+        private final int week;
+
+        WeekOfMonthOption(String choice_name, int week) {
+            this.choice_name = choice_name;
+            this.week = week;
+        }
+
+        @Override
+        public String getCustomName() {
+            return choice_name;
+        }
+    }
+
+    /**
+     * @return the user's server wide permissions, from the interaction's own member or the cache when possible
+     */
+    private EnumSet<Permission> permissionsOf(CommandInteractionPayload interaction, Guild server) {
+        // discord sends the member with every interaction, so it's always up to date and costs nothing
+        var member = interaction.getMember();
+        if (member != null) {
+            try {
+                return member.getPermissions();
+            } catch (DetachedEntityException e) {
+                // the bot isn't in the server, so fall back to asking discord like before
+            }
+        }
+        
+        // only the rest call is cached, for up to the cache's time to live since nothing tells it about role changes
+        return permission_cache.get(server.getIdLong(), interaction.getUser().getIdLong(), () ->
+                Objects.requireNonNull(complete(server.retrieveMember(interaction.getUser()), retrieve_member_wait))
+                        .getPermissions());
+    }
+    
+    private boolean canCustomMessages(CommandInteractionPayload interaction, Guild server) {
+        if (permissionsOf(interaction, server).contains(Permission.MESSAGE_MANAGE))
             return true;
 
         return bot_data.getServerData(server)
@@ -468,13 +667,14 @@ public class Bot {
         @Command(name = "ping", description = "Pong !")
         @ReturnsResponse(ephemeral = true)
         String ping() {
-            logger.trace("/ping command");
-            return "Pong !";
+            return timed("ping", () -> {
+                logger.trace("/ping command");
+                return "Pong !";
+            });
         }
         
         @Command(name = "time", description = "get a user's time (the user needs to have a timezone set)")
-        @ReturnsResponse(ephemeral = true)
-        String time(
+        void time(
                 @Interaction CommandInteractionPayload interaction,
                 
                 @Option(name = "of", description = "the user to get the time of (default: yourself)")
@@ -483,72 +683,42 @@ public class Bot {
                 @Option(name = "message_flag", description = "the message flags to use (default: none)")
                 Optional<ResponderFlags> flag
         ) {
-            var now = Instant.now();
+            var chat = bot_data.getChatData(interaction);
             
-            var user = opt_user.orElse(interaction.getUser());
+            // the reply's flags have to be known before it's acknowledged
+            var reply_flag = chat.flatMap(ChatData::getForcedMessageFlag).or(() -> flag);
             
-            logger.trace("/time command; user: {}, target: {}", interaction.getUser(), user);
-            
-            var opt_timezone = bot_data.getChatData(interaction)
-                    .flatMap((e) -> e.getUserData(user))
-                    .flatMap(UserData::getTimezone);
-            
-            if (opt_timezone.isEmpty())
-                return String.format("Error: User %s has no timezone set! Set a timezone with `/timezone set`", user.getAsMention());
-            
-            var timezone = opt_timezone.get();
-            
-            var timezone_visible = bot_data.getChatData(interaction)
-                    .flatMap((e) -> e.getUserData(user))
-                    .flatMap(UserData::isTimezoneVisible)
-                    .orElse(true);
-            
-            var locale = bot_data.getChatData(interaction)
-                    .flatMap((e) -> e.getUserData(interaction.getUser()))
-                    .flatMap(UserData::getLocale)
-                    .orElse(interaction.getUserLocale().toLocale());
-            
-            
-            var formatter = bot_data.getChatData(interaction)
-                    .flatMap((e) -> e.getUserData(interaction.getUser()))
-                    .flatMap(UserData::getFormatter)
-                    .orElse(DEFAULT_FORMATTER)
-                    .withLocale(locale);
-            
-            String time;
-            if (timezone_visible) {
-                time = now.atZone(timezone).format(formatter);
-            } else {
-                time = now.atZone(timezone).toLocalDateTime().format(formatter);
-            }
-            
-            var message = String.format("The current time for %s is %s",
-                    user.getAsMention(), time);
-            
-            var responder = ((IReplyCallback) interaction)
-                    .reply(message)
-                    .setAllowedMentions(Collections.emptySet());
-
-            bot_data.getChatData(interaction)
-                    .flatMap(ChatData::getForcedMessageFlag)
-                    .or(() -> flag)
-                    .ifPresent((e) -> {
-                        switch (e) {
-                            case EPHEMERAL -> responder.setEphemeral(true);
-                            case SILENT -> responder.setSuppressedNotifications(true);
-                        }
-                    });
-            
-            responder.queue();
-            
-            return null;
+            execute("time", interaction, reply_flag, () -> {
+                var now = Instant.now();
+                
+                var user = opt_user.orElse(interaction.getUser());
+                
+                logger.trace("/time command; user: {}, target: {}", interaction.getUser(), user);
+                
+                var target = UserPreferences.of(chat.flatMap((e) -> e.getUserData(user)));
+                
+                if (target.timezone().isEmpty())
+                    return String.format("Error: User %s has no timezone set! Set a timezone with `/timezone set`", user.getAsMention());
+                
+                // the time is shown the way the person asking likes it
+                var requester = user.equals(interaction.getUser())
+                        ? target
+                        : UserPreferences.of(chat.flatMap((e) -> e.getUserData(interaction.getUser())));
+                
+                var locale = requester.locale(interaction.getUserLocale().toLocale());
+                var formatter = requester.formatter(DEFAULT_FORMATTER, locale);
+                
+                var time = TimeRenderer.render(now, target.timezone().get(), target.timezone_visible(), formatter);
+                
+                return String.format("The current time for %s is %s",
+                        user.getAsMention(), time);
+            });
         }
         
         @CommandGroup(name = "timezone")
         class Timezone {
             @Command(name = "set", description = "set timezone ZoneId")
-            @ReturnsResponse(ephemeral = true)
-            String set(
+            void set(
                     @Interaction
                     CommandInteractionPayload interaction,
                     
@@ -557,297 +727,246 @@ public class Bot {
                     @Option(name = "timezone", description = "the timezone to set to")
                     String timezone_query
             ) {
-                logger.trace("/timezone set command; user: {}, timezone_query: {}", interaction.getUser(), timezone_query);
-                
-                try {
-                    var timezone = ZoneId.of(timezone_query);
-                    
-                    var data = bot_data.obtainChatData(interaction).obtainUserData(interaction.getUser());
-                    
-                    data.setTimezone(timezone);
+                execute("timezone set", interaction, () -> {
+                    logger.trace("/timezone set command; user: {}, timezone_query: {}", interaction.getUser(), timezone_query);
                     
-                    saveAsync();
-                    
-                    return String.format("""
-                            Set timezone to %s in this server
-                            Preview: %s
-                            """, timezone, previewTime(interaction));
-                } catch (DateTimeException e) {
-                    return String.format("Error: Timezone of id '%s' not found", timezone_query);
-                }
+                    try {
+                        var timezone = ZoneId.of(timezone_query);
+                        
+                        var data = bot_data.obtainChatData(interaction).obtainUserData(interaction.getUser());
+                        
+                        data.setTimezone(timezone);
+                        
+                        saveAsync();
+                        
+                        return String.format("""
+                                Set timezone to %s in this server
+                                Preview: %s
+                                """, timezone, previewTime(interaction));
+                    } catch (DateTimeException e) {
+                        return String.format("Error: Timezone of id '%s' not found", timezone_query);
+                    }
+                });
             }
             
-            @SearchSuggestions(at = MatchStart.ANYWHERE, ignorePunctuation = true)
             @Autocompleter
             List<AutocompleteSuggestion<String>> getTimezones(String input) {
                 logger.trace("timezone autocomplete for input '{}'", input);
-                var list = new ArrayList<AutocompleteSuggestion<String>>();
-                
-                if (!input.isBlank()) {
-                    try {
-                        //noinspection ResultOfMethodCallIgnored
-                        ZoneId.of(input);
-                        list.add(AutocompleteSuggestion.of(
-                                String.format("valid timezone: %s", input),
-                                input
-                        ));
-                    } catch (DateTimeException e) {
-                        list.add(AutocompleteSuggestion.of(
-                                String.format("unrecognised timezone: %s", input),
-                                input
-                        ));
-                    }
-                }
+                var index = TimezoneIndex.get();
                 
-                list.addAll(ZoneId.SHORT_IDS
-                        .entrySet()
-                        .stream()
-                        .map((e) -> AutocompleteSuggestion.of(
-                                String.format("%s (%s)", e.getKey(), e.getValue()),
-                                e.getValue()
-                        ))
-                        .toList());
-                
-                list.addAll(ZoneId.getAvailableZoneIds()
-                        .stream()
-                        .map(AutocompleteSuggestion::of)
-                        .toList());
+                if (input.isBlank() || index.hasExactMatch(input))
+                    return index.search(input);
                 
+                // keep the raw input pickable, ZoneId.of accepts more than can be listed (like "UTC+0115")
+                var list = new ArrayList<AutocompleteSuggestion<String>>(SuggestionIndex.MAX_SUGGESTIONS);
+                list.add(AutocompleteSuggestion.of(String.format("custom timezone: %s", input), input));
+                list.addAll(index.search(input, SuggestionIndex.MAX_SUGGESTIONS - 1));
                 return list;
             }
 
             @Command(name = "get", description = "get your current set timezone")
-            @ReturnsResponse(ephemeral = true)
-            String get(@Interaction CommandInteractionPayload interaction) {
-                var user = interaction.getUser();
-                logger.trace("/timezone get command; user: {}", user);
-
-                return bot_data.getChatData(interaction)
-                        .flatMap((e) -> e.getUserData(user))
-                        .flatMap(UserData::getTimezone)
-                        .map((e) -> String.format("Your current set timezone is %s", e))
-                        .orElse("Error: You don't have a timezone set! you can set one with `/timezone set`");
+            void get(@Interaction CommandInteractionPayload interaction) {
+                execute("timezone get", interaction, () -> {
+                    var user = interaction.getUser();
+                    logger.trace("/timezone get command; user: {}", user);
+
+                    return bot_data.getChatData(interaction)
+                            .flatMap((e) -> e.getUserData(user))
+                            .flatMap(UserData::getTimezone)
+                            .map((e) -> String.format("Your current set timezone is %s", e))
+                            .orElse("Error: You don't have a timezone set! you can set one with `/timezone set`");
+                });
             }
             
             @Command(name = "setvisible", description = "set whether your timezone is visible to others")
-            @ReturnsResponse(ephemeral = true)
-            String setvisible(
+            void setvisible(
                     @Interaction
                     CommandInteractionPayload interaction,
                     
                     @Option(name = "visible", description = "whether your timezone is visible to others")
                     boolean state
             ) {
-                var user = interaction.getUser();
-                
-                logger.trace("/timezone setvisible command; user: {}", user);
-                
-                try {
-
-                    var current_state = bot_data.getChatData(interaction)
-                            .flatMap((e) -> e.getUserData(user))
-                            .flatMap(UserData::isTimezoneVisible)
-                            .orElse(true);
+                execute("timezone setvisible", interaction, () -> {
+                    var user = interaction.getUser();
+                    
+                    logger.trace("/timezone setvisible command; user: {}", user);
+                    
+                    try {
+                        var current_state = bot_data.getChatData(interaction)
+                                .flatMap((e) -> e.getUserData(user))
+                                .flatMap(UserData::isTimezoneVisible)
+                                .orElse(true);
+                        
+                        if (current_state == state)
+                            return String.format("Error: Your timezone visibility is already set to %s", current_state);
+                        
+                        var data = bot_data.obtainChatData(interaction).obtainUserData(interaction.getUser());
+                        
+                        data.setTimezoneVisible(state);
+                        
+                        saveAsync();
+                        
+                        return String.format("""
+                                Set timezone visibility to be %s in this server
+                                Preview: %s
+                                """, state, previewTime(interaction));
+                    } catch (DateTimeException e) {
+                        return String.format("Error: Timezone of id '%s' not found", state);
+                    }
+                });
+            }
+            
+            @Command(name = "remove", description = "remove timezone information from the bot")
+            void remove(@Interaction CommandInteractionPayload interaction) {
+                execute("timezone remove", interaction, () -> {
+                    var user = interaction.getUser();
                     
-                    if (current_state == state)
-                        return String.format("Error: Your timezone visibility is already set to %s", current_state);
+                    logger.trace("/timezone remove command; user: {}", user);
                     
-                    var data = bot_data.obtainChatData(interaction).obtainUserData(interaction.getUser());
+                    var data = bot_data.getChatData(interaction)
+                            .flatMap((e) -> e.getUserData(user));
                     
-                    data.setTimezoneVisible(state);
+                    if (data.flatMap(UserData::getTimezone).isEmpty())
+                        return "Error: You don't have timezone information in this server already";
+                    
+                    data.get().setTimezone(null);
                     
                     saveAsync();
                     
-                    return String.format("""
-                            Set timezone visibility to be %s in this server
-                            Preview: %s
-                            """, state, previewTime(interaction));
-                } catch (DateTimeException e) {
-                    return String.format("Error: Timezone of id '%s' not found", state);
-                }
-            }
-            
-            @Command(name = "remove", description = "remove timezone information from the bot")
-            @ReturnsResponse(ephemeral = true)
-            String remove(@Interaction CommandInteractionPayload interaction) {
-                var user = interaction.getUser();
-                
-                logger.trace("/timezone remove command; user: {}", user);
-                
-                var data = bot_data.getChatData(interaction)
-                        .flatMap((e) -> e.getUserData(user));
-                
-                if (data.flatMap(UserData::getTimezone).isEmpty())
-                    return "Error: You don't have timezone information in this server already";
-                
-                data.get().setTimezone(null);
-                
-                saveAsync();
-                
-                return "Removed your timezone information for this server";
+                    return "Removed your timezone information for this server";
+                });
             }
             
         }
         
         @Command(name = "setformatter", description = "set the DateTimeFormatter to use when calling /time")
-        @ReturnsResponse(ephemeral = true)
-        String setformatter(
+        void setformatter(
                 @Interaction CommandInteractionPayload interaction,
                 @Option(name = "pattern", description = "the pattern to set to, if not present resets it to default") Optional<String> opt_pattern
         ) {
-            logger.trace("/time command; user: {}, pattern: {}", interaction.getUser(), opt_pattern);
-            
-            if (opt_pattern.isPresent()) {
-                var pattern = opt_pattern.get();
-                try {
-                    var formatter = DateTimeFormatter.ofPattern(pattern);
+            execute("setformatter", interaction, () -> {
+                logger.trace("/time command; user: {}, pattern: {}", interaction.getUser(), opt_pattern);
+                
+                if (opt_pattern.isPresent()) {
+                    var pattern = opt_pattern.get();
+                    try {
+                        var formatter = FormatterCache.shared().ofPattern(pattern, Locale.getDefault(Locale.Category.FORMAT));
+                        
+                        formatter.format(LocalDateTime.now());
+                        
+                        bot_data.obtainChatData(interaction)
+                                .obtainUserData(interaction.getUser())
+                                .setFormatter(pattern);
+                        
+                        saveAsync();
+                        
+                        return String.format("""
+                                Set formatter to pattern `%s`
+                                Preview: %s
+                                """, pattern, previewTime(interaction));
+                    } catch (IllegalArgumentException e) {
+                        return String.format("Error: Invalid DateTimeFormat pattern: `%s`", pattern);
+                    } catch (DateTimeException e) {
+                        return "Error: Pattern may only request timezone information in square brackets (to indicate optionalness)";
+                    }
+                } else {
+                    var opt_data = bot_data.getChatData(interaction)
+                            .flatMap((e) -> e.getUserData(interaction.getUser()));
                     
-                    formatter.format(LocalDateTime.now());
+                    if (opt_data.flatMap(UserData::getFormatter).isEmpty())
+                        return "Error: No operation performed";
                     
-                    bot_data.obtainChatData(interaction)
-                            .obtainUserData(interaction.getUser())
-                            .setFormatter(pattern);
+                    @SuppressWarnings("OptionalGetWithoutIsPresent")
+                    var old_formatter = opt_data.get().getFormatterPattern().get();
+                    
+                    opt_data.get().setFormatter(null);
                     
                     saveAsync();
                     
                     return String.format("""
-                            Set formatter to pattern `%s`
+                            Reset formatter to default from `%s`
                             Preview: %s
-                            """, pattern, previewTime(interaction));
-
-                } catch (IllegalArgumentException e) {
-                    return String.format("Error: Invalid DateTimeFormat pattern: `%s`", pattern);
-                } catch (DateTimeException e) {
-                    return "Error: Pattern may only request timezone information in square brackets (to indicate optionalness)";
+                            """, old_formatter, previewTime(interaction));
                 }
-            } else {
-                var opt_data = bot_data.getChatData(interaction)
-                        .flatMap((e) -> e.getUserData(interaction.getUser()));
-                
-                if (opt_data.flatMap(UserData::getFormatter).isEmpty())
-                    return "Error: No operation performed";
-                
-                @SuppressWarnings("OptionalGetWithoutIsPresent")
-                var old_formatter = opt_data.get().getFormatterPattern().get();
-                
-                opt_data.get().setFormatter(null);
-                
-                saveAsync();
-                
-                return String.format("""
-                        Reset formatter to default from `%s`
-                        Preview: %s
-                        """, old_formatter, previewTime(interaction));
-            }
+            });
         }
         
         @Command(name = "setlocale", description = "set the Locale to use when calling /time")
-        @ReturnsResponse(ephemeral = true)
-        String setlocale(
+        void setlocale(
                 @Interaction CommandInteractionPayload interaction,
                 
                 @Autocompletes(autocompleter = "getLocales")
                 @StringLengthBounds(min = 1)
                 @Option(name = "language_tag", description = "the pattern to set to, if not present resets it to default") Optional<String> opt_language_tag
         ) {
-            logger.trace("/setlocale command; user: {}", interaction.getUser());
-            
-            if (opt_language_tag.isPresent()) {
-                
-                var language_tag = opt_language_tag.get();
-                var locale = Locale.forLanguageTag(language_tag);
-                
-                if (LocaleUtils.isLanguageUndetermined(locale))
-                    return String.format("Error: Unrecognised language tag `%s`", language_tag);
-                
-                bot_data.obtainChatData(interaction)
-                        .obtainUserData(interaction.getUser())
-                        .setLocale(locale);
+            execute("setlocale", interaction, () -> {
+                logger.trace("/setlocale command; user: {}", interaction.getUser());
                 
-                saveAsync();
-                
-                return String.format("""
-                        Set locale to `%s`
-                        Preview: %s
-                        """, locale, previewTime(interaction));
-            } else {
-                var opt_data = bot_data.getChatData(interaction)
-                        .flatMap((e) -> e.getUserData(interaction.getUser()));
-                
-                if (opt_data.flatMap(UserData::getLocale).isEmpty())
-                    return "Error: No operation performed";
-                
-                @SuppressWarnings("OptionalGetWithoutIsPresent")
-                var old_locale = opt_data.get().getLocale().get();
-                
-                opt_data.get().setLocale(null);
-                
-                saveAsync();
-                
-                return String.format("""
-                        Reset locale to default from `%s`
-                        Preview: %s
-                        """, old_locale, previewTime(interaction));
-            }
+                if (opt_language_tag.isPresent()) {
+                    
+                    var language_tag = opt_language_tag.get();
+                    var locale = Locale.forLanguageTag(language_tag);
+                    
+                    if (LocaleUtils.isLanguageUndetermined(locale))
+                        return String.format("Error: Unrecognised language tag `%s`", language_tag);
+                    
+                    bot_data.obtainChatData(interaction)
+                            .obtainUserData(interaction.getUser())
+                            .setLocale(locale);
+                    
+                    saveAsync();
+                    
+                    return String.format("""
+                            Set locale to `%s`
+                            Preview: %s
+                            """, locale, previewTime(interaction));
+                } else {
+                    var opt_data = bot_data.getChatData(interaction)
+                            .flatMap((e) -> e.getUserData(interaction.getUser()));
+                    
+                    if (opt_data.flatMap(UserData::getLocale).isEmpty())
+                        return "Error: No operation performed";
+                    
+                    @SuppressWarnings("OptionalGetWithoutIsPresent")
+                    var old_locale = opt_data.get().getLocale().get();
+                    
+                    opt_data.get().setLocale(null);
+                    
+                    saveAsync();
+                    
+                    return String.format("""
+                            Reset locale to default from `%s`
+                            Preview: %s
+                            """, old_locale, previewTime(interaction));
+                }
+            });
         }
         
-        @SearchSuggestions(at = MatchStart.ANYWHERE, ignorePunctuation = true)
         @Autocompleter
         List<AutocompleteSuggestion<String>> getLocales(String input) {
             logger.trace("autocompleting locale for input '{}'", input);
-            var list = new ArrayList<AutocompleteSuggestion<String>>();
-            
-            if (!input.isBlank()) {
-                if (!LocaleUtils.isLanguageUndetermined(Locale.forLanguageTag(input))) {
-                    list.add(AutocompleteSuggestion.of(
-                            String.format("valid locale: %s", input),
-                            input
-                    ));
-                } else {
-                    list.add(AutocompleteSuggestion.of(
-                            String.format("unrecognised locale: %s", input),
-                            input
-                    ));
-                }
-            }
-            
+            var index = LocaleIndex.get();
             
-            list.addAll(Locale.availableLocales()
-                    .filter((e) -> !LocaleUtils.isLanguageUndetermined(e))
-                    .map((e) -> AutocompleteSuggestion.of(
-                            String.format("%s (%s)", e, e.toLanguageTag()),
-                            e.toLanguageTag()
-                    ))
-                    .toList());
+            if (input.isBlank() || index.hasExactMatch(input))
+                return index.search(input);
             
+            // keep the raw input pickable, any well formed language tag is accepted
+            var list = new ArrayList<AutocompleteSuggestion<String>>(SuggestionIndex.MAX_SUGGESTIONS);
+            list.add(AutocompleteSuggestion.of(String.format("custom locale: %s", input), input));
+            list.addAll(index.search(input, SuggestionIndex.MAX_SUGGESTIONS - 1));
             return list;
         }
         
         private String previewTime(CommandInteractionPayload interaction) {
             var now = Instant.now();
             
-            var data = bot_data.getChatData(interaction)
-                    .flatMap((e) -> e.getUserData(interaction.getUser()));
+            var preferences = UserPreferences.of(bot_data.getChatData(interaction)
+                    .flatMap((e) -> e.getUserData(interaction.getUser())));
             
-            var timezone = data.flatMap(UserData::getTimezone).orElse(ZoneOffset.UTC);
+            var locale = preferences.locale(interaction.getUserLocale().toLocale());
             
-            var timezone_visible = data.flatMap(UserData::isTimezoneVisible).orElse(true);
-            
-            var locale = data.flatMap(UserData::getLocale)
-                    .orElse(interaction.getUserLocale().toLocale());
-            
-            var formatter = data.flatMap(UserData::getFormatter)
-                    .orElse(DEFAULT_FORMATTER)
-                    .withLocale(locale);
-            
-            TemporalAccessor time;
-            if (timezone_visible) {
-                time = now.atZone(timezone);
-            } else {
-                time = now.atZone(timezone).toLocalDateTime();
-            }
-
-            return formatter.format(time);
+            return TimeRenderer.render(now, preferences.timezone().orElse(ZoneOffset.UTC), preferences.timezone_visible(),
+                    preferences.formatter(DEFAULT_FORMATTER, locale));
         }
 
     }
@@ -867,186 +986,189 @@ public class Bot {
                 return !Optional.of(interaction)
                         .filter((e) -> e.getIntegrationOwners().getAuthorizingGuildId() == null)
                         .map(SlashCommandInteraction::getGuild)
-                        .map((e) -> e.retrieveMember(interaction.getUser()))
-                        .map(RestAction::complete)
-                        .map(Member::getPermissions)
-                        .map((e) -> e.contains(Permission.MESSAGE_MANAGE))
+                        .map((e) -> permissionsOf(interaction, e).contains(Permission.MESSAGE_MANAGE))
                         .orElse(true);
             }
 
             @CommandGroup(name = "forcemessageflag")
             class ForceMessageFlag {
                 @Command(name = "set", description = "Force /time responses to use a specific message flag")
-                @ReturnsResponse(ephemeral = true)
-                String set(
+                void set(
                         @Interaction CommandInteractionPayload interaction,
                         @Option(name = "flag", description = "the flag to set, if empty removes the forced message flag") Optional<ResponderFlags> opt_flag
                 ) {
-                    if (insufficientPermission(interaction))
-                        return "Error: insufficient permissions (Manage Messages required)";
+                    execute("moderation forcemessageflag set", interaction, () -> {
+                        if (insufficientPermission(interaction))
+                            return "Error: insufficient permissions (Manage Messages required)";
 
-                    var server = Objects.requireNonNull(interaction.getGuild());
+                        var server = Objects.requireNonNull(interaction.getGuild());
 
-                    logger.trace("/moderation forcemessageflag set command; user: {}, server: {}, flag: {}", interaction.getUser(), server, opt_flag);
+                        logger.trace("/moderation forcemessageflag set command; user: {}, server: {}, flag: {}", interaction.getUser(), server, opt_flag);
 
-                    var data = bot_data.obtainServerData(server);
+                        var data = bot_data.obtainServerData(server);
 
-                    data.forceMessageFlag(opt_flag.orElse(null));
+                        data.forceMessageFlag(opt_flag.orElse(null));
 
-                    saveAsync();
+                        saveAsync();
 
-                    return opt_flag.map(responderFlags ->
-                                    String.format("Set server to force %s messages", responderFlags.name()))
-                            .orElse("Set server to not force any message flags");
+                        return opt_flag.map(responderFlags ->
+                                        String.format("Set server to force %s messages", responderFlags.name()))
+                                .orElse("Set server to not force any message flags");
+                    });
                 }
 
                 @Command(name = "get", description = "get forced message flag for /time responses")
-                @ReturnsResponse(ephemeral = true)
-                String get(@Interaction CommandInteractionPayload interaction) {
-                    if (insufficientPermission(interaction))
-                        return "Error: insufficient permissions (Manage Messages required)";
-
-                    var server = Objects.requireNonNull(interaction.getGuild());
-                    logger.trace("/moderation forcemessageflag get command; user: {}, server: {}", interaction.getUser(), server);
-
-                    return bot_data.getServerData(server)
-                            .flatMap(ServerData::getForcedMessageFlag)
-                            .map((e) ->
-                                    String.format("Server currently forces %s messages", e))
-                            .orElse("Server currently doesn't force any message flags");
+                void get(@Interaction CommandInteractionPayload interaction) {
+                    execute("moderation forcemessageflag get", interaction, () -> {
+                        if (insufficientPermission(interaction))
+                            return "Error: insufficient permissions (Manage Messages required)";
+
+                        var server = Objects.requireNonNull(interaction.getGuild());
+                        logger.trace("/moderation forcemessageflag get command; user: {}, server: {}", interaction.getUser(), server);
+
+                        return bot_data.getServerData(server)
+                                .flatMap(ServerData::getForcedMessageFlag)
+                                .map((e) ->
+                                        String.format("Server currently forces %s messages", e))
+                                .orElse("Server currently doesn't force any message flags");
+                    });
                 }
             }
 
             @CommandGroup(name = "birthdaychannel")
             class BirthdayChannel {
                 @Command(name = "add", description = "add allowed birthday channel")
-                @ReturnsResponse(ephemeral = true)
-                String add(
+                void add(
                         @Interaction CommandInteractionPayload interaction,
                         @Option(name = "channel", description = "the channel to allow") GuildMessageChannel channel
                 ) {
-                    if (interaction.getIntegrationOwners().getAuthorizingGuildId() == null)
-                        return "Error: bot must be added to server first";
-                    if (insufficientPermission(interaction))
-                        return "Error: insufficient permissions (Manage Messages required)";
+                    execute("moderation birthdaychannel add", interaction, () -> {
+                        if (interaction.getIntegrationOwners().getAuthorizingGuildId() == null)
+                            return "Error: bot must be added to server first";
+                        if (insufficientPermission(interaction))
+                            return "Error: insufficient permissions (Manage Messages required)";
 
-                    var server = Objects.requireNonNull(interaction.getGuild());
-                    logger.trace("/moderation birthdaychannel add command; user: {}, server: {}, channel: {}", interaction.getUser(), server, channel);
+                        var server = Objects.requireNonNull(interaction.getGuild());
+                        logger.trace("/moderation birthdaychannel add command; user: {}, server: {}, channel: {}", interaction.getUser(), server, channel);
 
-                    if (!(channel instanceof GuildMessageChannel text_channel))
-                        return "Error: Not a textable channel";
+                        if (!(channel instanceof GuildMessageChannel text_channel))
+                            return "Error: Not a textable channel";
 
-                    if (bot_data.getServerData(server)
-                            .map(ServerData::getAllowedBirthdayChannels)
-                            .map((e) -> e.contains(text_channel))
-                            .orElse(false))
-                        return String.format("Error: %s already an allowed birthday channel", text_channel.getAsMention());
+                        if (bot_data.getServerData(server)
+                                .map(ServerData::getAllowedBirthdayChannels)
+                                .map((e) -> e.contains(text_channel))
+                                .orElse(false))
+                            return String.format("Error: %s already an allowed birthday channel", text_channel.getAsMention());
 
-                    var data = bot_data.obtainServerData(server);
+                        var data = bot_data.obtainServerData(server);
 
-                    data.addAllowedBirthdayChannel(text_channel);
+                        data.addAllowedBirthdayChannel(text_channel);
 
-                    saveAsync();
+                        saveAsync();
 
-                    return String.format("Added %s to allowed birthday notification channels", text_channel.getAsMention());
+                        return String.format("Added %s to allowed birthday notification channels", text_channel.getAsMention());
+                    });
                 }
 
                 @Command(name = "remove", description = "remove allowed birthday channel")
-                @ReturnsResponse(ephemeral = true)
-                String remove(
+                void remove(
                         @Interaction CommandInteractionPayload interaction,
                         @Option(name = "target_channel", description = "the channel to disallow") GuildMessageChannel target_channel,
                         @Option(name = "fallback_channel", description = "the channel to set birthdays targeting target_channel to change to") GuildMessageChannel fallback_channel
                 ) {
-                    if (interaction.getIntegrationOwners().getAuthorizingGuildId() == null)
-                        return "Error: bot must be added to server first";
-                    if (insufficientPermission(interaction))
-                        return "Error: insufficient permissions (Manage Messages required)";
+                    execute("moderation birthdaychannel remove", interaction, () -> {
+                        if (interaction.getIntegrationOwners().getAuthorizingGuildId() == null)
+                            return "Error: bot must be added to server first";
+                        if (insufficientPermission(interaction))
+                            return "Error: insufficient permissions (Manage Messages required)";
 
-                    var server = Objects.requireNonNull(interaction.getGuild());
-                    logger.trace("/moderation birthdaychannel remove command; user: {}, server: {}, target_channel: {}, fallback_channel: {}", interaction.getUser(), server, target_channel, fallback_channel);
+                        var server = Objects.requireNonNull(interaction.getGuild());
+                        logger.trace("/moderation birthdaychannel remove command; user: {}, server: {}, target_channel: {}, fallback_channel: {}", interaction.getUser(), server, target_channel, fallback_channel);
 
-                    if (!(target_channel instanceof GuildMessageChannel target_text_channel))
-                        return String.format("Error: <#%s> not a textable channel", target_channel.getId());
+                        if (!(target_channel instanceof GuildMessageChannel target_text_channel))
+                            return String.format("Error: <#%s> not a textable channel", target_channel.getId());
 
-                    if (!(fallback_channel instanceof GuildMessageChannel fallback_text_channel))
-                        return String.format("Error: <#%s> not a textable channel", fallback_channel.getId());
+                        if (!(fallback_channel instanceof GuildMessageChannel fallback_text_channel))
+                            return String.format("Error: <#%s> not a textable channel", fallback_channel.getId());
 
-                    var data = bot_data.getServerData(server);
+                        var data = bot_data.getServerData(server);
 
-                    if (!data.map(ServerData::getAllowedBirthdayChannels)
-                            .map((e) -> e.contains(target_text_channel))
-                            .orElse(false))
-                        return String.format("Error: %s isn't an allowed birthday channel", target_text_channel.getAsMention());
+                        if (!data.map(ServerData::getAllowedBirthdayChannels)
+                                .map((e) -> e.contains(target_text_channel))
+                                .orElse(false))
+                            return String.format("Error: %s isn't an allowed birthday channel", target_text_channel.getAsMention());
 
-                    if (!data.map(ServerData::getAllowedBirthdayChannels)
-                            .map((e) -> e.contains(fallback_text_channel))
-                            .orElse(false))
-                        return String.format("Error: %s isn't an allowed birthday channel", fallback_text_channel.getAsMention());
+                        if (!data.map(ServerData::getAllowedBirthdayChannels)
+                                .map((e) -> e.contains(fallback_text_channel))
+                                .orElse(false))
+                            return String.format("Error: %s isn't an allowed birthday channel", fallback_text_channel.getAsMention());
 
-                    data.get().removeAllowedBirthdayChannel(target_text_channel);
+                        data.get().removeAllowedBirthdayChannel(target_text_channel);
 
-                    data.map(ServerData::getUsers)
-                            .stream()
-                            .flatMap(Set::stream)
-                            .map(UserData::getBirthdayData)
-                            .flatMap(Optional::stream)
-                            .filter((e) -> e.getChannel().equals(target_text_channel))
-                            .forEach((e) -> e.setChannel(fallback_text_channel));
+                        data.map(ServerData::getUsers)
+                                .stream()
+                                .flatMap(Collection::stream)
+                                .map(UserData::getBirthdayData)
+                                .flatMap(Optional::stream)
+                                .filter((e) -> e.getChannel().equals(target_text_channel))
+                                .forEach((e) -> e.setChannel(fallback_text_channel));
 
-                    saveAsync();
+                        saveAsync();
 
-                    return String.format("Removed %s from allowed birthday channels", target_text_channel.getAsMention());
+                        return String.format("Removed %s from allowed birthday channels", target_text_channel.getAsMention());
+                    });
                 }
             }
 
             @CommandGroup(name = "custommessage")
             class CustomMessage {
                 @Command(name = "enable", description = "enable custom messages in this server for all users")
-                @ReturnsResponse(ephemeral = true)
-                String enable(@Interaction CommandInteractionPayload interaction) {
-                    if (insufficientPermission(interaction))
-                        return "Error: insufficient permissions (Manage Messages required)";
+                void enable(@Interaction CommandInteractionPayload interaction) {
+                    execute("moderation custommessage enable", interaction, () -> {
+                        if (insufficientPermission(interaction))
+                            return "Error: insufficient permissions (Manage Messages required)";
 
-                    var server = Objects.requireNonNull(interaction.getGuild());
-                    logger.trace("/moderation custommessage enable command; user: {}, server: {}", interaction.getUser(), server);
+                        var server = Objects.requireNonNull(interaction.getGuild());
+                        logger.trace("/moderation custommessage enable command; user: {}, server: {}", interaction.getUser(), server);
 
-                    var state = bot_data.getServerData(server)
-                            .flatMap(ServerData::allowsCustomMessages)
-                            .orElse(false);
+                        var state = bot_data.getServerData(server)
+                                .flatMap(ServerData::allowsCustomMessages)
+                                .orElse(false);
 
-                    if (state)
-                        return "Error: Server already allows custom messages";
+                        if (state)
+                            return "Error: Server already allows custom messages";
 
-                    bot_data.obtainServerData(server)
-                            .setAllowsCustomMessages(true);
+                        bot_data.obtainServerData(server)
+                                .setAllowsCustomMessages(true);
 
-                    saveAsync();
+                        saveAsync();
 
-                    return "Set server to allow custom messages for all users";
+                        return "Set server to allow custom messages for all users";
+                    });
                 }
                 @Command(name = "disable", description = "disable custom messages in this server for all users")
-                @ReturnsResponse(ephemeral = true)
-                String disable(@Interaction CommandInteractionPayload interaction) {
-                    if (insufficientPermission(interaction))
-                        return "Error: insufficient permissions (Manage Messages required)";
+                void disable(@Interaction CommandInteractionPayload interaction) {
+                    execute("moderation custommessage disable", interaction, () -> {
+                        if (insufficientPermission(interaction))
+                            return "Error: insufficient permissions (Manage Messages required)";
 
-                    var server = Objects.requireNonNull(interaction.getGuild());
-                    logger.trace("/moderation custommessage disable command; user: {}, server: {}", interaction.getUser(), server);
+                        var server = Objects.requireNonNull(interaction.getGuild());
+                        logger.trace("/moderation custommessage disable command; user: {}, server: {}", interaction.getUser(), server);
 
-                    var state = bot_data.getServerData(server)
-                            .flatMap(ServerData::allowsCustomMessages)
-                            .orElse(false);
+                        var state = bot_data.getServerData(server)
+                                .flatMap(ServerData::allowsCustomMessages)
+                                .orElse(false);
 
-                    if (!state)
-                        return "Error: Server already disallows custom messages";
+                        if (!state)
+                            return "Error: Server already disallows custom messages";
 
-                    bot_data.obtainServerData(server)
-                            .setAllowsCustomMessages(false);
+                        bot_data.obtainServerData(server)
+                                .setAllowsCustomMessages(false);
 
-                    saveAsync();
+                        saveAsync();
 
-                    return "Set server to disallow custom messages for all users";
+                        return "Set server to disallow custom messages for all users";
+                    });
                 }
             }
         }
@@ -1062,8 +1184,7 @@ public class Bot {
         class Birthday {
 
             @Command(name = "set", description = "set your birthday to send a message for")
-            @ReturnsResponse(ephemeral = true)
-            String set(
+            void set(
                     @Interaction CommandInteractionPayload interaction,
 
                     @Option(name = "channel", description = "channel to send message to") GuildMessageChannel channel,
@@ -1077,146 +1198,281 @@ public class Bot {
                     @LongBounds(min = 0)
                     @Option(name = "year", description = "birth year (to track age, optional)") Optional<Long> long_year
             ) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                logger.trace("/birthday set command; user: {}, server: {}", interaction.getUser(), server);
+                execute("birthday set", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    logger.trace("/birthday set command; user: {}, server: {}", interaction.getUser(), server);
 
-                if (!(channel instanceof GuildMessageChannel text_channel))
-                    return String.format("Error: <#%s> not a textable channel", channel.getId());
+                    if (!(channel instanceof GuildMessageChannel text_channel))
+                        return String.format("Error: <#%s> not a textable channel", channel.getId());
+
+                    var allowed_channels = bot_data.getServerData(server)
+                            .map(ServerData::getAllowedBirthdayChannels);
+
+                    if (!allowed_channels.map((e) -> e.contains(channel)).orElse(false)) {
+                        if (allowed_channels.map(Set::isEmpty).orElse(true))
+                            return """
+                                    Error: This server doesn't allow any birthday notifications
+                                    if you're a moderator you can add one with `/moderation birthdaychannel add`
+                                    """;
+                        else
+                            return String.format("""
+                                    Error: %s is not in the allowed birthday notification channels
+                                    allowed channels: %s
+                                    """,
+                                    text_channel.getAsMention(),
+                                    allowed_channels.map((set) ->
+                                            set.stream()
+                                                    .map((e) -> "\n" + e.getAsMention())
+                                                    .reduce("", (a, b) -> a + b)
+                                    ).orElse("")
+                            );
+                    }
 
-                var allowed_channels = bot_data.getServerData(server)
-                        .map(ServerData::getAllowedBirthdayChannels);
 
-                if (!allowed_channels.map((e) -> e.contains(channel)).orElse(false)) {
-                    if (allowed_channels.map(Set::isEmpty).orElse(true))
-                        return """
-                                Error: This server doesn't allow any birthday notifications
-                                if you're a moderator you can add one with `/moderation birthdaychannel add`
-                                """;
-                    else
-                        return String.format("""
-                                Error: %s is not in the allowed birthday notification channels
-                                allowed channels: %s
-                                """,
-                                text_channel.getAsMention(),
-                                allowed_channels.map((set) ->
-                                        set.stream()
-                                                .map((e) -> "\n" + e.getAsMention())
-                                                .reduce("", (a, b) -> a + b)
-                                ).orElse("")
-                        );
-                }
+                    var timezone = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(interaction.getUser()))
+                            .flatMap(UserData::getTimezone)
+                            .orElse(ZoneOffset.UTC);
+                    int year = long_year.orElse(-1L).intValue(), month = ((int) long_month), day = ((int) long_day);
+
+                    try {
+                        var birthday = ZonedDateTime.of(year, month, day,
+                                0, 0, 0, 0, timezone);
 
+                        // we hate people born on this stupid date
+                        //noinspection MagicNumber
+                        if (birthday.getMonthValue() == 2 && birthday.getDayOfMonth() == 29)
+                            throw new DateTimeException("Febrary 29th not allowed");
 
-                var timezone = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(interaction.getUser()))
-                        .flatMap(UserData::getTimezone)
-                        .orElse(ZoneOffset.UTC);
-                int year = long_year.orElse(-1L).intValue(), month = ((int) long_month), day = ((int) long_day);
+                        var data = bot_data.obtainServerData(server)
+                                .obtainUserData(interaction.getUser());
 
-                try {
-                    var birthday = ZonedDateTime.of(year, month, day,
-                            0, 0, 0, 0, timezone);
+                        var birthday_data = new BirthdayData(birthday, text_channel);
 
-                    // we hate people born on this stupid date
-                    //noinspection MagicNumber
-                    if (birthday.getMonthValue() == 2 && birthday.getDayOfMonth() == 29)
-                        throw new DateTimeException("Febrary 29th not allowed");
+                        data.setBirthdayData(birthday_data);
 
-                    var data = bot_data.obtainServerData(server)
-                            .obtainUserData(interaction.getUser());
+                        DateTimeFormatter formatter;
+                        if (long_year.isPresent()) {
+                            formatter = DEFAULT_FORMATTER;
+                        } else {
+                            formatter = DEFAULT_FORMATTER_NO_YEAR;
+                        }
 
-                    var birthday_data = new BirthdayData(birthday, text_channel);
+                        var locale = data.getLocale().orElse(interaction.getUserLocale().toLocale());
 
-                    data.setBirthdayData(birthday_data);
+                        formatter = FormatterCache.shared().withLocale(formatter, locale);
 
-                    DateTimeFormatter formatter;
-                    if (long_year.isPresent()) {
-                        formatter = DEFAULT_FORMATTER;
-                    } else {
-                        formatter = DEFAULT_FORMATTER_NO_YEAR;
+                        saveAsync();
+
+                        return String.format("Set birthday notification to %s", formatter.format(birthday));
+                    } catch (DateTimeException e) {
+                        return String.format("Error: Invalid date: %s", e.getMessage());
                     }
+                });
+            }
 
-                    var locale = data.getLocale().orElse(interaction.getUserLocale().toLocale());
+            @Command(name = "remove", description = "remove birthday notification")
+            void remove(@Interaction CommandInteractionPayload interaction) {
+                execute("birthday remove", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    var user = interaction.getUser();
+                    logger.trace("/birthday remove command; user: {}, server: {}", user, server);
 
-                    formatter = formatter.withLocale(locale);
+                    var data = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(user));
 
-                    refreshBirthdayTimersAsync();
+                    if (data.flatMap(UserData::getBirthdayData).isEmpty())
+                        return "Error: You don't have any birthday data";
+
+                    data.get().setBirthdayData(null);
 
                     saveAsync();
 
-                    return String.format("Set birthday notification to %s", formatter.format(birthday));
-                } catch (DateTimeException e) {
-                    return String.format("Error: Invalid date: %s", e.getMessage());
-                }
+                    return "Removed birthday data";
+                });
             }
 
-            @Command(name = "remove", description = "remove birthday notification")
-            @ReturnsResponse(ephemeral = true)
-            String remove(@Interaction CommandInteractionPayload interaction) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                var user = interaction.getUser();
-                logger.trace("/birthday remove command; user: {}, server: {}", user, server);
+            @Command(name = "upcoming", description = "list the birthdays coming up in this server")
+            void upcoming(
+                    @Interaction CommandInteractionPayload interaction,
 
-                var data = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(user));
+                    @LongBounds(min = 1, max = 366)
+                    @Option(name = "days", description = "how many days ahead to look (default: 7)") Optional<Long> opt_days
+            ) {
+                execute("birthday upcoming", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    logger.trace("/birthday upcoming command; user: {}, server: {}", interaction.getUser(), server);
 
-                if (data.flatMap(UserData::getBirthdayData).isEmpty())
-                    return "Error: You don't have any birthday data";
+                    var days = opt_days.orElse(7L);
+                    var now = Instant.now();
 
-                data.get().setBirthdayData(null);
+                    var opt_server_data = bot_data.getServerData(server);
+                    var upcoming = opt_server_data
+                            .map((e) -> e.getUpcomingBirthdays(now, now.plus(days, ChronoUnit.DAYS)))
+                            .orElse(List.of());
 
-                refreshBirthdayTimersAsync();
+                    if (upcoming.isEmpty())
+                        return String.format("No birthdays in the next %s days", days);
 
-                saveAsync();
+                    var requester = UserPreferences.of(opt_server_data.flatMap((e) -> e.getUserData(interaction.getUser())));
+                    var timezone = requester.timezone().orElse(ZoneOffset.UTC);
+                    var locale = requester.locale(interaction.getUserLocale().toLocale());
+                    var formatter = FormatterCache.shared().withLocale(DEFAULT_FORMATTER_NO_YEAR, locale);
 
-                return "Removed birthday data";
-            }
+                    var sb = new StringBuilder(String.format("Birthdays in the next %s days:", days));
+
+                    for (int i = 0; i < upcoming.size(); i++) {
+                        var next = upcoming.get(i).next();
+                        var line = String.format("\n%s <@%s> in %s", formatter.format(next.atZone(timezone)),
+                                upcoming.get(i).user().getUserId(), formatDuration(Duration.between(now, next)));
 
+                        if (sb.length() + line.length() > Message.MAX_CONTENT_LENGTH - 32) {
+                            sb.append(String.format("\n...and %s more", upcoming.size() - i));
+                            break;
+                        }
+                        sb.append(line);
+                    }
+
+                    return sb.toString();
+                });
+            }
         }
 
-        @CommandGroup(name = "timer")
-        class Timer {
-            @Command(name = "list", description = "list your current active timers")
-            @ReturnsResponse(ephemeral = true)
-            String list(@Interaction CommandInteractionPayload interaction) {
+        @Command(name = "times", description = "get the current time of everyone in this server with a timezone set")
+        void times(
+                @Interaction CommandInteractionPayload interaction,
+
+                @LongBounds(min = 0, max = 23)
+                @Option(name = "from_hour", description = "only people whose local hour is at least this, like 9 for working hours")
+                Optional<Long> opt_from_hour,
+
+                @LongBounds(min = 0, max = 23)
+                @Option(name = "to_hour", description = "only people whose local hour is before this, like 17 for working hours")
+                Optional<Long> opt_to_hour
+        ) {
+            execute("times", interaction, () -> {
                 var server = Objects.requireNonNull(interaction.getGuild());
-                var user = interaction.getUser();
-                logger.trace("/timer list command; user: {}, server: {}", user, server);
+                logger.trace("/times command; user: {}, server: {}", interaction.getUser(), server);
 
-                var timers = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(user))
-                        .map(UserData::getTimers)
-                        .orElse(List.of());
+                if (opt_from_hour.isPresent() != opt_to_hour.isPresent())
+                    return "Error: from_hour and to_hour have to be given together";
 
-                if (timers.isEmpty()) {
-                    return "You have no active timers";
-                }
+                var from_hour = opt_from_hour.orElse(0L).intValue();
+                var to_hour = opt_to_hour.orElse(0L).intValue();
+                var filtered = opt_from_hour.isPresent();
+
+                if (filtered && from_hour == to_hour)
+                    return "Error: from_hour and to_hour can't be the same";
 
                 var now = Instant.now();
 
-                var sb = new StringBuilder();
-
-                sb.append("List of current timers:");
-
-                for (int i = 0; i < timers.size(); i++) {
-                    var e = timers.get(i);
-                    sb.append('\n')
-                            .append(i)
-                            .append(": for ")
-                            .append(formatDuration(e.getDuration()))
-                            .append(" with ")
-                            .append(formatDuration(Duration.between(now, e.getTargetTime())))
-                            .append(" left in channel <#")
-                            .append(e.getChannel().getId())
-                            .append('>');
+                var opt_server_data = bot_data.getServerData(server);
+                var by_timezone = opt_server_data
+                        .map(ServerData::getUsersByTimezone)
+                        .orElse(Map.of());
+
+                var requester = UserPreferences.of(opt_server_data.flatMap((e) -> e.getUserData(interaction.getUser())));
+                var locale = requester.locale(interaction.getUserLocale().toLocale());
+                var formatter = requester.formatter(DEFAULT_FORMATTER, locale);
+
+                // one line per time as it's shown, so zones that look the same share one; the renderer formats
+                // each zone once however many people are in it
+                record Line(int offset_seconds, List<String> mentions) {}
+                var lines = new HashMap<String, Line>();
+                var renderer = new TimeRenderer(now);
+
+                for (var e : by_timezone.entrySet()) {
+                    var time = now.atZone(e.getKey());
+
+                    var hour = time.getHour();
+                    if (filtered && ((from_hour < to_hour)
+                            ? (hour < from_hour || hour >= to_hour)
+                            : (hour < from_hour && hour >= to_hour)))
+                        continue;
+
+                    for (var user : e.getValue()) {
+                        var shown = renderer.render(e.getKey(), user.isTimezoneVisible().orElse(true), formatter);
+
+                        lines.computeIfAbsent(shown, (k) -> new Line(time.getOffset().getTotalSeconds(), new ArrayList<>()))
+                                .mentions()
+                                .add("<@" + user.getUserId() + ">");
+                    }
+                }
+
+                if (lines.isEmpty())
+                    return filtered
+                            ? String.format("Nobody in this server is between %02d:00 and %02d:00", from_hour, to_hour)
+                            : "Nobody in this server has a timezone set";
+
+                var sorted = lines.entrySet()
+                        .stream()
+                        .sorted(Comparator.comparingInt((Map.Entry<String, Line> e) -> e.getValue().offset_seconds())
+                                .thenComparing(Map.Entry::getKey))
+                        .toList();
+
+                var sb = new StringBuilder("Current times in this server:");
+                for (int i = 0; i < sorted.size(); i++) {
+                    var e = sorted.get(i);
+                    var line = String.format("\n**%s**: %s", e.getKey(), String.join(", ", e.getValue().mentions()));
+
+                    if (sb.length() + line.length() > Message.MAX_CONTENT_LENGTH - 32) {
+                        var rest = sorted.subList(i, sorted.size())
+                                .stream()
+                                .mapToInt((r) -> r.getValue().mentions().size())
+                                .sum();
+                        sb.append(String.format("\n...and %s more", rest));
+                        break;
+                    }
+                    sb.append(line);
                 }
 
                 return sb.toString();
+            });
+        }
+
+        @CommandGroup(name = "timer")
+        class Timer {
+            @Command(name = "list", description = "list your current active timers")
+            void list(@Interaction CommandInteractionPayload interaction) {
+                execute("timer list", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    var user = interaction.getUser();
+                    logger.trace("/timer list command; user: {}, server: {}", user, server);
+
+                    var timers = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(user))
+                            .map(UserData::getTimers)
+                            .orElse(List.of());
+
+                    if (timers.isEmpty()) {
+                        return "You have no active timers";
+                    }
+
+                    var now = Instant.now();
+
+                    var sb = new StringBuilder();
+
+                    sb.append("List of current timers:");
+
+                    for (int i = 0; i < timers.size(); i++) {
+                        var e = timers.get(i);
+                        sb.append('\n')
+                                .append(i)
+                                .append(": for ");
+                        DurationRenderer.ENGLISH.render(e.getDuration(), sb)
+                                .append(" with ");
+                        DurationRenderer.ENGLISH.render(Duration.between(now, e.getTargetTime()), sb)
+                                .append(" left in channel <#")
+                                .append(e.getChannel().getId())
+                                .append('>');
+                    }
+
+                    return sb.toString();
+                });
             }
 
             @Command(name = "new", description = "add a new timer")
-            @ReturnsResponse(ephemeral = true)
-            String $new(
+            void $new(
                     @Interaction CommandInteractionPayload interaction,
                     @Option(name = "days") Optional<Long> opt_days,
                     @Option(name = "hours") Optional<Long> opt_hours,
@@ -1224,78 +1480,77 @@ public class Bot {
                     @Option(name = "seconds") Optional<Long> opt_seconds,
                     @Option(name = "message", description = "custom message to send when time is up (optional)") Optional<String> opt_message
             ) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                logger.trace("/timer new command; user: {}, server: {}", interaction.getUser(), server);
-
-                if (!canCustomMessages(interaction.getUser(), server)) {
-                    return """
-                            You can't use custom messages in this server!
-                            Moderators may enable all users to set custom messages with `/moderation custommessage enable`
-                            """;
-                }
+                execute("timer new", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    logger.trace("/timer new command; user: {}, server: {}", interaction.getUser(), server);
 
-                long
-                        days = opt_days.orElse(0L),
-                        hours = opt_hours.orElse(0L),
-                        minutes = opt_minutes.orElse(0L),
-                        seconds = opt_seconds.orElse(0L);
+                    if (!canCustomMessages(interaction, server)) {
+                        return """
+                                You can't use custom messages in this server!
+                                Moderators may enable all users to set custom messages with `/moderation custommessage enable`
+                                """;
+                    }
 
-                var duration = Duration.ofDays(days)
-                        .plusHours(hours)
-                        .plusMinutes(minutes)
-                        .plusSeconds(seconds);
+                    long
+                            days = opt_days.orElse(0L),
+                            hours = opt_hours.orElse(0L),
+                            minutes = opt_minutes.orElse(0L),
+                            seconds = opt_seconds.orElse(0L);
 
+                    var duration = Duration.ofDays(days)
+                            .plusHours(hours)
+                            .plusMinutes(minutes)
+                            .plusSeconds(seconds);
 
-                if (duration.isNegative())
-                    return "Error: Time specified is negative";
 
+                    if (duration.isNegative())
+                        return "Error: Time specified is negative";
 
-                var user = bot_data.obtainServerData(server)
-                        .obtainUserData(interaction.getUser());
 
-                var timer = new TimerData(
-                        user,
-                        duration,
-                        Objects.requireNonNull(((MessageChannel) interaction.getChannel())),
-                        opt_message.orElse(String.format("Timer for %s ended %s",
-                                formatDuration(duration), interaction.getUser().getAsMention()))
-                );
+                    var user = bot_data.obtainServerData(server)
+                            .obtainUserData(interaction.getUser());
 
-                user.addTimer(timer);
+                    var timer = new TimerData(
+                            user,
+                            duration,
+                            Objects.requireNonNull(((MessageChannel) interaction.getChannel())),
+                            opt_message.orElse(String.format("Timer for %s ended %s",
+                                    formatDuration(duration), interaction.getUser().getAsMention()))
+                    );
 
-                refreshTimersAsync();
+                    user.addTimer(timer);
 
-                saveAsync();
+                    saveAsync();
 
-                return String.format("Added timer for %s", formatDuration(duration));
+                    return String.format("Added timer for %s", formatDuration(duration));
+                });
             }
 
             @Command(name = "cancel", description = "cancel a timer")
-            @ReturnsResponse(ephemeral = true)
-            String cancel(
+            void cancel(
                     @Interaction CommandInteractionPayload interaction,
                     @LongBounds(min = 0) @Option(name = "index", description = "the index of the timer to cancel") Long index
             ) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                logger.trace("/timer cancel command; user: {}, server: {}, index: {}", interaction.getUser(), server, index);
-
-                var opt_user = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(interaction.getUser()));
-                var opt_timer = opt_user.flatMap((e) -> e.getTimer(index.intValue()));
+                execute("timer cancel", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    logger.trace("/timer cancel command; user: {}, server: {}, index: {}", interaction.getUser(), server, index);
 
-                if (opt_timer.isEmpty())
-                    return "Error: Timer with that index does not exist";
+                    var opt_user = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(interaction.getUser()));
+                    var opt_timer = opt_user.flatMap((e) -> e.getTimer(index.intValue()));
 
-                var user = opt_user.get();
-                var timer = opt_timer.get();
+                    if (opt_timer.isEmpty())
+                        return "Error: Timer with that index does not exist";
 
-                user.removeTimer(timer);
+                    var user = opt_user.get();
+                    var timer = opt_timer.get();
 
-                refreshTimersAsync();
+                    user.removeTimer(timer);
 
-                saveAsync();
+                    saveAsync();
 
-                return String.format("Timer for %s cancelled", formatDuration(timer.getDuration()));
+                    return String.format("Timer for %s cancelled", formatDuration(timer.getDuration()));
+                });
             }
         }
 
@@ -1303,49 +1558,53 @@ public class Bot {
         @CommandGroup(name = "alarm")
         class Alarm {
             @Command(name = "list", description = "list your current active alarms")
-            @ReturnsResponse(ephemeral = true)
-            String list(@Interaction CommandInteractionPayload interaction) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                var user = interaction.getUser();
-                logger.trace("/alarm list command; user: {}, server: {}", user, server);
+            void list(@Interaction CommandInteractionPayload interaction) {
+                execute("alarm list", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    var user = interaction.getUser();
+                    logger.trace("/alarm list command; user: {}, server: {}", user, server);
 
-                var alarms = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(user))
-                        .map(UserData::getAlarms)
-                        .orElse(List.of());
+                    var alarms = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(user))
+                            .map(UserData::getAlarms)
+                            .orElse(List.of());
 
-                if (alarms.isEmpty()) {
-                    return "You have no active alarms";
-                }
+                    if (alarms.isEmpty()) {
+                        return "You have no active alarms";
+                    }
 
-                var sb = new StringBuilder();
+                    var sb = new StringBuilder();
 
-                sb.append("List of current alarms:");
+                    sb.append("List of current alarms:");
 
-                for (int i = 0; i < alarms.size(); i++) {
-                    var e = alarms.get(i);
-                    sb.append('\n')
-                            .append(i)
-                            .append(": at ")
-                            .append(e.getTime());
+                    for (int i = 0; i < alarms.size(); i++) {
+                        var e = alarms.get(i);
+                        sb.append('\n')
+                                .append(i)
+                                .append(": at ")
+                                .append(e.getTime());
 
-                    var repeating = e.getRepeatingDays();
+                        var recurrence = e.getRecurrence();
+                        var repeating = e.getRepeatingDays();
 
-                    if (!repeating.isEmpty())
-                        sb.append(" repeating ")
-                                .append(repeating);
+                        if (recurrence.isPresent())
+                            sb.append(" repeating ")
+                                    .append(recurrence.get().describe());
+                        else if (!repeating.isEmpty())
+                            sb.append(" repeating ")
+                                    .append(repeating);
 
-                    sb.append(" in channel <#")
-                            .append(e.getChannel().getId())
-                            .append('>');
-                }
+                        sb.append(" in channel <#")
+                                .append(e.getChannel().getId())
+                                .append('>');
+                    }
 
-                return sb.toString();
+                    return sb.toString();
+                });
             }
 
             @Command(name = "new", description = "make a new alarm")
-            @ReturnsResponse(ephemeral = true)
-            String $new(
+            void $new(
                     @Interaction CommandInteractionPayload interaction,
 
                     @LongBounds(min = 0, max = 23)
@@ -1359,51 +1618,50 @@ public class Bot {
 
                     @Option(name = "message", description = "custom message to send (optional)") Optional<String> opt_message
             ) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                logger.trace("/alarm new command; user: {}, server: {}", interaction.getUser(), server);
-
-                if (!canCustomMessages(interaction.getUser(), server)) {
-                    return """
-                            You can't use custom messages in this server!
-                            Moderators may enable all users to set custom messages with `/moderation custommessage enable`
-                            """;
-                }
+                execute("alarm new", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    logger.trace("/alarm new command; user: {}, server: {}", interaction.getUser(), server);
 
-                var opt_timezone = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(interaction.getUser()))
-                        .flatMap(UserData::getTimezone);
+                    if (!canCustomMessages(interaction, server)) {
+                        return """
+                                You can't use custom messages in this server!
+                                Moderators may enable all users to set custom messages with `/moderation custommessage enable`
+                                """;
+                    }
 
-                if (opt_timezone.isEmpty())
-                    return "Error: You don't have a timezone set! you can set one with `/timezone set`";
+                    var opt_timezone = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(interaction.getUser()))
+                            .flatMap(UserData::getTimezone);
 
-                var user = bot_data.obtainServerData(server)
-                        .obtainUserData(interaction.getUser());
+                    if (opt_timezone.isEmpty())
+                        return "Error: You don't have a timezone set! you can set one with `/timezone set`";
 
-                var time = LocalTime.of(hour.intValue(), minute.intValue(), opt_seconds.map(Long::intValue).orElse(0));
+                    var user = bot_data.obtainServerData(server)
+                            .obtainUserData(interaction.getUser());
 
-                var data = new AlarmData(
-                        user,
-                        time,
-                        Objects.requireNonNull(((MessageChannel) interaction.getChannel())),
-                        opt_message.orElse(String.format("Alarm for %s %s",
-                                time.toString(), interaction.getUser().getAsMention()))
-                );
+                    var time = LocalTime.of(hour.intValue(), minute.intValue(), opt_seconds.map(Long::intValue).orElse(0));
 
-                user.addAlarm(data);
+                    var data = new AlarmData(
+                            user,
+                            time,
+                            Objects.requireNonNull(((MessageChannel) interaction.getChannel())),
+                            opt_message.orElse(String.format("Alarm for %s %s",
+                                    time.toString(), interaction.getUser().getAsMention()))
+                    );
 
-                refreshAlarmsAsync();
+                    user.addAlarm(data);
 
-                saveAsync();
-                //TODO: fix please
-                return String.format("""
-                        Added new alarm for %s
-                        Alarms are nonrepeating by default, you can use `/alarm addrepeat` to add repeating days
-                        """, time);
+                    saveAsync();
+                    //TODO: fix please
+                    return String.format("""
+                            Added new alarm for %s
+                            Alarms are nonrepeating by default, you can use `/alarm addrepeat` to add repeating days
+                            """, time);
+                });
             }
 
             @Command(name = "modify", description = "modify an existing alarm")
-            @ReturnsResponse(ephemeral = true)
-            String modify(
+            void modify(
                     @Interaction CommandInteractionPayload interaction,
 
                     @LongBounds(min = 0)
@@ -1420,109 +1678,209 @@ public class Bot {
 
                     @Option(name = "message") Optional<String> opt_message
             ) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                var user = interaction.getUser();
-                logger.trace("/alarm modify command; user: {}, server: {}", user, server);
-
-                var opt_alarm = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(user))
-                        .flatMap((e) -> e.getAlarm(index.intValue()));
+                execute("alarm modify", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    var user = interaction.getUser();
+                    logger.trace("/alarm modify command; user: {}, server: {}", user, server);
 
-                if (opt_alarm.isEmpty()) {
-                    return "Error: Alarm of that index doesn't exist";
-                }
+                    var opt_alarm = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(user))
+                            .flatMap((e) -> e.getAlarm(index.intValue()));
 
-                var alarm = opt_alarm.get();
+                    if (opt_alarm.isEmpty()) {
+                        return "Error: Alarm of that index doesn't exist";
+                    }
 
-                var time = alarm.getTime();
+                    var alarm = opt_alarm.get();
 
-                if (opt_hour.isPresent())
-                    time = time.withHour(opt_hour.get().intValue());
+                    var time = alarm.getTime();
 
-                if (opt_minute.isPresent())
-                    time = time.withMinute(opt_minute.get().intValue());
+                    if (opt_hour.isPresent())
+                        time = time.withHour(opt_hour.get().intValue());
 
-                if (opt_seconds.isPresent())
-                    time = time.withSecond(opt_seconds.get().intValue());
+                    if (opt_minute.isPresent())
+                        time = time.withMinute(opt_minute.get().intValue());
 
-                alarm.setTime(time);
+                    if (opt_seconds.isPresent())
+                        time = time.withSecond(opt_seconds.get().intValue());
 
-                opt_message.ifPresent(alarm::setMessage);
+                    alarm.setTime(time);
 
-                refreshAlarmsAsync();
+                    opt_message.ifPresent(alarm::setMessage);
 
-                saveAsync();
+                    saveAsync();
 
-                return String.format("Modified alarm %s to be at %s with message '%s'",
-                        index, time, opt_message.orElse(alarm.getMessage()));
+                    return String.format("Modified alarm %s to be at %s with message '%s'",
+                            index, time, opt_message.orElse(alarm.getMessage()));
+                });
             }
 
             @Command(name = "addrepeat", description = "add a day of week an alarm repeats on")
-            @ReturnsResponse(ephemeral = true)
-            String addrepeat(
+            void addrepeat(
                     @Interaction CommandInteractionPayload interaction,
                     @Option(name = "index") Long index,
                     @Option(name = "day") DayOfWeekOption day_of_week_option
             ) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                var user = interaction.getUser();
-                logger.trace("/alarm addrepeat command; user: {}, server: {}, day: {}", user, server, day_of_week_option);
+                execute("alarm addrepeat", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    var user = interaction.getUser();
+                    logger.trace("/alarm addrepeat command; user: {}, server: {}, day: {}", user, server, day_of_week_option);
 
-                var opt_alarm = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(user))
-                        .flatMap((e) -> e.getAlarm(index.intValue()));
+                    var opt_alarm = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(user))
+                            .flatMap((e) -> e.getAlarm(index.intValue()));
 
-                if (opt_alarm.isEmpty()) {
-                    return "Error: Alarm of that index doesn't exist";
-                }
+                    if (opt_alarm.isEmpty()) {
+                        return "Error: Alarm of that index doesn't exist";
+                    }
 
-                var alarm = opt_alarm.get();
+                    var alarm = opt_alarm.get();
 
-                var success = day_of_week_option.day_of_week_set
-                        .stream()
-                        .map(alarm::addRepeatingDay)
-                        .reduce(false, (a, b) -> a || b);
-
-                if (success)
-                    return String.format("Added %s to repeating days for alarm %s",
-                            day_of_week_option.getCustomName(), index);
-                else
-                    return String.format("Error: Alarm %s already repeats %s",
-                            index, day_of_week_option.getCustomName());
+                    var success = day_of_week_option.day_of_week_set
+                            .stream()
+                            .map(alarm::addRepeatingDay)
+                            .reduce(false, (a, b) -> a || b);
+
+                    if (success)
+                        return String.format("Added %s to repeating days for alarm %s",
+                                day_of_week_option.getCustomName(), index);
+                    else
+                        return String.format("Error: Alarm %s already repeats %s",
+                                index, day_of_week_option.getCustomName());
+                });
             }
 
             @Command(name = "removerepeat", description = "remove a day of week an alarm repeats on")
-            @ReturnsResponse(ephemeral = true)
-            String removerepeat(
+            void removerepeat(
                     @Interaction CommandInteractionPayload interaction,
                     @Option(name = "index") Long index,
                     @Option(name = "day") DayOfWeekOption day_of_week_option
             ) {
-                var server = Objects.requireNonNull(interaction.getGuild());
-                var user = interaction.getUser();
-                logger.trace("/alarm removerepeat command; user: {}, server: {}, day: {}", user, server, day_of_week_option);
+                execute("alarm removerepeat", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    var user = interaction.getUser();
+                    logger.trace("/alarm removerepeat command; user: {}, server: {}, day: {}", user, server, day_of_week_option);
 
-                var opt_alarm = bot_data.getServerData(server)
-                        .flatMap((e) -> e.getUserData(user))
-                        .flatMap((e) -> e.getAlarm(index.intValue()));
+                    var opt_alarm = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(user))
+                            .flatMap((e) -> e.getAlarm(index.intValue()));
 
-                if (opt_alarm.isEmpty()) {
-                    return "Error: Alarm of that index doesn't exist";
-                }
+                    if (opt_alarm.isEmpty()) {
+                        return "Error: Alarm of that index doesn't exist";
+                    }
 
-                var alarm = opt_alarm.get();
+                    var alarm = opt_alarm.get();
 
-                var success = day_of_week_option.day_of_week_set
-                        .stream()
-                        .map(alarm::removeRepeatingDay)
-                        .reduce(false, (a, b) -> a || b);
-
-                if (success)
-                    return String.format("Removed %s from repeating days for alarm %s",
-                            day_of_week_option.getCustomName(), index);
-                else
-                    return String.format("Error: Alarm %s already doesn't repeat %s",
-                            index, day_of_week_option.getCustomName());
+                    var success = day_of_week_option.day_of_week_set
+                            .stream()
+                            .map(alarm::removeRepeatingDay)
+                            .reduce(false, (a, b) -> a || b);
+
+                    if (success)
+                        return String.format("Removed %s from repeating days for alarm %s",
+                                day_of_week_option.getCustomName(), index);
+                    else
+                        return String.format("Error: Alarm %s already doesn't repeat %s",
+                                index, day_of_week_option.getCustomName());
+                });
+            }
+
+            @Command(name = "setrecurrence", description = "make an alarm repeat every few days, weeks or months")
+            void setrecurrence(
+                    @Interaction CommandInteractionPayload interaction,
+                    @Option(name = "index") Long index,
+
+                    @Option(name = "frequency", description = "how often it repeats, Never goes back to its repeating days")
+                    FrequencyOption frequency_option,
+
+                    @LongBounds(min = 1, max = 1000)
+                    @Option(name = "interval", description = "repeat every this many days, weeks or months, counted from today (default 1)")
+                    Optional<Long> opt_interval,
+
+                    @Option(name = "day", description = "the days for weekly alarms, or the day for monthly alarms with a week")
+                    Optional<DayOfWeekOption> opt_day,
+
+                    @Option(name = "week", description = "repeat monthly on this week's day instead of today's date")
+                    Optional<WeekOfMonthOption> opt_week,
+
+                    @Option(name = "until", description = "the last date it may go off on, as YYYY-MM-DD")
+                    Optional<String> opt_until,
+
+                    @LongBounds(min = 1)
+                    @Option(name = "count", description = "how many more times it goes off")
+                    Optional<Long> opt_count
+            ) {
+                execute("alarm setrecurrence", interaction, () -> {
+                    var server = Objects.requireNonNull(interaction.getGuild());
+                    var user = interaction.getUser();
+                    logger.trace("/alarm setrecurrence command; user: {}, server: {}, frequency: {}", user, server, frequency_option);
+
+                    var opt_user_data = bot_data.getServerData(server)
+                            .flatMap((e) -> e.getUserData(user));
+
+                    var opt_alarm = opt_user_data.flatMap((e) -> e.getAlarm(index.intValue()));
+
+                    if (opt_alarm.isEmpty()) {
+                        return "Error: Alarm of that index doesn't exist";
+                    }
+
+                    var alarm = opt_alarm.get();
+
+                    if (frequency_option == FrequencyOption.NEVER) {
+                        alarm.setRecurrence(null);
+
+                        saveAsync();
+
+                        return String.format("Alarm %s no longer has a recurrence, it repeats on its repeating days again", index);
+                    }
+
+                    var opt_timezone = opt_user_data.flatMap(UserData::getTimezone);
+
+                    if (opt_timezone.isEmpty())
+                        return "Error: You don't have a timezone set! you can set one with `/timezone set`";
+
+                    var frequency = frequency_option.frequency;
+                    var start = LocalDate.now(opt_timezone.get());
+
+                    LocalDate until = null;
+                    if (opt_until.isPresent()) {
+                        try {
+                            until = LocalDate.parse(opt_until.get().strip());
+                        } catch (DateTimeException e) {
+                            return String.format("Error: Invalid date: %s", e.getMessage());
+                        }
+                    }
+
+                    var week = opt_week.map((e) -> e.week).orElse(0);
+
+                    // weekly ones keep the alarm's repeating days if it has any, otherwise both default to today's
+                    var days = opt_day.map((e) -> AlarmSchedule.mask(e.day_of_week_set)).orElseGet(() -> switch (frequency) {
+                        case DAILY -> 0;
+                        case WEEKLY -> alarm.getRepeatingDays().isEmpty()
+                                ? AlarmSchedule.bit(start.getDayOfWeek())
+                                : AlarmSchedule.mask(alarm.getRepeatingDays());
+                        case MONTHLY -> (week != 0) ? AlarmSchedule.bit(start.getDayOfWeek()) : 0;
+                    });
+
+                    RecurrenceRule rule;
+                    try {
+                        rule = new RecurrenceRule(frequency, opt_interval.orElse(1L).intValue(), days, week, start, until,
+                                opt_count.orElse(0L).intValue());
+                    } catch (IllegalArgumentException e) {
+                        return String.format("Error: Invalid recurrence: %s", e.getMessage());
+                    }
+
+                    if (!alarm.setRecurrence(rule))
+                        return "Error: That recurrence never goes off again";
+
+                    saveAsync();
+
+                    return String.format("Alarm %s now repeats %s, next going off in %s",
+                            index, rule.describe(),
+                            alarm.getTargetTime()
+                                    .map((e) -> formatDuration(Duration.between(Instant.now(), e)))
+                                    .orElse("never"));
+                });
             }
         }
     }
@@ -1,14 +1,20 @@
 package canaryprism.timebot;
 
+import canaryprism.timebot.metrics.MetricsServer;
+import canaryprism.timebot.scheduler.TimingWheelScheduler;
 import dev.dirs.ProjectDirectories;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import picocli.CommandLine;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -22,10 +28,27 @@ public class Main implements Runnable {
         System.setProperty("canaryprism.timebot.logdir", Path.of(DIRS.dataDir, "logs").toString());
     }
     
+    @CommandLine.Option(names = "--save-window", defaultValue = "500",
+            description = "how long to coalesce save requests for in milliseconds (default: ${DEFAULT-VALUE})")
+    private long save_window_millis;
+    
+    @CommandLine.Option(names = "--coalesce-window", defaultValue = "50",
+            description = "how long to wait for more reminders to the same channel to send them as one message in milliseconds (default: ${DEFAULT-VALUE})")
+    private long coalesce_window_millis;
+    
+    @CommandLine.Option(names = "--metrics-port", defaultValue = "0",
+            description = "port to serve prometheus metrics on at /metrics, 0 to not serve them (default: ${DEFAULT-VALUE})")
+    private int metrics_port;
+    
+    @CommandLine.Option(names = "--metrics-host", defaultValue = "127.0.0.1",
+            description = "address to serve metrics on (default: ${DEFAULT-VALUE})")
+    private String metrics_host;
     
     @Override
     public void run() {
         
+        JDA api;
+        Bot bot;
         try {
             var config_path = Path.of(DIRS.configDir);
             
@@ -36,17 +59,40 @@ public class Main implements Runnable {
             
             var token = Files.readString(token_file);
             
-            var api = JDABuilder.create(token, Set.of(GatewayIntent.GUILD_MESSAGE_REACTIONS))
+            api = JDABuilder.create(token, Set.of(GatewayIntent.GUILD_MESSAGE_REACTIONS))
                     .build()
                     .awaitReady();
             
-            var bot = new Bot(api, config_path.resolve("save.json"));
-            bot.start();
+            bot = new Bot(api, config_path.resolve("save.json"),
+                    new TimingWheelScheduler(), Duration.ofMillis(save_window_millis),
+                    Duration.ofMillis(coalesce_window_millis));
         } catch (IOException e) {
             throw new NoSuchElementException("token file not found", e);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
+        
+        var metrics_server = (metrics_port > 0) ? serveMetrics(api, bot) : null;
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (metrics_server != null)
+                metrics_server.close();
+            bot.shutdown();
+        }, "shutdown"));
+        
+        bot.start();
+    }
+    
+    private MetricsServer serveMetrics(JDA api, Bot bot) {
+        var address = new InetSocketAddress(metrics_host, metrics_port);
+        try {
+            return new MetricsServer(bot.getMetrics(), address);
+        } catch (IOException e) {
+            // nothing has been started yet, so close everything down rather than run without the metrics asked for
+            bot.shutdown();
+            api.shutdown();
+            throw new UncheckedIOException(String.format("couldn't serve metrics on %s", address), e);
+        }
     }
     
     @CommandLine.Command(name = "settoken")
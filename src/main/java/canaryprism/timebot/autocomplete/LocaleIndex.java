@@ -0,0 +1,70 @@
+package canaryprism.timebot.autocomplete;
+
+import canaryprism.slavacord.autocomplete.AutocompleteSuggestion;
+import org.apache.commons.lang3.LocaleUtils;
+
+import java.util.*;
+
+/**
+ * the locale autocomplete suggestions, built once
+ * <p>
+ * locales are found by their tag, their name in english and a few other widely used languages,
+ * and the name of their language in that language
+ */
+public final class LocaleIndex {
+
+    private static final List<Locale> DISPLAY_LANGUAGES = List.of(
+            Locale.ENGLISH, Locale.FRENCH, Locale.GERMAN, Locale.forLanguageTag("es"),
+            Locale.forLanguageTag("pt"), Locale.JAPANESE, Locale.CHINESE);
+
+    // discord won't take a choice name longer than this
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private LocaleIndex() {
+    }
+
+    private static final class Holder {
+        static final SuggestionIndex<String> INDEX = build();
+    }
+
+    public static SuggestionIndex<String> get() {
+        return Holder.INDEX;
+    }
+
+    private static SuggestionIndex<String> build() {
+        var builder = SuggestionIndex.<String>builder();
+
+        // plain languages before their regional variants, so "en" comes up before "en-AU"
+        var locales = Locale.availableLocales()
+                .filter((e) -> !LocaleUtils.isLanguageUndetermined(e))
+                .sorted(Comparator.comparing((Locale e) -> !e.getCountry().isEmpty())
+                        .thenComparing((e) -> !e.getScript().isEmpty() || !e.getVariant().isEmpty())
+                        .thenComparing(Locale::toLanguageTag))
+                .toList();
+
+        // loading a locale's own names is slow, so regional variants share their language's
+        var native_names = new HashMap<String, String>();
+
+        for (var locale : locales) {
+            var tag = locale.toLanguageTag();
+
+            var name = String.format("%s (%s)", locale.getDisplayName(Locale.ENGLISH), tag);
+            if (name.length() > MAX_NAME_LENGTH)
+                name = name.substring(0, MAX_NAME_LENGTH);
+
+            var keys = new ArrayList<String>();
+            keys.add(tag);
+            keys.add(locale.toString());
+            keys.add(native_names.computeIfAbsent(locale.getLanguage(), (language) -> {
+                var plain = Locale.of(language);
+                return plain.getDisplayLanguage(plain);
+            }));
+            for (var language : DISPLAY_LANGUAGES)
+                keys.add(locale.getDisplayName(language));
+
+            builder.add(AutocompleteSuggestion.of(name, tag), keys);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,335 @@
+package canaryprism.timebot.autocomplete;
+
+import canaryprism.slavacord.autocomplete.AutocompleteSuggestion;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * an immutable search index over prebuilt autocomplete suggestions
+ * <p>
+ * every suggestion is found through one or more keys, which are normalized by dropping case, accents and punctuation;
+ * all suffixes of all keys are kept in one sorted array, so finding every key containing the query is a binary search
+ * followed by a walk over the matching range
+ * <p>
+ * matches are ranked by how well a key matches (whole key, start of the key, start of a word, anywhere)
+ * and then by the order the suggestions were added in
+ *
+ * @param <T> the value type of the suggestions
+ */
+public final class SuggestionIndex<T> {
+
+    /**
+     * the most suggestions discord will show
+     */
+    public static final int MAX_SUGGESTIONS = 25;
+
+    private static final int EXACT = 0, PREFIX = 1, WORD = 2, ANYWHERE = 3;
+
+    private final List<AutocompleteSuggestion<T>> suggestions;
+
+    private final String[] keys;
+    private final int[] key_suggestion;
+    private final long[] key_words;
+
+    private final int[] suffix_key;
+    private final int[] suffix_offset;
+
+    private final List<AutocompleteSuggestion<T>> defaults;
+
+    private SuggestionIndex(Builder<T> builder) {
+        this.suggestions = List.copyOf(builder.suggestions);
+
+        var key_count = builder.keys.size();
+        this.keys = new String[key_count];
+        this.key_suggestion = new int[key_count];
+        this.key_words = new long[key_count];
+
+        var suffix_count = 0;
+        for (int i = 0; i < key_count; i++) {
+            var key = builder.keys.get(i);
+            keys[i] = key.normalized();
+            key_suggestion[i] = key.suggestion();
+            key_words[i] = key.words();
+            suffix_count += keys[i].length();
+        }
+
+        this.suffix_key = new int[suffix_count];
+        this.suffix_offset = new int[suffix_count];
+        var n = 0;
+        for (int i = 0; i < key_count; i++) {
+            for (int offset = 0; offset < keys[i].length(); offset++) {
+                suffix_key[n] = i;
+                suffix_offset[n] = offset;
+                n++;
+            }
+        }
+        sortSuffixes(0, suffix_count, 0);
+
+        this.defaults = suggestions.subList(0, Math.min(MAX_SUGGESTIONS, suggestions.size()));
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return suggestions.size();
+    }
+
+    /**
+     * @return the best {@value MAX_SUGGESTIONS} suggestions for the query
+     */
+    public List<AutocompleteSuggestion<T>> search(String query) {
+        return search(query, MAX_SUGGESTIONS);
+    }
+
+    /**
+     * finds the suggestions with a key containing the query
+     * <p>
+     * only the results are allocated, the index itself is never copied
+     *
+     * @param query the raw user input
+     * @param limit the most suggestions to return
+     * @return the best matching suggestions, best first;
+     * the first suggestions added if the query is blank after normalization
+     */
+    public List<AutocompleteSuggestion<T>> search(String query, int limit) {
+        if (limit <= 0)
+            return List.of();
+
+        var normalized = normalize(query).normalized();
+        if (normalized.isEmpty())
+            return (limit >= defaults.size()) ? defaults : defaults.subList(0, limit);
+
+        // scores are (match class << 32 | suggestion index), lower is better, kept sorted
+        var best = new long[limit];
+        var count = 0;
+
+        for (int i = lowerBound(normalized); i < suffix_key.length; i++) {
+            var key = suffix_key[i];
+            var offset = suffix_offset[i];
+            if (!keys[key].startsWith(normalized, offset))
+                break;
+
+            int match_class;
+            if (offset == 0)
+                match_class = (keys[key].length() == normalized.length()) ? EXACT : PREFIX;
+            else if (offset < Long.SIZE && (key_words[key] & (1L << offset)) != 0)
+                match_class = WORD;
+            else
+                match_class = ANYWHERE;
+
+            var suggestion = key_suggestion[key];
+            var score = ((long) match_class << 32) | suggestion;
+
+            if (count == limit && score >= best[limit - 1])
+                continue;
+
+            // a suggestion can match through several keys, only its best match counts
+            var existing = -1;
+            for (int j = 0; j < count; j++) {
+                if ((int) best[j] == suggestion) {
+                    existing = j;
+                    break;
+                }
+            }
+
+            int position;
+            if (existing >= 0) {
+                if (score >= best[existing])
+                    continue;
+                position = existing;
+            } else if (count < limit) {
+                position = count++;
+            } else {
+                position = limit - 1;
+            }
+
+            while (position > 0 && best[position - 1] > score) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = score;
+        }
+
+        var results = new ArrayList<AutocompleteSuggestion<T>>(count);
+        for (int i = 0; i < count; i++)
+            results.add(suggestions.get((int) best[i]));
+        return results;
+    }
+
+    /**
+     * @return whether the query normalizes to exactly one of the keys
+     */
+    public boolean hasExactMatch(String query) {
+        var normalized = normalize(query).normalized();
+        if (normalized.isEmpty())
+            return false;
+
+        for (int i = lowerBound(normalized); i < suffix_key.length; i++) {
+            var key = suffix_key[i];
+            if (!keys[key].startsWith(normalized, suffix_offset[i]))
+                break;
+            if (suffix_offset[i] == 0 && keys[key].length() == normalized.length())
+                return true;
+        }
+        return false;
+    }
+
+    private int lowerBound(String query) {
+        int low = 0, high = suffix_key.length;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (compareSuffixes(keys[suffix_key[mid]], suffix_offset[mid], query, 0) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * sorts the suffixes in [low, high) that share their first depth characters,
+     * with a three way radix quicksort so common prefixes are only compared once
+     */
+    private void sortSuffixes(int low, int high, int depth) {
+        while (high - low > 1) {
+            if (high - low < 16) {
+                for (int i = low + 1; i < high; i++)
+                    for (int j = i; j > low && compareSuffixes(j - 1, j) > 0; j--)
+                        swapSuffixes(j - 1, j);
+                return;
+            }
+
+            var pivot = charAt((low + high) >>> 1, depth);
+            int less = low, greater = high - 1, i = low;
+            while (i <= greater) {
+                var c = charAt(i, depth);
+                if (c < pivot)
+                    swapSuffixes(less++, i++);
+                else if (c > pivot)
+                    swapSuffixes(i, greater--);
+                else
+                    i++;
+            }
+
+            sortSuffixes(low, less, depth);
+            // suffixes that ended are all equal, the rest still need their next character compared
+            if (pivot >= 0)
+                sortSuffixes(less, greater + 1, depth + 1);
+            low = greater + 1;
+        }
+    }
+
+    private int charAt(int suffix, int depth) {
+        var key = keys[suffix_key[suffix]];
+        var position = suffix_offset[suffix] + depth;
+        return (position < key.length()) ? key.charAt(position) : -1;
+    }
+
+    private int compareSuffixes(int a, int b) {
+        return compareSuffixes(keys[suffix_key[a]], suffix_offset[a], keys[suffix_key[b]], suffix_offset[b]);
+    }
+
+    private void swapSuffixes(int a, int b) {
+        var key = suffix_key[a];
+        suffix_key[a] = suffix_key[b];
+        suffix_key[b] = key;
+
+        var offset = suffix_offset[a];
+        suffix_offset[a] = suffix_offset[b];
+        suffix_offset[b] = offset;
+    }
+
+    private static int compareSuffixes(String a, int a_offset, String b, int b_offset) {
+        var a_length = a.length() - a_offset;
+        var b_length = b.length() - b_offset;
+        var length = Math.min(a_length, b_length);
+        for (int i = 0; i < length; i++) {
+            var difference = a.charAt(a_offset + i) - b.charAt(b_offset + i);
+            if (difference != 0)
+                return difference;
+        }
+        return a_length - b_length;
+    }
+
+    private record Key(String normalized, long words, int suggestion) {}
+
+    /**
+     * lowercases the text and strips it down to letters and digits, keeping a {@code +} or a {@code -} before a
+     * digit as those are offset signs
+     * <p>
+     * also records where each word of the original text starts, for the first {@value Long#SIZE} characters
+     */
+    static Key normalize(String text) {
+        var decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+
+        var builder = new StringBuilder(decomposed.length());
+        var words = 0L;
+        var word_start = true;
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            var c = decomposed.charAt(i);
+
+            if (Character.getType(c) == Character.NON_SPACING_MARK)
+                continue;
+
+            var sign = (c == '+' || c == '-')
+                    && i + 1 < decomposed.length() && Character.isDigit(decomposed.charAt(i + 1));
+
+            if (Character.isLetterOrDigit(c) || sign) {
+                // camel case words like "DumontDUrville" start where the case goes up
+                var camel = Character.isUpperCase(c) && i > 0 && Character.isLowerCase(decomposed.charAt(i - 1));
+                if ((word_start || sign || camel) && builder.length() < Long.SIZE)
+                    words |= 1L << builder.length();
+
+                builder.append(Character.toLowerCase(c));
+                word_start = false;
+            } else {
+                word_start = true;
+            }
+        }
+
+        return new Key(builder.toString(), words, -1);
+    }
+
+    public static final class Builder<T> {
+
+        private final List<AutocompleteSuggestion<T>> suggestions = new ArrayList<>();
+        private final List<Key> keys = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+
+        private Builder() {
+        }
+
+        /**
+         * adds a suggestion, earlier suggestions rank higher than later ones that match as well
+         *
+         * @param suggestion the suggestion
+         * @param keys the texts the suggestion may be found by, duplicates after normalization are ignored
+         */
+        public Builder<T> add(AutocompleteSuggestion<T> suggestion, Collection<String> keys) {
+            Objects.requireNonNull(suggestion, "suggestion can't be null");
+
+            var index = suggestions.size();
+            suggestions.add(suggestion);
+
+            seen.clear();
+            for (var text : keys) {
+                var key = normalize(text);
+                if (!key.normalized().isEmpty() && seen.add(key.normalized()))
+                    this.keys.add(new Key(key.normalized(), key.words(), index));
+            }
+            return this;
+        }
+
+        public Builder<T> add(AutocompleteSuggestion<T> suggestion, String... keys) {
+            return add(suggestion, Arrays.asList(keys));
+        }
+
+        public SuggestionIndex<T> build() {
+            return new SuggestionIndex<>(this);
+        }
+    }
+}
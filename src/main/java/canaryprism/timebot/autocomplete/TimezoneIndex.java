@@ -0,0 +1,119 @@
+package canaryprism.timebot.autocomplete;
+
+import canaryprism.slavacord.autocomplete.AutocompleteSuggestion;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.TextStyle;
+import java.util.*;
+
+/**
+ * the timezone autocomplete suggestions, built once
+ * <p>
+ * region ids are found by their id, city and display names, {@link ZoneId#SHORT_IDS} by the short id,
+ * and every standard offset in use by the ways people write it ({@code UTC+5}, {@code GMT+05:30}, {@code +0530}...)
+ */
+public final class TimezoneIndex {
+
+    private TimezoneIndex() {
+    }
+
+    private static final class Holder {
+        static final SuggestionIndex<String> INDEX = build();
+    }
+
+    public static SuggestionIndex<String> get() {
+        return Holder.INDEX;
+    }
+
+    private static SuggestionIndex<String> build() {
+        var builder = SuggestionIndex.<String>builder();
+
+        var ids = new TreeSet<>(ZoneId.getAvailableZoneIds());
+
+        var regions = new ArrayList<String>();
+        var legacy = new ArrayList<String>();
+        for (var id : ids) {
+            if (isRegion(id))
+                regions.add(id);
+            else
+                legacy.add(id);
+        }
+
+        var now = Instant.now();
+        var offsets = new TreeSet<ZoneOffset>();
+        for (int hours = -12; hours <= 14; hours++)
+            offsets.add(ZoneOffset.ofHours(hours));
+
+        for (var id : regions) {
+            var zone = ZoneId.of(id);
+            offsets.add(zone.getRules().getStandardOffset(now));
+            builder.add(AutocompleteSuggestion.of(id), regionKeys(id, zone));
+        }
+
+        for (var e : new TreeMap<>(ZoneId.SHORT_IDS).entrySet())
+            builder.add(AutocompleteSuggestion.of(String.format("%s (%s)", e.getKey(), e.getValue()), e.getValue()),
+                    e.getKey());
+
+        // reversed so they read west to east, like they do on a map
+        for (var offset : offsets.descendingSet()) {
+            var id = (offset.getTotalSeconds() == 0) ? "UTC" : "UTC" + offset.getId();
+            builder.add(AutocompleteSuggestion.of(id, id), offsetKeys(offset));
+        }
+
+        for (var id : legacy)
+            builder.add(AutocompleteSuggestion.of(id), id);
+
+        return builder.build();
+    }
+
+    /**
+     * @return whether the id is a current region id, rather than a deprecated alias like {@code US/Pacific}
+     * or {@code Etc/GMT+5}
+     */
+    private static boolean isRegion(String id) {
+        var slash = id.indexOf('/');
+        if (slash < 0)
+            return false;
+
+        return switch (id.substring(0, slash)) {
+            case "Etc", "SystemV", "US", "Canada", "Brazil", "Chile", "Mexico" -> false;
+            default -> true;
+        };
+    }
+
+    private static List<String> regionKeys(String id, ZoneId zone) {
+        var keys = new ArrayList<String>();
+        keys.add(id);
+
+        // the city on its own, so "york" ranks "America/New_York" like a prefix rather than a word match
+        keys.add(id.substring(id.lastIndexOf('/') + 1));
+
+        for (var style : List.of(TextStyle.FULL, TextStyle.SHORT, TextStyle.FULL_STANDALONE))
+            keys.add(zone.getDisplayName(style, Locale.ENGLISH));
+
+        return keys;
+    }
+
+    private static List<String> offsetKeys(ZoneOffset offset) {
+        var total = offset.getTotalSeconds();
+        var sign = (total < 0) ? "-" : "+";
+        var hours = Math.abs(total) / 3600;
+        var minutes = (Math.abs(total) / 60) % 60;
+
+        var forms = new ArrayList<String>();
+        forms.add(String.format("%s%02d:%02d", sign, hours, minutes));
+        forms.add(String.format("%s%d:%02d", sign, hours, minutes));
+
+        var keys = new ArrayList<String>();
+        for (var prefix : List.of("UTC", "GMT", ""))
+            for (var form : forms)
+                keys.add(prefix + form);
+
+        if (total == 0)
+            keys.addAll(List.of("UTC", "GMT", "Z"));
+
+        return keys;
+    }
+}
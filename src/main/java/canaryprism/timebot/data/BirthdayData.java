@@ -5,6 +5,7 @@ import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 import org.json.JSONObject;
 
 import java.time.Instant;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Objects;
@@ -21,6 +22,8 @@ public class BirthdayData {
     
     private volatile GuildMessageChannel channel;
     
+    private volatile UserData owner;
+    
     public BirthdayData(ZonedDateTime time, GuildMessageChannel channel) {
         this.setBirthday(time);
         this.setChannel(channel);
@@ -50,34 +53,77 @@ public class BirthdayData {
                 .put("channel", channel.getIdLong());
     }
     
-    public synchronized void setBirthday(ZonedDateTime time) {
-        var zone = time.getZone();
-        time = time.withZoneSameInstant(ZoneOffset.UTC);
-        
-        this.year = (time.getYear() != -1) ? time.getYear() : null;
-        this.month = time.getMonthValue();
-        this.day = time.getDayOfMonth();
-        this.hour = time.getHour();
-        
-        
-        var now = ZonedDateTime.now(zone);
-        
-        this.next_birthday_year = now.getYear();
-        
-        var this_year_birthday = ZonedDateTime.of(now.getYear(), month, day,
-                hour, 0, 0, 0, ZoneOffset.UTC);
-        
-        if (this_year_birthday.isBefore(now))
-            next_birthday_year++;
+    public void setBirthday(ZonedDateTime time) {
+        synchronized (this) {
+            var zone = time.getZone();
+            time = time.withZoneSameInstant(ZoneOffset.UTC);
+            
+            this.year = (time.getYear() != -1) ? time.getYear() : null;
+            this.month = time.getMonthValue();
+            this.day = time.getDayOfMonth();
+            this.hour = time.getHour();
+            
+            var now = ZonedDateTime.now(zone);
+            
+            this.next_birthday_year = now.getYear();
+            
+            if (birthdayIn(now.getYear()).isBefore(now.toInstant()))
+                next_birthday_year++;
+            
+            markDirty();
+        }
+        fireChanged();
     }
     
     public synchronized Instant getNextBirthday() {
-        return ZonedDateTime.of(next_birthday_year, month, day,
-                hour, 0, 0, 0, ZoneOffset.UTC).toInstant();
+        return birthdayIn(next_birthday_year);
+    }
+    
+    private Instant birthdayIn(int year) {
+        // a february 29th (in utc) birthday is on the 28th in other years
+        var month = YearMonth.of(year, this.month);
+        return month.atDay(Math.min(day, month.lengthOfMonth()))
+                .atTime(hour, 0)
+                .toInstant(ZoneOffset.UTC);
+    }
+    
+    /**
+     * moves the next birthday on to the first one still to come, so birthdays missed over a long downtime are only
+     * announced once
+     */
+    public void birthdayNotified() {
+        synchronized (this) {
+            var now = Instant.now();
+            do {
+                next_birthday_year++;
+            } while (!birthdayIn(next_birthday_year).isAfter(now));
+            markDirty();
+        }
+        fireChanged();
     }
     
-    public synchronized void birthdayNotified() {
-        next_birthday_year++;
+    // the three below don't lock, so indexes can read them while holding the owner's lock; a change made
+    // concurrently is followed by a markDirty which reads them again
+    
+    /**
+     * @return the utc month of the birthday, 1 to 12
+     */
+    public int getMonth() {
+        return month;
+    }
+    
+    /**
+     * @return the utc day of month of the birthday
+     */
+    public int getDay() {
+        return day;
+    }
+    
+    /**
+     * @return the utc hour of the birthday
+     */
+    public int getHour() {
+        return hour;
     }
     
     public synchronized Optional<Integer> getAge() {
@@ -92,5 +138,22 @@ public class BirthdayData {
     
     public synchronized void setChannel(GuildMessageChannel channel) {
         this.channel = Objects.requireNonNull(channel, "channel may not be null");
+        markDirty();
+    }
+    
+    void setOwner(UserData owner) {
+        this.owner = owner;
+    }
+    
+    private void markDirty() {
+        var owner = this.owner;
+        if (owner != null)
+            owner.markDirty();
+    }
+    
+    private void fireChanged() {
+        var owner = this.owner;
+        if (owner != null)
+            owner.getDataListener().birthdayChanged(owner);
     }
 }
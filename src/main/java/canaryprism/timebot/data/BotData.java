@@ -9,11 +9,16 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class BotData {
-    private final Map<Long, ServerData> servers = new HashMap<>();
-    private final Map<Long, DmData> dms = new HashMap<>();
+    private final Map<Long, ServerData> servers = new ConcurrentHashMap<>();
+    private final Map<Long, DmData> dms = new ConcurrentHashMap<>();
+    
+    private final Queue<QueuedChange> changes = new ConcurrentLinkedQueue<>();
+    
+    private volatile DataListener listener = DataListener.NONE;
     
     public BotData() {
     }
@@ -21,78 +26,146 @@ public class BotData {
     public BotData(JSONObject json, JDA api) {
         for (var e : json.getJSONArray("servers")) {
             var data = new ServerData((JSONObject) e, api);
+            data.setBotData(this);
             servers.put(data.getServerId(), data);
         }
         for (var e : json.optJSONArray("dms", new JSONArray())) {
             var data = new DmData((JSONObject) e, api);
+            data.setBotData(this);
             dms.put(data.getChannelId(), data);
         }
     }
     
     public JSONObject toJSON() {
-        synchronized (servers) {
-            return new JSONObject()
-                    .put("servers", new JSONArray(
-                            servers.values()
-                                    .parallelStream()
-                                    .map(ServerData::toJSON)
-                                    .collect(Collectors.toUnmodifiableSet())))
-                    .put("dms", new JSONArray(
-                            dms.values()
-                                    .parallelStream()
-                                    .map(DmData::toJSON)
-                                    .collect(Collectors.toUnmodifiableSet())));
+        return new JSONObject()
+                .put("servers", new JSONArray(servers.values()))
+                .put("dms", new JSONArray(dms.values()));
+    }
+    
+    /**
+     * a changed entity
+     *
+     * @param chat the chat that changed or the chat of the user that changed
+     * @param user the user that changed, or null if it was the chat's own settings
+     */
+    public record Change(ChatData chat, UserData user) {}
+    
+    private record QueuedChange(Change change, JSONCache cache) {}
+    
+    void markDirty(ChatData chat, UserData user, JSONCache cache) {
+        if (cache.markQueued())
+            changes.add(new QueuedChange(new Change(chat, user), cache));
+    }
+    
+    /**
+     * takes every change made since the last call
+     * <p>
+     * each entity appears at most once, and one that changes again after this returns is queued again
+     *
+     * @return the changed entities
+     */
+    public List<Change> drainChanges() {
+        var list = new ArrayList<Change>();
+        QueuedChange queued;
+        while ((queued = changes.poll()) != null) {
+            queued.cache().clearQueued();
+            list.add(queued.change());
         }
+        return list;
+    }
+    
+    public void setDataListener(DataListener listener) {
+        this.listener = Objects.requireNonNull(listener, "listener can't be null");
+    }
+    
+    public DataListener getDataListener() {
+        return listener;
     }
     
     public void putServerData(ServerData data) {
         Objects.requireNonNull(data, "data can't be null");
-        synchronized (servers) {
-            servers.put(data.getServerId(), data);
-        }
+        data.setBotData(this);
+        servers.put(data.getServerId(), data);
+        data.markDirty();
     }
     
     public Optional<ServerData> getServerData(Guild server) {
         Objects.requireNonNull(server, "server can't be null");
-        synchronized (servers) {
-            return Optional.ofNullable(servers.get(server.getIdLong()));
-        }
+        return Optional.ofNullable(servers.get(server.getIdLong()));
     }
     
     public ServerData obtainServerData(Guild server) {
-        synchronized (servers) {
-            return servers.computeIfAbsent(Objects.requireNonNull(server, "server cannot be null").getIdLong(), (e) -> new ServerData(server));
-        }
+        return servers.computeIfAbsent(Objects.requireNonNull(server, "server cannot be null").getIdLong(), (e) -> {
+            var data = new ServerData(server);
+            data.setBotData(this);
+            data.markDirty();
+            return data;
+        });
     }
     
-    public Set<? extends ServerData> getServers() {
-        synchronized (servers) {
-            return Set.copyOf(servers.values());
-        }
+    public ServerData obtainServerData(long server_id) {
+        return servers.computeIfAbsent(server_id, (e) -> {
+            var data = new ServerData(server_id);
+            data.setBotData(this);
+            data.markDirty();
+            return data;
+        });
+    }
+    
+    /**
+     * @return a weakly consistent view of the servers
+     */
+    public Collection<? extends ServerData> getServers() {
+        return Collections.unmodifiableCollection(servers.values());
+    }
+
+    public void putDmData(DmData data) {
+        Objects.requireNonNull(data, "data can't be null");
+        data.setBotData(this);
+        dms.put(data.getChannelId(), data);
+        data.markDirty();
     }
 
     public Optional<DmData> getDmData(PrivateChannel channel) {
         Objects.requireNonNull(channel, "channel can't be null");
-        synchronized (dms) {
-            return Optional.ofNullable(dms.get(channel.getIdLong()));
-        }
+        return Optional.ofNullable(dms.get(channel.getIdLong()));
     }
     public Optional<DmData> getDmData(GroupChannel channel) {
         Objects.requireNonNull(channel, "channel can't be null");
-        synchronized (dms) {
-            return Optional.ofNullable(dms.get(channel.getIdLong()));
-        }
+        return Optional.ofNullable(dms.get(channel.getIdLong()));
     }
 
     public DmData obtainDmData(PrivateChannel channel) {
-        synchronized (servers) {
-            return dms.computeIfAbsent(Objects.requireNonNull(channel, "channel cannot be null").getIdLong(), (e) -> new DmData(channel));
-        }
+        return dms.computeIfAbsent(Objects.requireNonNull(channel, "channel cannot be null").getIdLong(), (e) -> {
+            var data = new DmData(channel);
+            data.setBotData(this);
+            data.markDirty();
+            return data;
+        });
     }
     public DmData obtainDmData(GroupChannel channel) {
-        synchronized (servers) {
-            return dms.computeIfAbsent(Objects.requireNonNull(channel, "channel cannot be null").getIdLong(), (e) -> new DmData(channel));
-        }
+        return dms.computeIfAbsent(Objects.requireNonNull(channel, "channel cannot be null").getIdLong(), (e) -> {
+            var data = new DmData(channel);
+            data.setBotData(this);
+            data.markDirty();
+            return data;
+        });
+    }
+
+    public DmData obtainDmData(long channel_id) {
+        return dms.computeIfAbsent(channel_id, (e) -> {
+            var data = new DmData(channel_id);
+            data.setBotData(this);
+            data.markDirty();
+            return data;
+        });
+    }
+
+    /**
+     * @return a weakly consistent view of the dms
+     */
+    public Collection<? extends DmData> getDms() {
+        return Collections.unmodifiableCollection(dms.values());
     }
 
     public Optional<? extends ChatData> getChatData(Interaction payload) {
@@ -1,16 +1,25 @@
 package canaryprism.timebot.data;
 
 import canaryprism.timebot.ResponderFlags;
-import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.UserSnowflake;
 
 import java.util.Optional;
 
 public interface ChatData {
 
-    Optional<UserData> getUserData(User user);
+    Optional<UserData> getUserData(UserSnowflake user);
 
-    UserData obtainUserData(User user);
+    UserData obtainUserData(UserSnowflake user);
 
     Optional<ResponderFlags> getForcedMessageFlag();
 
+    void markDirty();
+
+    void markDirty(UserData user);
+
+    /**
+     * @return the listener of the bot data this chat belongs to
+     */
+    DataListener getDataListener();
+
 }
@@ -0,0 +1,32 @@
+package canaryprism.timebot.data;
+
+import canaryprism.timebot.data.timers.AlarmData;
+import canaryprism.timebot.data.timers.TimerData;
+
+/**
+ * receives changes to anything that has to be scheduled
+ * <p>
+ * events are never fired while the data that changed is locked, so a listener is free to read it back
+ */
+public interface DataListener {
+    
+    DataListener NONE = new DataListener() {};
+    
+    default void timerAdded(TimerData timer) {}
+    
+    default void timerRemoved(TimerData timer) {}
+    
+    default void alarmAdded(AlarmData alarm) {}
+    
+    /**
+     * the alarm's time or repeating days may have changed
+     */
+    default void alarmChanged(AlarmData alarm) {}
+    
+    default void alarmRemoved(AlarmData alarm) {}
+    
+    /**
+     * the user's birthday was set, removed, or moved on to the next year
+     */
+    default void birthdayChanged(UserData user) {}
+}
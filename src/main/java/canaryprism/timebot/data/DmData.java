@@ -1,20 +1,24 @@
 package canaryprism.timebot.data;
 
 import canaryprism.timebot.ResponderFlags;
+import canaryprism.timebot.util.ConcurrentLongMap;
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.UserSnowflake;
 import net.dv8tion.jda.api.entities.channel.concrete.GroupChannel;
 import net.dv8tion.jda.api.entities.channel.concrete.PrivateChannel;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONString;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
-public class DmData implements ChatData {
+public class DmData implements ChatData, JSONString {
 
     private final long channel_id;
-    private final Map<User, UserData> users = new HashMap<>();
+
+    private volatile BotData bot_data;
+    private final JSONCache json_cache = new JSONCache();
+    private final ConcurrentLongMap<UserData> users = new ConcurrentLongMap<>();
 
     private volatile ResponderFlags forced_message_flags;
 
@@ -26,32 +30,86 @@ public class DmData implements ChatData {
         this.channel_id = Objects.requireNonNull(channel, "PrivateChannel cannot be null").getIdLong();
     }
 
+    public DmData(long channel_id) {
+        this.channel_id = channel_id;
+    }
+
     public DmData(JSONObject json, JDA api) {
         this.channel_id = json.getLong("channel_id");
 
         for (var e : json.getJSONArray("users")) {
             var user_data = new UserData((JSONObject) e, api);
-            users.put(user_data.getUser(), user_data);
+            user_data.setChat(this);
+            users.put(user_data.getUserId(), user_data);
         }
 
+        readSettings(json);
+    }
+
+    private void readSettings(JSONObject json) {
         this.forced_message_flags = Optional.ofNullable(json.optIntegerObject("forced_message_flags", null))
                 .map(ResponderFlags::fromId)
                 .orElse(null);
     }
 
+    /**
+     * replaces the dm level settings (everything but the users) with the ones in the json
+     *
+     * @param json json in the format of {@link #toSettingsJSON()}
+     */
+    public void applySettings(JSONObject json) {
+        readSettings(json);
+        markDirty();
+    }
+
     public JSONObject toJSON() {
-        synchronized (users) {
-            var json = new JSONObject()
-                    .put("channel_id", channel_id)
-                    .put("users", new JSONArray(users.values()
-                            .parallelStream()
-                            .map(UserData::toJSON)
-                            .collect(Collectors.toUnmodifiableSet())));
+        return toSettingsJSON()
+                .put("users", new JSONArray(users.values()));
+    }
 
-            getForcedMessageFlag().ifPresent((e) -> json.put("forced_message_flags", e.getId()));
+    /**
+     * @return the json of this dm without its users
+     */
+    public JSONObject toSettingsJSON() {
+        var json = new JSONObject()
+                .put("channel_id", channel_id);
 
-            return json;
-        }
+        getForcedMessageFlag().ifPresent((e) -> json.put("forced_message_flags", e.getId()));
+
+        return json;
+    }
+
+    @Override
+    public String toJSONString() {
+        return json_cache.get(this::toJSON);
+    }
+
+    void setBotData(BotData bot_data) {
+        this.bot_data = bot_data;
+    }
+
+    @Override
+    public void markDirty() {
+        json_cache.invalidate();
+
+        var bot_data = this.bot_data;
+        if (bot_data != null)
+            bot_data.markDirty(this, null, json_cache);
+    }
+
+    @Override
+    public void markDirty(UserData user) {
+        json_cache.invalidate();
+
+        var bot_data = this.bot_data;
+        if (bot_data != null)
+            bot_data.markDirty(this, user, user.getJSONCache());
+    }
+
+    @Override
+    public DataListener getDataListener() {
+        var bot_data = this.bot_data;
+        return (bot_data != null) ? bot_data.getDataListener() : DataListener.NONE;
     }
 
     public long getChannelId() {
@@ -60,34 +118,37 @@ public class DmData implements ChatData {
 
     public void putUserData(UserData data) {
         Objects.requireNonNull(data, "data can't be null");
-        synchronized (users) {
-            users.put(data.getUser(), data);
-        }
+        data.setChat(this);
+        users.put(data.getUserId(), data);
+        markDirty(data);
     }
 
-    public Optional<UserData> getUserData(User user) {
+    public Optional<UserData> getUserData(UserSnowflake user) {
         Objects.requireNonNull(user, "user can't be null");
-        synchronized (users) {
-            return Optional.ofNullable(users.get(user));
-        }
+        return Optional.ofNullable(users.get(user.getIdLong()));
     }
 
-    public UserData obtainUserData(User user) {
-        synchronized (users) {
-            return users.computeIfAbsent(Objects.requireNonNull(user, "user can't be null"), UserData::new);
-        }
+    public UserData obtainUserData(UserSnowflake user) {
+        return users.computeIfAbsent(Objects.requireNonNull(user, "user can't be null").getIdLong(), (e) -> {
+            var data = new UserData(user);
+            data.setChat(this);
+            markDirty(data);
+            return data;
+        });
     }
 
-    public Set<? extends UserData> getUsers() {
-        synchronized (users) {
-            return Set.copyOf(users.values());
-        }
+    /**
+     * @return a weakly consistent view of the users, it doesn't block or get blocked by concurrent changes
+     */
+    public Collection<? extends UserData> getUsers() {
+        return users.values();
     }
 
     public void forceMessageFlag(ResponderFlags forced_message_flags) {
         synchronized (this) {
             this.forced_message_flags = forced_message_flags;
         }
+        markDirty();
     }
 
     public Optional<ResponderFlags> getForcedMessageFlag() {
@@ -0,0 +1,53 @@
+package canaryprism.timebot.data;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * caches the serialized form of an entity until it's invalidated
+ * <p>
+ * every invalidation bumps a version, a serialization that raced with a change is tagged with the
+ * version it started from and so is never served once the change has been marked
+ * <p>
+ * also holds whether the entity is already queued as a change in {@link BotData},
+ * so an entity is only ever queued once between drains
+ */
+final class JSONCache {
+    
+    private record Entry(long version, String json) {}
+    
+    private final AtomicLong version = new AtomicLong();
+    private volatile Entry entry;
+    
+    private final AtomicBoolean queued = new AtomicBoolean();
+    
+    void invalidate() {
+        version.incrementAndGet();
+    }
+    
+    String get(Supplier<JSONObject> serializer) {
+        var current = version.get();
+        
+        var cached = entry;
+        if (cached != null && cached.version() == current)
+            return cached.json();
+        
+        var json = serializer.get().toString();
+        entry = new Entry(current, json);
+        return json;
+    }
+    
+    /**
+     * @return true if the entity wasn't queued before
+     */
+    boolean markQueued() {
+        return queued.compareAndSet(false, true);
+    }
+    
+    void clearQueued() {
+        queued.set(false);
+    }
+}
@@ -1,20 +1,31 @@
 package canaryprism.timebot.data;
 
 import canaryprism.timebot.ResponderFlags;
+import canaryprism.timebot.util.ConcurrentLongMap;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.UserSnowflake;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONString;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class ServerData implements ChatData {
+public class ServerData implements ChatData, JSONString {
     
     private final long server_id;
-    private final Map<User, UserData> users = new HashMap<>();
+    
+    private volatile BotData bot_data;
+    private final JSONCache json_cache = new JSONCache();
+    private final ConcurrentLongMap<UserData> users = new ConcurrentLongMap<>();
+    private final UserIndex index = new UserIndex();
     
     private volatile ResponderFlags forced_message_flags;
     
@@ -23,7 +34,11 @@ public class ServerData implements ChatData {
     private volatile Boolean allow_custom_messages;
     
     public ServerData(Guild server) {
-        this.server_id = Objects.requireNonNull(server, "server cannot be null").getIdLong();
+        this(Objects.requireNonNull(server, "server cannot be null").getIdLong());
+    }
+    
+    public ServerData(long server_id) {
+        this.server_id = server_id;
     }
     
     public ServerData(JSONObject json, JDA api) {
@@ -31,43 +46,98 @@ public class ServerData implements ChatData {
         
         for (var e : json.getJSONArray("users")) {
             var user_data = new UserData((JSONObject) e, api);
-            users.put(user_data.getUser(), user_data);
+            user_data.setChat(this);
+            users.put(user_data.getUserId(), user_data);
+            index.update(user_data);
         }
         
+        readSettings(json, api);
+    }
+    
+    private void readSettings(JSONObject json, JDA api) {
         this.forced_message_flags = Optional.ofNullable(json.optIntegerObject("forced_message_flags", null))
                 .map(ResponderFlags::fromId)
                 .orElse(null);
         
-        for (var e : json.getJSONArray("allowed_birthday_channels")) {
-            try {
-                var channel = (GuildMessageChannel) Objects.requireNonNull(api.getGuildChannelById(((long) e)));
-                allowed_birthday_channels.add(channel);
-            } catch (NullPointerException n) {
-                // do nothing ig
+        synchronized (allowed_birthday_channels) {
+            allowed_birthday_channels.clear();
+            for (var e : json.getJSONArray("allowed_birthday_channels")) {
+                try {
+                    var channel = (GuildMessageChannel) Objects.requireNonNull(api.getGuildChannelById(((long) e)));
+                    allowed_birthday_channels.add(channel);
+                } catch (NullPointerException n) {
+                    // do nothing ig
+                }
             }
         }
 
         this.allow_custom_messages = json.optBooleanObject("allow_custom_messages", null);
     }
     
+    /**
+     * replaces the server level settings (everything but the users) with the ones in the json
+     *
+     * @param json json in the format of {@link #toSettingsJSON()}
+     */
+    public void applySettings(JSONObject json, JDA api) {
+        readSettings(json, api);
+        markDirty();
+    }
+    
     public JSONObject toJSON() {
-        synchronized (users) {
-            var json = new JSONObject()
-                    .put("server_id", server_id)
-                    .put("users", new JSONArray(users.values()
-                            .parallelStream()
-                            .map(UserData::toJSON)
-                            .collect(Collectors.toUnmodifiableSet())))
-                    .put("allowed_birthday_channels", new JSONArray(allowed_birthday_channels.stream()
-                            .map(GuildMessageChannel::getIdLong)
-                            .collect(Collectors.toUnmodifiableSet())));
+        return toSettingsJSON()
+                .put("users", new JSONArray(users.values()));
+    }
+    
+    /**
+     * @return the json of this server without its users
+     */
+    public JSONObject toSettingsJSON() {
+        var json = new JSONObject()
+                .put("server_id", server_id)
+                .put("allowed_birthday_channels", new JSONArray(getAllowedBirthdayChannels().stream()
+                        .map(GuildMessageChannel::getIdLong)
+                        .collect(Collectors.toUnmodifiableSet())));
 
-            getForcedMessageFlag().ifPresent((e) -> json.put("forced_message_flags", e.getId()));
+        getForcedMessageFlag().ifPresent((e) -> json.put("forced_message_flags", e.getId()));
 
-            allowsCustomMessages().ifPresent((e) -> json.put("allow_custom_messages", e));
-            
-            return json;
-        }
+        allowsCustomMessages().ifPresent((e) -> json.put("allow_custom_messages", e));
+        
+        return json;
+    }
+    
+    @Override
+    public String toJSONString() {
+        return json_cache.get(this::toJSON);
+    }
+    
+    void setBotData(BotData bot_data) {
+        this.bot_data = bot_data;
+    }
+    
+    @Override
+    public void markDirty() {
+        json_cache.invalidate();
+        
+        var bot_data = this.bot_data;
+        if (bot_data != null)
+            bot_data.markDirty(this, null, json_cache);
+    }
+    
+    @Override
+    public void markDirty(UserData user) {
+        json_cache.invalidate();
+        index.update(user);
+        
+        var bot_data = this.bot_data;
+        if (bot_data != null)
+            bot_data.markDirty(this, user, user.getJSONCache());
+    }
+    
+    @Override
+    public DataListener getDataListener() {
+        var bot_data = this.bot_data;
+        return (bot_data != null) ? bot_data.getDataListener() : DataListener.NONE;
     }
     
     public long getServerId() {
@@ -76,34 +146,77 @@ public class ServerData implements ChatData {
     
     public void putUserData(UserData data) {
         Objects.requireNonNull(data, "data can't be null");
-        synchronized (users) {
-            users.put(data.getUser(), data);
-        }
+        data.setChat(this);
+        users.put(data.getUserId(), data);
+        markDirty(data);
     }
     
-    public Optional<UserData> getUserData(User user) {
+    public Optional<UserData> getUserData(UserSnowflake user) {
         Objects.requireNonNull(user, "user can't be null");
-        synchronized (users) {
-            return Optional.ofNullable(users.get(user));
-        }
+        return Optional.ofNullable(users.get(user.getIdLong()));
     }
     
-    public UserData obtainUserData(User user) {
-        synchronized (users) {
-            return users.computeIfAbsent(Objects.requireNonNull(user, "user can't be null"), UserData::new);
-        }
+    public UserData obtainUserData(UserSnowflake user) {
+        return users.computeIfAbsent(Objects.requireNonNull(user, "user can't be null").getIdLong(), (e) -> {
+            var data = new UserData(user);
+            data.setChat(this);
+            markDirty(data);
+            return data;
+        });
     }
     
-    public Set<? extends UserData> getUsers() {
-        synchronized (users) {
-            return Set.copyOf(users.values());
-        }
+    /**
+     * @return a weakly consistent view of the users, it doesn't block or get blocked by concurrent changes
+     */
+    public Collection<? extends UserData> getUsers() {
+        return users.values();
+    }
+    
+    /**
+     * @return the users with a timezone set, grouped by it
+     */
+    public Map<ZoneId, List<UserData>> getUsersByTimezone() {
+        return index.byTimezone();
+    }
+    
+    /**
+     * @param from the first utc hour, inclusive
+     * @param to the last utc hour, inclusive; a year or more after {@code from} means every birthday
+     * @return the users whose birthday (in utc) falls in those hours, in the order they come up after {@code from}
+     */
+    public List<UserData> getBirthdaysBetween(LocalDateTime from, LocalDateTime to) {
+        return index.birthdaysBetween(from, to);
+    }
+    
+    /**
+     * @param next when the user's birthday is next announced
+     */
+    public record UpcomingBirthday(UserData user, Instant next) {}
+    
+    /**
+     * @return the users whose next birthday is from the start of {@code now}'s utc hour up to {@code until}, soonest
+     * first
+     */
+    public List<UpcomingBirthday> getUpcomingBirthdays(Instant now, Instant until) {
+        var from = LocalDateTime.ofInstant(now, ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+        var to = LocalDateTime.ofInstant(until, ZoneOffset.UTC);
+        
+        // anyone already announced earlier this hour is in the range too, but their next birthday is next year's, so
+        // it's either past the end or belongs last
+        return getBirthdaysBetween(from, to).stream()
+                .flatMap((user) -> user.getBirthdayData()
+                        .map((birthday) -> new UpcomingBirthday(user, birthday.getNextBirthday()))
+                        .stream())
+                .filter((e) -> !e.next().isAfter(until))
+                .sorted(Comparator.comparing(UpcomingBirthday::next))
+                .toList();
     }
     
     public void forceMessageFlag(ResponderFlags forced_message_flags) {
         synchronized (this) {
             this.forced_message_flags = forced_message_flags;
         }
+        markDirty();
     }
     
     public Optional<ResponderFlags> getForcedMessageFlag() {
@@ -121,15 +234,21 @@ public class ServerData implements ChatData {
     public boolean addAllowedBirthdayChannel(GuildMessageChannel channel) {
         Objects.requireNonNull(channel, "channel can't be null");
         synchronized (allowed_birthday_channels) {
-            return allowed_birthday_channels.add(channel);
+            if (!allowed_birthday_channels.add(channel))
+                return false;
         }
+        markDirty();
+        return true;
     }
     
     public boolean removeAllowedBirthdayChannel(GuildMessageChannel channel) {
         Objects.requireNonNull(channel, "channel can't be null");
         synchronized (allowed_birthday_channels) {
-            return allowed_birthday_channels.remove(channel);
+            if (!allowed_birthday_channels.remove(channel))
+                return false;
         }
+        markDirty();
+        return true;
     }
     
     public boolean isAllowedBirthdayChannel(GuildMessageChannel channel) {
@@ -145,5 +264,6 @@ public class ServerData implements ChatData {
 
     public void setAllowsCustomMessages(boolean allow_custom_messages) {
         this.allow_custom_messages = allow_custom_messages;
+        markDirty();
     }
 }
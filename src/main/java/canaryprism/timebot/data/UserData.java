@@ -2,22 +2,29 @@ package canaryprism.timebot.data;
 
 import canaryprism.timebot.data.timers.AlarmData;
 import canaryprism.timebot.data.timers.TimerData;
+import canaryprism.timebot.format.FormatterCache;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.requests.restaction.CacheRestAction;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONString;
 
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
-public class UserData {
-    private final User user;
+public class UserData implements JSONString {
+    
+    private final long user_id;
+    
+    private volatile ChatData chat;
+    private final JSONCache json_cache = new JSONCache();
     
     private volatile ZoneId timezone;
     
     private volatile Optional<String> formatter_string = Optional.empty();
-    private volatile DateTimeFormatter formatter;
     private volatile Locale locale;
     private volatile Boolean timezone_visible;
     
@@ -26,19 +33,23 @@ public class UserData {
     private final ArrayList<TimerData> timers = new ArrayList<>();
     private final ArrayList<AlarmData> alarms = new ArrayList<>();
 
-    public UserData(User user) {
-        this.user = Objects.requireNonNull(user, "user cannot be null");
+    public UserData(UserSnowflake user) {
+        this(Objects.requireNonNull(user, "user cannot be null").getIdLong());
+    }
+    
+    public UserData(long user_id) {
+        this.user_id = user_id;
     }
     
     public UserData(JSONObject json, JDA api) {
-        this.user = api.retrieveUserById(json.getLong("user_id")).complete();
+        this.user_id = json.getLong("user_id");
         
         this.timezone = Optional.ofNullable(json.optString("timezone", null)).map(ZoneId::of).orElse(null);
         
         this.formatter_string = Optional.ofNullable(json.optString("formatter_string", null));
         
-        this.formatter = formatter_string.map(DateTimeFormatter::ofPattern)
-                .orElse(null);
+        // fails loading on a pattern that doesn't compile, like it did when each user held their own formatter
+        formatter_string.ifPresent((pattern) -> FormatterCache.shared().ofPattern(pattern, Locale.getDefault(Locale.Category.FORMAT)));
         
         this.locale = Optional.ofNullable(json.optString("locale", null))
                 .map(Locale::forLanguageTag)
@@ -50,6 +61,9 @@ public class UserData {
                 .map((e) -> new BirthdayData(e, api))
                 .orElse(null);
         
+        if (birthday_data != null)
+            birthday_data.setOwner(this);
+        
         for (var e : json.optJSONArray("timers", new JSONArray())) {
             var timer = new TimerData((JSONObject) e, api, this);
             timers.add(timer);
@@ -64,7 +78,7 @@ public class UserData {
     public synchronized JSONObject toJSON() {
         var json = new JSONObject();
         
-        json.put("user_id", user.getIdLong());
+        json.put("user_id", user_id);
         
         getTimezone().ifPresent((timezone) -> json.put("timezone", timezone.getId()));
         
@@ -76,47 +90,110 @@ public class UserData {
         
         getBirthdayData().ifPresent((birthday) -> json.put("birthday", birthday.toJSON()));
         
-        json.put("timers", timers.stream().map(TimerData::toJSON).toList());
+        json.put("timers", getTimers().stream().map(TimerData::toJSON).toList());
         
-        json.put("alarms", alarms.stream().map(AlarmData::toJSON).toList());
+        json.put("alarms", getAlarms().stream().map(AlarmData::toJSON).toList());
         
         return json;
     }
     
+    @Override
+    public String toJSONString() {
+        return json_cache.get(this::toJSON);
+    }
+    
+    void setChat(ChatData chat) {
+        this.chat = chat;
+    }
+    
+    JSONCache getJSONCache() {
+        return json_cache;
+    }
+    
+    public void markDirty() {
+        json_cache.invalidate();
+        
+        var chat = this.chat;
+        if (chat != null)
+            chat.markDirty(this);
+    }
+    
+    /**
+     * @return the listener for this user's data, never called while this user is locked
+     */
+    public DataListener getDataListener() {
+        var chat = this.chat;
+        return (chat != null) ? chat.getDataListener() : DataListener.NONE;
+    }
+    
     @Override
     public boolean equals(Object o) {
-        return o instanceof UserData other && Objects.equals(this.user, other.user);
+        return o instanceof UserData other && this.user_id == other.user_id;
     }
     
     @Override
     public int hashCode() {
-        return Objects.hashCode(user);
+        return Long.hashCode(user_id);
+    }
+    
+    public long getUserId() {
+        return this.user_id;
+    }
+    
+    /**
+     * @return a handle to the user that can be mentioned without resolving the user
+     */
+    public UserSnowflake getUser() {
+        return UserSnowflake.fromId(user_id);
     }
     
-    public User getUser() {
-        return this.user;
+    /**
+     * resolves the full user, only needed when more than the id or a mention is required
+     */
+    public CacheRestAction<User> retrieveUser(JDA api) {
+        return api.retrieveUserById(user_id);
     }
     
     public synchronized Optional<ZoneId> getTimezone() {
         return Optional.ofNullable(timezone);
     }
     
-    public synchronized void setTimezone(ZoneId timezone) {
-        this.timezone = timezone;
+    public void setTimezone(ZoneId timezone) {
+        synchronized (this) {
+            if (Objects.equals(this.timezone, timezone))
+                return;
+            
+            this.timezone = timezone;
+            markDirty();
+        }
+        // alarms go off at a local time, so every one of them is now due at a different instant
+        getAlarms().forEach(getDataListener()::alarmChanged);
     }
     
-    public synchronized Optional<DateTimeFormatter> getFormatter() {
-        return Optional.ofNullable(formatter);
+    public Optional<DateTimeFormatter> getFormatter() {
+        return getFormatter(Locale.getDefault(Locale.Category.FORMAT));
+    }
+    
+    /**
+     * @return the shared formatter for this user's pattern in the locale
+     */
+    public Optional<DateTimeFormatter> getFormatter(Locale locale) {
+        return formatter_string.map((pattern) -> FormatterCache.shared().ofPattern(pattern, locale));
     }
     
     public synchronized Optional<String> getFormatterPattern() {
         return formatter_string;
     }
     
+    /**
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
     public synchronized void setFormatter(String formatter_pattern) {
-        this.formatter_string = Optional.ofNullable(formatter_pattern);
+        if (formatter_pattern != null)
+            FormatterCache.shared().ofPattern(formatter_pattern, Locale.getDefault(Locale.Category.FORMAT));
         
-        this.formatter = formatter_string.map(DateTimeFormatter::ofPattern).orElse(null);
+        this.formatter_string = Optional.ofNullable(formatter_pattern);
+        markDirty();
     }
     
     public synchronized Optional<Locale> getLocale() {
@@ -125,6 +202,7 @@ public class UserData {
     
     public synchronized void setLocale(Locale locale) {
         this.locale = locale;
+        markDirty();
     }
     
     public synchronized Optional<Boolean> isTimezoneVisible() {
@@ -133,14 +211,30 @@ public class UserData {
     
     public synchronized void setTimezoneVisible(Boolean timezone_visible) {
         this.timezone_visible = timezone_visible;
+        markDirty();
+    }
+    
+    /**
+     * @return the user's timezone, visibility, locale and pattern as they were at one moment
+     */
+    public synchronized UserPreferences getPreferences() {
+        return new UserPreferences(Optional.ofNullable(timezone), (timezone_visible == null) || timezone_visible,
+                Optional.ofNullable(locale), formatter_string);
     }
     
     public synchronized Optional<BirthdayData> getBirthdayData() {
         return Optional.ofNullable(birthday_data);
     }
     
-    public synchronized void setBirthdayData(BirthdayData birthday_data) {
-        this.birthday_data = birthday_data;
+    public void setBirthdayData(BirthdayData birthday_data) {
+        synchronized (this) {
+            if (birthday_data != null)
+                birthday_data.setOwner(this);
+            
+            this.birthday_data = birthday_data;
+            markDirty();
+        }
+        getDataListener().birthdayChanged(this);
     }
     
     public List<TimerData> getTimers() {
@@ -161,12 +255,17 @@ public class UserData {
         synchronized (timers) {
             timers.add(Objects.requireNonNull(data, "timer data can't be null"));
         }
+        markDirty();
+        getDataListener().timerAdded(data);
     }
     
     public void removeTimer(TimerData data) {
         synchronized (timers) {
-            timers.remove(Objects.requireNonNull(data, "timer data can't be null"));
+            if (!timers.remove(Objects.requireNonNull(data, "timer data can't be null")))
+                return;
         }
+        markDirty();
+        getDataListener().timerRemoved(data);
     }
     
     public boolean hasTimer(TimerData data) {
@@ -193,12 +292,17 @@ public class UserData {
         synchronized (alarms) {
             alarms.add(Objects.requireNonNull(data, "alarm data can't be null"));
         }
+        markDirty();
+        getDataListener().alarmAdded(data);
     }
     
     public void removeAlarm(AlarmData data) {
         synchronized (alarms) {
-            alarms.remove(Objects.requireNonNull(data, "alarm data can't be null"));
+            if (!alarms.remove(Objects.requireNonNull(data, "alarm data can't be null")))
+                return;
         }
+        markDirty();
+        getDataListener().alarmRemoved(data);
     }
     
     public boolean hasAlarm(AlarmData data) {
@@ -0,0 +1,109 @@
+package canaryprism.timebot.data;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * secondary indexes over a server's users, so questions about everyone only touch the users in the answer
+ * <p>
+ * users are grouped by timezone, and birthdays are kept in the order they fall in the (utc) year; a user is
+ * reindexed every time they're marked dirty, which is a no-op unless their timezone or birthday moved
+ */
+final class UserIndex {
+    
+    private record BirthdayKey(int month, int day, int hour, long user_id) implements Comparable<BirthdayKey> {
+        
+        private static final Comparator<BirthdayKey> ORDER = Comparator.comparingInt(BirthdayKey::month)
+                .thenComparingInt(BirthdayKey::day)
+                .thenComparingInt(BirthdayKey::hour)
+                .thenComparingLong(BirthdayKey::user_id);
+        
+        static BirthdayKey of(LocalDateTime time, long user_id) {
+            return new BirthdayKey(time.getMonthValue(), time.getDayOfMonth(), time.getHour(), user_id);
+        }
+        
+        @Override
+        public int compareTo(BirthdayKey o) {
+            return ORDER.compare(this, o);
+        }
+    }
+    
+    private record Entry(ZoneId timezone, BirthdayKey birthday) {}
+    
+    // all guarded by this
+    private final Map<UserData, Entry> entries = new HashMap<>();
+    private final Map<ZoneId, Set<UserData>> by_timezone = new HashMap<>();
+    private final TreeMap<BirthdayKey, UserData> by_birthday = new TreeMap<>();
+    
+    void update(UserData user) {
+        // under the user's lock so updates for one user can't be applied out of order; the index is only ever
+        // locked after the user, and nothing is read from users while it's locked
+        synchronized (user) {
+            var timezone = user.getTimezone().orElse(null);
+            var birthday = user.getBirthdayData()
+                    .map((e) -> new BirthdayKey(e.getMonth(), e.getDay(), e.getHour(), user.getUserId()))
+                    .orElse(null);
+            var entry = new Entry(timezone, birthday);
+            
+            synchronized (this) {
+                var previous = entries.get(user);
+                if (Objects.equals(previous, entry) || (previous == null && timezone == null && birthday == null))
+                    return;
+                
+                if (previous != null) {
+                    if (previous.timezone() != null) {
+                        var users = by_timezone.get(previous.timezone());
+                        users.remove(user);
+                        if (users.isEmpty())
+                            by_timezone.remove(previous.timezone());
+                    }
+                    if (previous.birthday() != null)
+                        by_birthday.remove(previous.birthday());
+                }
+                
+                if (timezone != null)
+                    by_timezone.computeIfAbsent(timezone, (e) -> new HashSet<>()).add(user);
+                if (birthday != null)
+                    by_birthday.put(birthday, user);
+                
+                if (timezone == null && birthday == null)
+                    entries.remove(user);
+                else
+                    entries.put(user, entry);
+            }
+        }
+    }
+    
+    /**
+     * @return a copy of the users with a timezone, grouped by it
+     */
+    synchronized Map<ZoneId, List<UserData>> byTimezone() {
+        var copy = new HashMap<ZoneId, List<UserData>>(by_timezone.size() * 4 / 3 + 1);
+        by_timezone.forEach((timezone, users) -> copy.put(timezone, List.copyOf(users)));
+        return copy;
+    }
+    
+    /**
+     * @param from the first utc hour, inclusive
+     * @param to the last utc hour, inclusive; a year or more after {@code from} means every birthday
+     * @return the users with birthdays in those hours, in the order they come up after {@code from}
+     */
+    synchronized List<UserData> birthdaysBetween(LocalDateTime from, LocalDateTime to) {
+        var start = BirthdayKey.of(from, Long.MIN_VALUE);
+        var end = BirthdayKey.of(to, Long.MAX_VALUE);
+        
+        var result = new ArrayList<UserData>();
+        if (!to.isBefore(from.plusYears(1))) {
+            result.addAll(by_birthday.tailMap(start, true).values());
+            result.addAll(by_birthday.headMap(start, false).values());
+        } else if (start.compareTo(end) <= 0) {
+            result.addAll(by_birthday.subMap(start, true, end, true).values());
+        } else {
+            // wraps round the end of the year
+            result.addAll(by_birthday.tailMap(start, true).values());
+            result.addAll(by_birthday.headMap(end, true).values());
+        }
+        return result;
+    }
+}
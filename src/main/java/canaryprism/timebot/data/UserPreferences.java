@@ -0,0 +1,48 @@
+package canaryprism.timebot.data;
+
+import canaryprism.timebot.format.FormatterCache;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * a snapshot of the settings a user has for how times are shown, taken in one go so a request doesn't have to look
+ * the user up and lock them again for every setting
+ * <p>
+ * someone with no user data has {@link #NONE}, which is everything unset
+ *
+ * @param timezone_visible whether the timezone is shown alongside the user's time, true unless they hid it
+ */
+public record UserPreferences(Optional<ZoneId> timezone, boolean timezone_visible, Optional<Locale> locale, Optional<String> formatter_pattern) {
+    
+    public static final UserPreferences NONE = new UserPreferences(Optional.empty(), true, Optional.empty(), Optional.empty());
+    
+    public UserPreferences {
+        Objects.requireNonNull(timezone, "timezone can't be null");
+        Objects.requireNonNull(locale, "locale can't be null");
+        Objects.requireNonNull(formatter_pattern, "formatter_pattern can't be null");
+    }
+    
+    public static UserPreferences of(Optional<UserData> data) {
+        return data.map(UserData::getPreferences).orElse(NONE);
+    }
+    
+    /**
+     * @return the user's locale, or the fallback if they haven't set one
+     */
+    public Locale locale(Locale fallback) {
+        return locale.orElse(fallback);
+    }
+    
+    /**
+     * @param fallback the formatter to use if the user hasn't set a pattern, like a constant
+     * @return the shared formatter for the user's pattern, or the fallback, in the locale
+     */
+    public DateTimeFormatter formatter(DateTimeFormatter fallback, Locale locale) {
+        return formatter_pattern.map((pattern) -> FormatterCache.shared().ofPattern(pattern, locale))
+                .orElseGet(() -> FormatterCache.shared().withLocale(fallback, locale));
+    }
+}
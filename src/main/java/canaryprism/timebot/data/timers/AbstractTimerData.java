@@ -23,6 +23,7 @@ public abstract class AbstractTimerData {
         this.target = target;
         this.channel = channel;
         this.message = message;
+        owner.markDirty();
     }
     
     public AbstractTimerData(JSONObject json, JDA api, UserData owner) {
@@ -48,6 +49,7 @@ public abstract class AbstractTimerData {
     
     public synchronized void setChannel(MessageChannel channel) {
         this.channel = channel;
+        owner.markDirty();
     }
     
     public synchronized String getMessage() {
@@ -56,6 +58,7 @@ public abstract class AbstractTimerData {
     
     public synchronized void setMessage(String message) {
         this.message = message;
+        owner.markDirty();
     }
     
     public abstract boolean isActive();
@@ -6,16 +6,24 @@ import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import org.json.JSONObject;
 
 import java.time.*;
+import java.time.zone.ZoneRules;
 import java.util.EnumSet;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class AlarmData extends AbstractTimerData {
     
     protected volatile LocalTime local_time;
     
-    protected final EnumSet<DayOfWeek> repeating_days = EnumSet.noneOf(DayOfWeek.class);
+    // as an AlarmSchedule day mask, 0 if it doesn't repeat
+    protected volatile int repeating_days;
+    
+    // replaces repeating_days when set
+    protected volatile RecurrenceRule recurrence;
+    
+    // the zone the target was worked out in and its rules, so a changed timezone is noticed
+    private ZoneId target_zone;
+    private ZoneRules target_rules;
     
     public AlarmData(UserData owner, LocalTime time, MessageChannel channel, String message) {
         super(owner, Instant.EPOCH, channel, message);
@@ -27,77 +35,134 @@ public class AlarmData extends AbstractTimerData {
         
         this.local_time = LocalTime.parse(json.getString("local_time"));
         
-        for (var e : json.getJSONArray("repeating_days")) {
-            var day = DayOfWeek.of(((int) e));
-            repeating_days.add(day);
-        }
+        for (var e : json.getJSONArray("repeating_days"))
+            repeating_days |= AlarmSchedule.bit(DayOfWeek.of(((int) e)));
+        
+        var recurrence_json = json.optJSONObject("recurrence");
+        if (recurrence_json != null)
+            this.recurrence = RecurrenceRule.fromJSON(recurrence_json);
     }
     
     @Override
     public synchronized JSONObject toJSON() {
-        return super.toJSON()
+        var json = super.toJSON()
                 .put("local_time", local_time.toString())
-                .put("repeating_days", repeating_days.stream().map(DayOfWeek::getValue).collect(Collectors.toUnmodifiableSet()));
+                .put("repeating_days", AlarmSchedule.days(repeating_days).stream().map(DayOfWeek::getValue).toList());
+        if (recurrence != null)
+            json.put("recurrence", recurrence.toJSON());
+        return json;
     }
     
     public synchronized LocalTime getTime() {
         return local_time;
     }
     
-    public synchronized void setTime(LocalTime time) {
-        this.local_time = Objects.requireNonNull(time, "time can't be null");
-        this.target = Instant.EPOCH;
-        update();
+    public void setTime(LocalTime time) {
+        synchronized (this) {
+            this.local_time = Objects.requireNonNull(time, "time can't be null");
+            this.target = Instant.EPOCH;
+            update(Instant.now());
+            owner.markDirty();
+        }
+        owner.getDataListener().alarmChanged(this);
     }
     
-    private synchronized void update() {
+    /**
+     * works out the target time if it isn't known, or was worked out in a timezone the owner no longer has
+     *
+     * @param after the target is the first time the alarm goes off after this
+     */
+    private synchronized void update(Instant after) {
         var opt_timezone = owner.getTimezone();
         
         if (opt_timezone.isEmpty()) {
-            this.target = Instant.EPOCH;
+            if (this.target != Instant.EPOCH) {
+                this.target = Instant.EPOCH;
+                owner.markDirty();
+            }
             return;
         }
         
-        if (this.target != Instant.EPOCH)
-            return;
-        
         var timezone = opt_timezone.get();
         
-        var datetime = ZonedDateTime.of(LocalDate.now(timezone), local_time, timezone);
-        
-        if (datetime.isBefore(ZonedDateTime.now())) {
-            datetime = datetime.plusDays(1);
+        // a target loaded from the save has no zone yet, it's trusted to be from the current one
+        if (this.target != Instant.EPOCH && (target_zone == null || target_zone.equals(timezone))) {
+            target_zone = timezone;
+            return;
         }
         
-        if (!repeating_days.isEmpty()) {
-            while (!repeating_days.contains(datetime.getDayOfWeek()))
-                datetime = datetime.plusDays(1);
+        if (!timezone.equals(target_zone)) {
+            target_zone = timezone;
+            target_rules = timezone.getRules();
         }
         
-        this.target = datetime.toInstant();
+        if (recurrence != null)
+            // a rule that has ended leaves no target, complete() removes the alarm once it's gone off the last time
+            this.target = AlarmSchedule.next(local_time, recurrence, target_rules, after).orElse(Instant.EPOCH);
+        else
+            this.target = AlarmSchedule.next(local_time, repeating_days, target_rules, after);
+        owner.markDirty();
     }
     
     public synchronized Optional<Instant> getTargetTime() {
-        update();
+        update(Instant.now());
         return (this.target != Instant.EPOCH) ? Optional.of(this.target) : Optional.empty();
     }
     
     public EnumSet<DayOfWeek> getRepeatingDays() {
-        synchronized (repeating_days) {
-            return repeating_days.clone();
-        }
+        return AlarmSchedule.days(repeating_days);
     }
     
-    public synchronized boolean addRepeatingDay(DayOfWeek day) {
-        synchronized (repeating_days) {
-            return repeating_days.add(Objects.requireNonNull(day, "day of week can't be null"));
+    public boolean addRepeatingDay(DayOfWeek day) {
+        return setRepeatingDays(repeating_days | AlarmSchedule.bit(Objects.requireNonNull(day, "day of week can't be null")));
+    }
+    
+    public boolean removeRepeatingDay(DayOfWeek day) {
+        return setRepeatingDays(repeating_days & ~AlarmSchedule.bit(Objects.requireNonNull(day, "day of week can't be null")));
+    }
+    
+    public Optional<RecurrenceRule> getRecurrence() {
+        return Optional.ofNullable(recurrence);
+    }
+    
+    /**
+     * sets the rule the alarm repeats by instead of its repeating days, or goes back to them with null
+     *
+     * @return false and leaves the alarm as it was if the rule would never go off again, always true for null
+     */
+    public boolean setRecurrence(RecurrenceRule recurrence) {
+        synchronized (this) {
+            var previous = this.recurrence;
+            var previous_target = this.target;
+            
+            this.recurrence = recurrence;
+            this.target = Instant.EPOCH;
+            update(Instant.now());
+            
+            if (recurrence != null && this.target == Instant.EPOCH && owner.getTimezone().isPresent()) {
+                this.recurrence = previous;
+                this.target = previous_target;
+                return false;
+            }
+            owner.markDirty();
         }
+        owner.getDataListener().alarmChanged(this);
+        return true;
     }
     
-    public synchronized boolean removeRepeatingDay(DayOfWeek day) {
-        synchronized (repeating_days) {
-            return repeating_days.remove(Objects.requireNonNull(day, "day of week can't be null"));
+    private boolean setRepeatingDays(int days) {
+        synchronized (this) {
+            if (repeating_days == days)
+                return false;
+            repeating_days = days;
+            
+            // the next day it goes off on may have changed
+            this.target = Instant.EPOCH;
+            update(Instant.now());
+            owner.markDirty();
         }
+        owner.getDataListener().alarmChanged(this);
+        return true;
     }
     
     @Override
@@ -106,12 +171,33 @@ public class AlarmData extends AbstractTimerData {
     }
     
     @Override
-    public synchronized void complete() {
-        if (repeating_days.isEmpty()) {
-            owner.removeAlarm(this);
-        } else {
-            this.target = Instant.EPOCH;
-            update();
+    public void complete() {
+        boolean repeating;
+        synchronized (this) {
+            if (recurrence != null) {
+                // left as is when it was the last time, the alarm is removed anyway
+                var rest = recurrence.occurred();
+                repeating = rest.isPresent();
+                rest.ifPresent((e) -> recurrence = e);
+            } else {
+                repeating = repeating_days != 0;
+            }
+            
+            if (repeating) {
+                // from the time that just went off even if it fired a little early, so it can't come round again
+                var now = Instant.now();
+                var after = now.isAfter(this.target) ? now : this.target;
+                this.target = Instant.EPOCH;
+                update(after);
+                
+                // the rule's reached its until
+                repeating = this.target != Instant.EPOCH;
+            }
         }
+        
+        if (repeating)
+            owner.getDataListener().alarmChanged(this);
+        else
+            owner.removeAlarm(this);
     }
 }
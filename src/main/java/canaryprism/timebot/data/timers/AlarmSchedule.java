@@ -0,0 +1,103 @@
+package canaryprism.timebot.data.timers;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.zone.ZoneRules;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * works out when an alarm at a local time next goes off, straight from its days of the week (or its
+ * {@link RecurrenceRule}) and the zone's rules
+ * <p>
+ * days are a bitmask with bit {@code day.getValue() - 1} set for each day, so monday is bit 0 and sunday bit 6;
+ * an empty mask means any day
+ * <p>
+ * a local time that doesn't exist on a day because of a daylight saving gap goes off that much later, the same
+ * instant {@link java.time.ZonedDateTime#of} would pick; a local time that happens twice because of an overlap
+ * only goes off the first time
+ */
+public final class AlarmSchedule {
+    
+    public static final int EVERY_DAY = 0b111_1111;
+    
+    private AlarmSchedule() {}
+    
+    public static int mask(Set<DayOfWeek> days) {
+        var mask = 0;
+        for (var day : days)
+            mask |= bit(day);
+        return mask;
+    }
+    
+    public static EnumSet<DayOfWeek> days(int mask) {
+        var days = EnumSet.noneOf(DayOfWeek.class);
+        for (var day : DayOfWeek.values())
+            if ((mask & bit(day)) != 0)
+                days.add(day);
+        return days;
+    }
+    
+    public static int bit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+    
+    /**
+     * @param days the days it may go off on, or 0 for any day
+     * @return the first time strictly after {@code after} that the alarm goes off
+     */
+    public static Instant next(LocalTime time, int days, ZoneRules rules, Instant after) {
+        if ((days & ~EVERY_DAY) != 0)
+            throw new IllegalArgumentException("days must only use the lowest 7 bits");
+        
+        var date = localDate(after, rules);
+        
+        // today's is gone already, the earliest is tomorrow's; comparing instants rather than local times keeps
+        // this right when after is inside an overlap
+        if (!at(date, time, rules).isAfter(after))
+            date = date.plusDays(1);
+        
+        return at(date.plusDays(daysUntil(date.getDayOfWeek(), days)), time, rules);
+    }
+    
+    /**
+     * @return the first time strictly after {@code after} that the alarm goes off on a day of the rule, ignoring
+     * its count, or empty if the rule has ended by then
+     */
+    public static Optional<Instant> next(LocalTime time, RecurrenceRule rule, ZoneRules rules, Instant after) {
+        var date = rule.next(localDate(after, rules));
+        
+        if (date.isPresent() && !at(date.get(), time, rules).isAfter(after))
+            date = rule.next(date.get().plusDays(1));
+        
+        return date.map((e) -> at(e, time, rules));
+    }
+    
+    /**
+     * @return how many days from {@code from} (0 for that day itself) until the first day in the mask
+     */
+    static int daysUntil(DayOfWeek from, int days) {
+        if (days == 0 || days == EVERY_DAY)
+            return 0;
+        
+        // rotate so bit 0 is from, then the lowest set bit is the distance
+        var shift = from.getValue() - 1;
+        var rotated = ((days >>> shift) | (days << (7 - shift))) & EVERY_DAY;
+        return Integer.numberOfTrailingZeros(rotated);
+    }
+    
+    private static LocalDate localDate(Instant instant, ZoneRules rules) {
+        var offset = rules.getOffset(instant);
+        return LocalDate.ofEpochDay(Math.floorDiv(instant.getEpochSecond() + offset.getTotalSeconds(), 86_400));
+    }
+    
+    private static Instant at(LocalDate date, LocalTime time, ZoneRules rules) {
+        // for both gaps and overlaps this is the offset from before the transition
+        var offset = rules.getOffset(date.atTime(time));
+        return Instant.ofEpochSecond(date.toEpochDay() * 86_400 + time.toSecondOfDay() - offset.getTotalSeconds(),
+                time.getNano());
+    }
+}
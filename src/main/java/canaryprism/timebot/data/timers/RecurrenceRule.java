@@ -0,0 +1,220 @@
+package canaryprism.timebot.data.timers;
+
+import org.json.JSONObject;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * which days a repeating alarm goes off on, like a cut down iCalendar RRULE
+ * <p>
+ * every {@code interval} days, weeks or months counted from {@code start}:
+ * <ul>
+ *     <li>{@link Frequency#DAILY} goes off every one of those days</li>
+ *     <li>{@link Frequency#WEEKLY} goes off on the days in the {@code days} mask of every one of those weeks,
+ *     weeks starting on monday</li>
+ *     <li>{@link Frequency#MONTHLY} goes off on {@code start}'s day of the month (or the month's last day if it's
+ *     shorter) when {@code week} is 0, otherwise on the {@code week}th (-1 for last) day in {@code days}</li>
+ * </ul>
+ * nothing goes off before {@code start} or after {@code until}, and with a {@code count} only that many more times
+ *
+ * @param days an {@link AlarmSchedule} day mask
+ * @param until the last day it may go off on, or null for no end
+ * @param count how many more times it goes off, or 0 for no limit
+ */
+public record RecurrenceRule(Frequency frequency, int interval, int days, int week, LocalDate start, LocalDate until, int count) {
+    
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY
+    }
+    
+    public RecurrenceRule {
+        Objects.requireNonNull(frequency, "frequency can't be null");
+        Objects.requireNonNull(start, "start can't be null");
+        
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval must be positive");
+        if ((days & ~AlarmSchedule.EVERY_DAY) != 0)
+            throw new IllegalArgumentException("days must only use the lowest 7 bits");
+        if (count < 0)
+            throw new IllegalArgumentException("count can't be negative");
+        if (until != null && until.isBefore(start))
+            throw new IllegalArgumentException("until can't be before start");
+        
+        switch (frequency) {
+            case DAILY -> {
+                if (days != 0 || week != 0)
+                    throw new IllegalArgumentException("daily rules don't take days or a week");
+            }
+            case WEEKLY -> {
+                if (days == 0)
+                    throw new IllegalArgumentException("weekly rules need at least one day");
+                if (week != 0)
+                    throw new IllegalArgumentException("weekly rules don't take a week");
+            }
+            case MONTHLY -> {
+                if (week == 0 && days != 0)
+                    throw new IllegalArgumentException("monthly rules on a day of the month don't take days");
+                if (week != 0 && Integer.bitCount(days) != 1)
+                    throw new IllegalArgumentException("monthly rules on a week need exactly one day");
+                if (week < -1 || week > 4)
+                    throw new IllegalArgumentException("week must be 1 to 4, or -1 for the last");
+            }
+        }
+    }
+    
+    public static RecurrenceRule fromJSON(JSONObject json) {
+        return new RecurrenceRule(
+                Frequency.valueOf(json.getString("frequency")),
+                json.optInt("interval", 1),
+                json.optInt("days", 0),
+                json.optInt("week", 0),
+                LocalDate.parse(json.getString("start")),
+                Optional.ofNullable(json.optString("until", null)).map(LocalDate::parse).orElse(null),
+                json.optInt("count", 0)
+        );
+    }
+    
+    /**
+     * @return the rule as json, leaving out anything at its default
+     */
+    public JSONObject toJSON() {
+        var json = new JSONObject()
+                .put("frequency", frequency.name())
+                .put("start", start.toString());
+        if (interval != 1)
+            json.put("interval", interval);
+        if (days != 0)
+            json.put("days", days);
+        if (week != 0)
+            json.put("week", week);
+        if (until != null)
+            json.put("until", until.toString());
+        if (count != 0)
+            json.put("count", count);
+        return json;
+    }
+    
+    /**
+     * @return the first day on or after {@code from} it goes off on, ignoring the count, or empty if that's after
+     * {@code until}
+     */
+    public Optional<LocalDate> next(LocalDate from) {
+        if (from.isBefore(start))
+            from = start;
+        
+        var date = switch (frequency) {
+            case DAILY -> nextDaily(from);
+            case WEEKLY -> nextWeekly(from);
+            case MONTHLY -> nextMonthly(from);
+        };
+        
+        return (until != null && date.isAfter(until)) ? Optional.empty() : Optional.of(date);
+    }
+    
+    private LocalDate nextDaily(LocalDate from) {
+        var behind = Math.floorMod(from.toEpochDay() - start.toEpochDay(), interval);
+        return (behind == 0) ? from : from.plusDays(interval - behind);
+    }
+    
+    private LocalDate nextWeekly(LocalDate from) {
+        var first_monday = start.minusDays(start.getDayOfWeek().getValue() - 1);
+        var week = Math.floorDiv(from.toEpochDay() - first_monday.toEpochDay(), 7);
+        var behind = Math.floorMod(week, interval);
+        
+        if (behind == 0) {
+            // the days left in this week, from today on
+            var today = from.getDayOfWeek().getValue() - 1;
+            var rest = days & (AlarmSchedule.EVERY_DAY << today) & AlarmSchedule.EVERY_DAY;
+            if (rest != 0)
+                return from.plusDays(Integer.numberOfTrailingZeros(rest) - today);
+        }
+        
+        return first_monday.plusWeeks(week + interval - behind).plusDays(Integer.numberOfTrailingZeros(days));
+    }
+    
+    private LocalDate nextMonthly(LocalDate from) {
+        var month = YearMonth.from(from);
+        var behind = Math.floorMod(YearMonth.from(start).until(month, ChronoUnit.MONTHS), interval);
+        
+        if (behind == 0) {
+            var date = inMonth(month);
+            if (!date.isBefore(from))
+                return date;
+        }
+        
+        // every month has one, so the next month in the interval always does
+        return inMonth(month.plusMonths(interval - behind));
+    }
+    
+    private LocalDate inMonth(YearMonth month) {
+        if (week == 0)
+            return month.atDay(Math.min(start.getDayOfMonth(), month.lengthOfMonth()));
+        
+        var day = DayOfWeek.of(Integer.numberOfTrailingZeros(days) + 1);
+        return month.atDay(1).with(TemporalAdjusters.dayOfWeekInMonth(week, day));
+    }
+    
+    /**
+     * @return the rule after it's gone off once more, or empty if that was its last time
+     */
+    public Optional<RecurrenceRule> occurred() {
+        return switch (count) {
+            case 0 -> Optional.of(this);
+            case 1 -> Optional.empty();
+            default -> Optional.of(new RecurrenceRule(frequency, interval, days, week, start, until, count - 1));
+        };
+    }
+    
+    /**
+     * @return the rule in english, like "every 2 weeks on Monday, Friday until 2025-01-01"
+     */
+    public String describe() {
+        var sb = new StringBuilder();
+        switch (frequency) {
+            case DAILY -> sb.append(every("day", "days"));
+            case WEEKLY -> sb.append(every("week", "weeks"))
+                    .append(" on ")
+                    .append(AlarmSchedule.days(days).stream().map(RecurrenceRule::name).collect(Collectors.joining(", ")));
+            case MONTHLY -> {
+                if (week == 0)
+                    sb.append("on day ").append(start.getDayOfMonth());
+                else
+                    sb.append("on the ")
+                            .append(switch (week) {
+                                case 1 -> "first";
+                                case 2 -> "second";
+                                case 3 -> "third";
+                                case 4 -> "fourth";
+                                default -> "last";
+                            })
+                            .append(' ')
+                            .append(name(DayOfWeek.of(Integer.numberOfTrailingZeros(days) + 1)));
+                sb.append(" of ").append(every("month", "months"));
+            }
+        }
+        
+        if (until != null)
+            sb.append(" until ").append(until);
+        if (count != 0)
+            sb.append(String.format(" (%d more time%s)", count, (count == 1) ? "" : "s"));
+        
+        return sb.toString();
+    }
+    
+    private String every(String one, String many) {
+        return (interval == 1) ? "every " + one : String.format("every %d %s", interval, many);
+    }
+    
+    private static String name(DayOfWeek day) {
+        return day.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+    }
+}
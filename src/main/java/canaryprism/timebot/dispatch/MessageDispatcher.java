@@ -0,0 +1,281 @@
+package canaryprism.timebot.dispatch;
+
+import canaryprism.timebot.metrics.Histogram;
+import canaryprism.timebot.metrics.MetricsRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.exceptions.RateLimitedException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * sends messages without ever blocking the caller
+ * <p>
+ * every channel has its own queue with at most one send in flight, so a channel's messages arrive in order and
+ * a slow or rate limited channel only holds up itself; jda's rate limiter already keeps each send within its
+ * bucket, a send to an exhausted bucket just completes later
+ * <p>
+ * sends that fail for a reason that may go away (discord's server errors, network trouble) are retried with
+ * exponential backoff, anything else is logged and dropped
+ * <p>
+ * messages waiting for the same channel are merged into one, a line each, as long as that fits in a single
+ * discord message; an idle channel also waits a short coalescing window before its first send, so reminders
+ * firing at the same moment (everyone's 09:00 alarm) go out together rather than one by one
+ */
+public class MessageDispatcher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(MessageDispatcher.class);
+
+    public static final int MAX_ATTEMPTS = 5;
+    public static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+    public static final Duration DEFAULT_COALESCE_WINDOW = Duration.ofMillis(50);
+
+    private record Pending(String content, long enqueued_nanos, CompletableFuture<Void> result) {}
+
+    private static final class ChannelQueue {
+        final MessageChannel channel;
+
+        // all below guarded by this
+        final ArrayDeque<Pending> pending = new ArrayDeque<>();
+        boolean sending;
+        boolean retired;
+
+        ChannelQueue(MessageChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final Map<Long, ChannelQueue> queues = new ConcurrentHashMap<>();
+
+    // completions and retries run here rather than on jda's threads, and never recurse into each other
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Duration coalesce_window;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Histogram delivery;
+
+    private volatile boolean closed;
+
+    public MessageDispatcher(MetricsRegistry metrics) {
+        this(metrics, DEFAULT_COALESCE_WINDOW);
+    }
+
+    /**
+     * @param coalesce_window how long an idle channel waits for more messages before sending, may be zero
+     */
+    public MessageDispatcher(MetricsRegistry metrics, Duration coalesce_window) {
+        this.coalesce_window = Objects.requireNonNull(coalesce_window, "coalesce window can't be null");
+        if (coalesce_window.isNegative())
+            throw new IllegalArgumentException("coalesce window can't be negative");
+
+        this.delivery = metrics.histogram("timebot_dispatch_delivery_seconds",
+                "how long a message took from being dispatched to being sent, retries included",
+                Histogram.LATENCY_BUCKETS);
+        metrics.gauge("timebot_dispatch_queued_messages",
+                "messages dispatched but not yet sent or given up on", queued::get);
+        metrics.counter("timebot_dispatch_sent_total", "messages sent, merged ones counted separately", sent::sum);
+        metrics.counter("timebot_dispatch_requests_total", "send requests made to discord", requests::sum);
+        metrics.counter("timebot_dispatch_retries_total", "sends retried after a transient failure", retried::sum);
+        metrics.counter("timebot_dispatch_failed_total", "messages given up on", failed::sum);
+    }
+
+    /**
+     * queues a message to be sent to the channel after every message queued for it before
+     *
+     * @return completes once the message is sent, or exceptionally once it's given up on
+     */
+    public CompletableFuture<Void> send(MessageChannel channel, String content) {
+        Objects.requireNonNull(channel, "channel can't be null");
+        Objects.requireNonNull(content, "content can't be null");
+
+        if (closed) {
+            logger.warn("message dispatched to channel {} after shutdown, dropping", channel.getIdLong());
+            return CompletableFuture.failedFuture(new IllegalStateException("dispatcher closed"));
+        }
+
+        var pending = new Pending(content, System.nanoTime(), new CompletableFuture<>());
+        queued.incrementAndGet();
+
+        while (true) {
+            var queue = queues.computeIfAbsent(channel.getIdLong(), (e) -> new ChannelQueue(channel));
+            boolean start;
+            synchronized (queue) {
+                // lost a race with the queue going idle, it's out of the map so get a fresh one
+                if (queue.retired)
+                    continue;
+
+                queue.pending.add(pending);
+                start = !queue.sending;
+                queue.sending = true;
+            }
+
+            if (start) {
+                if (coalesce_window.isZero())
+                    executor.execute(() -> sendNext(queue));
+                else
+                    CompletableFuture.delayedExecutor(coalesce_window.toNanos(), TimeUnit.NANOSECONDS, executor)
+                            .execute(() -> sendNext(queue));
+            }
+            return pending.result();
+        }
+    }
+
+    private void sendNext(ChannelQueue queue) {
+        var batch = new ArrayList<Pending>();
+        var content = new StringBuilder();
+        synchronized (queue) {
+            var first = queue.pending.poll();
+            if (first == null) {
+                queue.sending = false;
+                queue.retired = true;
+                queues.remove(queue.channel.getIdLong(), queue);
+                return;
+            }
+            batch.add(first);
+            content.append(first.content());
+
+            // a message too long on its own is still sent alone, it just never has anything merged into it
+            for (var next = queue.pending.peek();
+                 next != null && content.length() + 1 + next.content().length() <= Message.MAX_CONTENT_LENGTH;
+                 next = queue.pending.peek()) {
+                batch.add(queue.pending.poll());
+                content.append('\n').append(next.content());
+            }
+        }
+        attempt(queue, batch, content.toString(), 1);
+    }
+
+    private void attempt(ChannelQueue queue, List<Pending> batch, String content, int attempt) {
+        CompletableFuture<?> future;
+        try {
+            requests.increment();
+            future = queue.channel.sendMessage(content).submit();
+        } catch (RuntimeException e) {
+            // thrown before anything was sent, like missing permissions or an invalid message, retrying won't help
+            fail(queue, batch, attempt, e);
+            return;
+        }
+
+        future.whenCompleteAsync((message, error) -> {
+            if (error == null) {
+                var now = System.nanoTime();
+                for (var e : batch)
+                    delivery.observeNanos(now - e.enqueued_nanos());
+                sent.add(batch.size());
+                finish(batch, null);
+                sendNext(queue);
+            } else if (attempt < MAX_ATTEMPTS && isTransient(error)) {
+                retried.increment();
+                var backoff = INITIAL_BACKOFF.multipliedBy(1L << (attempt - 1));
+                logger.debug("send to channel {} failed (attempt {}), retrying in {}: {}",
+                        queue.channel.getIdLong(), attempt, backoff, error.toString());
+
+                CompletableFuture.delayedExecutor(backoff.toMillis(), TimeUnit.MILLISECONDS, executor)
+                        .execute(() -> attempt(queue, batch, content, attempt + 1));
+            } else {
+                fail(queue, batch, attempt, error);
+            }
+        }, executor);
+    }
+
+    private void fail(ChannelQueue queue, List<Pending> batch, int attempt, Throwable error) {
+        failed.add(batch.size());
+        logger.warn("couldn't send {} message(s) to channel {} after {} attempt(s): ",
+                batch.size(), queue.channel.getIdLong(), attempt, error);
+        finish(batch, error);
+        sendNext(queue);
+    }
+
+    private void finish(List<Pending> batch, Throwable error) {
+        for (var e : batch) {
+            if (error == null)
+                e.result().complete(null);
+            else
+                e.result().completeExceptionally(error);
+        }
+
+        if (queued.addAndGet(-batch.size()) == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private static boolean isTransient(Throwable error) {
+        for (var cause = error; cause != null; cause = cause.getCause()) {
+            switch (cause) {
+                case ErrorResponseException e -> {
+                    return e.isServerError();
+                }
+                case RateLimitedException e -> {
+                    return true;
+                }
+                case IOException e -> {
+                    return true;
+                }
+                case TimeoutException e -> {
+                    return true;
+                }
+                default -> {}
+            }
+        }
+        return false;
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * stops accepting messages and waits for the queued ones to be sent or given up on
+     *
+     * @param timeout the longest to wait, whatever is still queued after it is dropped
+     */
+    public void close(Duration timeout) {
+        closed = true;
+
+        var deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (this) {
+            while (queued.get() > 0) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    logger.warn("{} messages still queued at shutdown, dropping them", queued.get());
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        executor.shutdownNow();
+        logger.info("message dispatcher closed; sent: {} in {} requests, retried: {}, failed: {}",
+                sent.sum(), requests.sum(), retried.sum(), failed.sum());
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,81 @@
+package canaryprism.timebot.format;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * renders durations like {@code 2 days 1 hour 5 minutes 1 second}
+ * <p>
+ * days and hours are left out when they're 0, minutes and seconds are always there, and anything below a second is
+ * dropped; the words for each unit are given in singular and plural so the renderer can be localized
+ * <p>
+ * rendering appends straight into the caller's {@link StringBuilder}, nothing else is allocated
+ */
+public final class DurationRenderer {
+
+    public static final DurationRenderer ENGLISH = new DurationRenderer(
+            new Unit("day", "days"),
+            new Unit("hour", "hours"),
+            new Unit("minute", "minutes"),
+            new Unit("second", "seconds"),
+            "negative time");
+
+    /**
+     * the words for one unit
+     *
+     * @param one the word used for exactly 1
+     * @param other the word used for every other amount
+     */
+    public record Unit(String one, String other) {
+        public Unit {
+            Objects.requireNonNull(one, "one can't be null");
+            Objects.requireNonNull(other, "other can't be null");
+        }
+    }
+
+    private final Unit days, hours, minutes, seconds;
+    private final String negative;
+
+    /**
+     * @param negative what's rendered in place of a negative duration
+     */
+    public DurationRenderer(Unit days, Unit hours, Unit minutes, Unit seconds, String negative) {
+        this.days = Objects.requireNonNull(days, "days can't be null");
+        this.hours = Objects.requireNonNull(hours, "hours can't be null");
+        this.minutes = Objects.requireNonNull(minutes, "minutes can't be null");
+        this.seconds = Objects.requireNonNull(seconds, "seconds can't be null");
+        this.negative = Objects.requireNonNull(negative, "negative can't be null");
+    }
+
+    /**
+     * @return the builder, for chaining
+     */
+    public StringBuilder render(Duration duration, StringBuilder builder) {
+        if (duration.isNegative())
+            return builder.append(negative);
+
+        var total_seconds = duration.getSeconds();
+
+        var day_count = total_seconds / 86400;
+        var hour_count = (total_seconds / 3600) % 24;
+        var minute_count = (total_seconds / 60) % 60;
+        var second_count = total_seconds % 60;
+
+        if (day_count != 0)
+            append(builder, day_count, days).append(' ');
+        if (hour_count != 0)
+            append(builder, hour_count, hours).append(' ');
+        append(builder, minute_count, minutes).append(' ');
+        return append(builder, second_count, seconds);
+    }
+
+    public String render(Duration duration) {
+        return render(duration, new StringBuilder(32)).toString();
+    }
+
+    private static StringBuilder append(StringBuilder builder, long count, Unit unit) {
+        return builder.append(count)
+                .append(' ')
+                .append((count == 1) ? unit.one() : unit.other());
+    }
+}
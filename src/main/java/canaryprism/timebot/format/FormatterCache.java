@@ -0,0 +1,119 @@
+package canaryprism.timebot.format;
+
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * a bounded, least recently used cache of {@link DateTimeFormatter}s by pattern (or base formatter) and locale
+ * <p>
+ * formatters are immutable, so every user with the same pattern and locale can share one instance
+ * instead of compiling and localizing their own on every request
+ */
+public class FormatterCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final FormatterCache SHARED = new FormatterCache(DEFAULT_CAPACITY);
+
+    /**
+     * @param source either the pattern string or the formatter that was localized
+     */
+    private record Key(Object source, Locale locale) {}
+
+    private final int capacity;
+
+    // guarded by itself, access ordered so the eldest entry is the least recently used
+    private final LinkedHashMap<Key, DateTimeFormatter> formatters;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FormatterCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        this.capacity = capacity;
+        this.formatters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, DateTimeFormatter> eldest) {
+                if (size() <= FormatterCache.this.capacity)
+                    return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return the cache shared by the whole bot
+     */
+    public static FormatterCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return the formatter for the pattern in the locale
+     * @throws IllegalArgumentException if the pattern is invalid, like {@link DateTimeFormatter#ofPattern(String)}
+     */
+    public DateTimeFormatter ofPattern(String pattern, Locale locale) {
+        Objects.requireNonNull(pattern, "pattern can't be null");
+        Objects.requireNonNull(locale, "locale can't be null");
+
+        return get(new Key(pattern, locale), () -> DateTimeFormatter.ofPattern(pattern, locale));
+    }
+
+    /**
+     * @param formatter a long lived formatter, like a constant; it's keyed by identity
+     * @return the formatter localized to the locale
+     */
+    public DateTimeFormatter withLocale(DateTimeFormatter formatter, Locale locale) {
+        Objects.requireNonNull(formatter, "formatter can't be null");
+        Objects.requireNonNull(locale, "locale can't be null");
+
+        if (formatter.getLocale().equals(locale))
+            return formatter;
+
+        return get(new Key(formatter, locale), () -> formatter.withLocale(locale));
+    }
+
+    private DateTimeFormatter get(Key key, Supplier<DateTimeFormatter> factory) {
+        synchronized (formatters) {
+            var formatter = formatters.get(key);
+            if (formatter != null) {
+                hits.increment();
+                return formatter;
+            }
+        }
+
+        misses.increment();
+
+        // built outside the lock, if two threads race the first one in wins and both return that
+        var formatter = factory.get();
+        synchronized (formatters) {
+            var existing = formatters.putIfAbsent(key, formatter);
+            return (existing != null) ? existing : formatter;
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (formatters) {
+            size = formatters.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * @param hits lookups that found a cached formatter
+     * @param misses lookups that had to build one
+     * @param evictions formatters dropped to stay within capacity
+     * @param size formatters currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {}
+}
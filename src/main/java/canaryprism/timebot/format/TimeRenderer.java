@@ -0,0 +1,61 @@
+package canaryprism.timebot.format;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * renders one instant for many people, formatting each distinct zone, formatter and locale only once
+ * <p>
+ * listings like everyone's current time mostly repeat a handful of zones, so after the first person in a zone the
+ * rest are a map lookup; formatters are keyed by identity, which works because {@link FormatterCache} hands out
+ * one shared instance per pattern (or base formatter) and locale, and the locale is part of the formatter
+ * <p>
+ * not thread safe, make one per request
+ */
+public final class TimeRenderer {
+
+    /**
+     * @param formatter compared by identity, formatters don't override equals
+     */
+    private record Key(ZoneId zone, boolean zone_visible, DateTimeFormatter formatter) {}
+
+    private final Instant instant;
+    private final Map<Key, String> rendered = new HashMap<>();
+
+    public TimeRenderer(Instant instant) {
+        this.instant = Objects.requireNonNull(instant, "instant can't be null");
+    }
+
+    public Instant getInstant() {
+        return instant;
+    }
+
+    /**
+     * @param zone_visible whether the zone is passed to the formatter, hidden zones are formatted as a local time
+     * @return the instant in the zone, formatted
+     */
+    public String render(ZoneId zone, boolean zone_visible, DateTimeFormatter formatter) {
+        return rendered.computeIfAbsent(new Key(zone, zone_visible, formatter),
+                (key) -> render(instant, key.zone(), key.zone_visible(), key.formatter()));
+    }
+
+    /**
+     * @return how many different strings have been formatted
+     */
+    public int size() {
+        return rendered.size();
+    }
+
+    /**
+     * renders a single time without caching it, the same way {@link #render(ZoneId, boolean, DateTimeFormatter)}
+     * does
+     */
+    public static String render(Instant instant, ZoneId zone, boolean zone_visible, DateTimeFormatter formatter) {
+        var time = instant.atZone(zone);
+        return zone_visible ? formatter.format(time) : formatter.format(time.toLocalDateTime());
+    }
+}
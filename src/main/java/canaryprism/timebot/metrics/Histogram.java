@@ -0,0 +1,86 @@
+package canaryprism.timebot.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counts observations into fixed buckets, like a prometheus histogram
+ * <p>
+ * observing is lock free and never allocates, so it's fine on any hot path
+ */
+public final class Histogram {
+
+    /**
+     * for things that take from well under a millisecond to a few seconds, in seconds
+     */
+    public static final double[] LATENCY_BUCKETS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    /**
+     * for how late scheduled tasks ran, in seconds
+     */
+    public static final double[] LATENESS_BUCKETS = {
+            0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300
+    };
+
+    private final double[] bounds;
+    // one more than the bounds, the last one counts everything above the highest bound
+    private final LongAdder[] counts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * @param bounds the inclusive upper bounds of the buckets, ascending
+     */
+    public Histogram(double... bounds) {
+        for (int i = 1; i < bounds.length; i++)
+            if (!(bounds[i - 1] < bounds[i]))
+                throw new IllegalArgumentException("bounds must be strictly ascending");
+
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    public void observe(double value) {
+        var index = Arrays.binarySearch(bounds, value);
+        counts[(index >= 0) ? index : -index - 1].increment();
+        sum.add(value);
+    }
+
+    /**
+     * observes a duration in nanoseconds as seconds
+     */
+    public void observeNanos(long nanos) {
+        observe(nanos / 1e9);
+    }
+
+    public long count() {
+        var count = 0L;
+        for (var e : counts)
+            count += e.sum();
+        return count;
+    }
+
+    public double sum() {
+        return sum.sum();
+    }
+
+    void write(StringBuilder out, String name, String labels) {
+        var cumulative = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            var le = (i < bounds.length) ? MetricsRegistry.formatValue(bounds[i]) : "+Inf";
+
+            out.append(name).append("_bucket{");
+            if (!labels.isEmpty())
+                out.append(labels).append(',');
+            out.append("le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+
+        MetricsRegistry.writeSample(out, name + "_sum", labels, sum.sum());
+        MetricsRegistry.writeSample(out, name + "_count", labels, cumulative);
+    }
+}
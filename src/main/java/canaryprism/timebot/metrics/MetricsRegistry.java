@@ -0,0 +1,150 @@
+package canaryprism.timebot.metrics;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * holds the bot's metrics and renders them in the prometheus text exposition format
+ * <p>
+ * a metric is a family of series sharing a name, each series told apart by its labels;
+ * histograms are recorded into directly, gauges and counters are read from a supplier when scraped,
+ * so whatever already keeps the number doesn't need to keep it twice
+ */
+public final class MetricsRegistry {
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private interface Series {
+        void write(StringBuilder out, String name, String labels);
+    }
+
+    private record Family(String name, String help, String type, Map<String, Series> series) {}
+
+    // guarded by itself, kept in registration order so scrapes are stable
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * @param labels label names and values, alternating
+     * @return the histogram for these labels, created if this is the first time they're asked for
+     */
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return ((HistogramSeries) register(name, help, "histogram", labels,
+                () -> new HistogramSeries(new Histogram(buckets)))).histogram();
+    }
+
+    /**
+     * registers a gauge read from the supplier whenever the metrics are scraped;
+     * registering the same series again keeps the first supplier
+     *
+     * @param labels label names and values, alternating
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        Objects.requireNonNull(value, "value can't be null");
+        register(name, help, "gauge", labels, () -> new SupplierSeries(value));
+    }
+
+    /**
+     * registers a counter read from the supplier whenever the metrics are scraped, the value must never go down;
+     * registering the same series again keeps the first supplier
+     *
+     * @param labels label names and values, alternating
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        Objects.requireNonNull(value, "value can't be null");
+        register(name, help, "counter", labels, () -> new SupplierSeries(value));
+    }
+
+    private record HistogramSeries(Histogram histogram) implements Series {
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            histogram.write(out, name, labels);
+        }
+    }
+
+    private record SupplierSeries(DoubleSupplier value) implements Series {
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            writeSample(out, name, labels, value.getAsDouble());
+        }
+    }
+
+    private Series register(String name, String help, String type, String[] labels, Supplier<Series> factory) {
+        Objects.requireNonNull(name, "name can't be null");
+        Objects.requireNonNull(help, "help can't be null");
+        if (!NAME.matcher(name).matches())
+            throw new IllegalArgumentException(String.format("'%s' isn't a valid metric name", name));
+
+        var rendered = renderLabels(labels);
+
+        synchronized (families) {
+            var family = families.computeIfAbsent(name, (e) -> new Family(name, help, type, new LinkedHashMap<>()));
+            if (!family.type().equals(type))
+                throw new IllegalArgumentException(String.format("metric '%s' is already a %s", name, family.type()));
+
+            return family.series().computeIfAbsent(rendered, (e) -> factory.get());
+        }
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("labels must be name and value pairs");
+
+        var sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!LABEL.matcher(labels[i]).matches() || labels[i].startsWith("__") || labels[i].equals("le"))
+                throw new IllegalArgumentException(String.format("'%s' isn't a valid label name", labels[i]));
+
+            if (i > 0)
+                sb.append(',');
+            sb.append(labels[i]).append("=\"").append(escapeLabel(Objects.requireNonNull(labels[i + 1], "label value can't be null"))).append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return every metric in the prometheus text format
+     */
+    public String scrape() {
+        var out = new StringBuilder(4096);
+        synchronized (families) {
+            for (var family : families.values()) {
+                out.append("# HELP ").append(family.name()).append(' ').append(escapeHelp(family.help())).append('\n');
+                out.append("# TYPE ").append(family.name()).append(' ').append(family.type()).append('\n');
+                for (var e : family.series().entrySet())
+                    e.getValue().write(out, family.name(), e.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    static void writeSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty())
+            out.append('{').append(labels).append('}');
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    static String formatValue(double value) {
+        if (Double.isNaN(value))
+            return "NaN";
+        if (Double.isInfinite(value))
+            return (value > 0) ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,62 @@
+package canaryprism.timebot.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * serves a registry's metrics at {@code /metrics} for prometheus to scrape
+ */
+public final class MetricsServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(MetricsServer.class);
+
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+
+    public MetricsServer(MetricsRegistry registry, InetSocketAddress address) throws IOException {
+        this.registry = Objects.requireNonNull(registry, "registry can't be null");
+
+        this.server = HttpServer.create(Objects.requireNonNull(address, "address can't be null"), 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+
+        logger.info("serving metrics on {}", server.getAddress());
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            var body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
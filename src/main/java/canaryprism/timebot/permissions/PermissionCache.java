@@ -0,0 +1,105 @@
+package canaryprism.timebot.permissions;
+
+import net.dv8tion.jda.api.Permission;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * a bounded, least recently used cache of members' server wide permissions by (server, user)
+ * <p>
+ * entries expire after a fixed time to live, which is the only thing that drops them: the bot doesn't have the
+ * member and role intents that would say a member's roles or a role's permissions changed, so an entry can be up to
+ * the time to live out of date
+ * <p>
+ * permissions that can be had for free, like an interaction's attached member, shouldn't go through here at all
+ */
+public class PermissionCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private record Key(long server_id, long user_id) {}
+
+    private record Entry(long permissions, long expires_nanos) {}
+
+    private final long ttl_nanos;
+    private final int capacity;
+
+    // guarded by itself, access ordered so the eldest entry is the least recently used
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PermissionCache() {
+        this(DEFAULT_TTL, DEFAULT_CAPACITY);
+    }
+
+    public PermissionCache(Duration ttl, int capacity) {
+        if (Objects.requireNonNull(ttl, "ttl can't be null").isNegative() || ttl.isZero())
+            throw new IllegalArgumentException("ttl must be positive");
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        this.ttl_nanos = ttl.toNanos();
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= PermissionCache.this.capacity)
+                    return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param loader finds the permissions when they aren't cached or have expired, called outside any lock
+     * @return the user's permissions in the server
+     */
+    public EnumSet<Permission> get(long server_id, long user_id, Supplier<EnumSet<Permission>> loader) {
+        var key = new Key(server_id, user_id);
+        var now = System.nanoTime();
+
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry != null && now - entry.expires_nanos() < 0) {
+                hits.increment();
+                return Permission.getPermissions(entry.permissions());
+            }
+        }
+
+        misses.increment();
+
+        var permissions = loader.get();
+        var entry = new Entry(Permission.getRaw(permissions), System.nanoTime() + ttl_nanos);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        return permissions;
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * @param hits lookups answered from the cache
+     * @param misses lookups that had to load the permissions, including expired entries
+     * @param evictions entries dropped to stay within capacity
+     * @param size entries currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {}
+}
@@ -0,0 +1,157 @@
+package canaryprism.timebot.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * an append only log of json records, one per line
+ * <p>
+ * journals are numbered by generation and live next to the save file as {@code <save file>.journal.<generation>}
+ */
+class Journal implements AutoCloseable {
+    
+    private static final Logger logger = LogManager.getLogger(Journal.class);
+    
+    private final Path save_file;
+    
+    // all below guarded by this
+    private long generation;
+    private FileChannel channel;
+    private long size;
+    
+    private Journal(Path save_file, long generation) throws IOException {
+        this.save_file = save_file;
+        this.generation = generation;
+        open();
+    }
+    
+    static Journal open(Path save_file, long generation) throws IOException {
+        return new Journal(save_file, generation);
+    }
+    
+    static Path path(Path save_file, long generation) {
+        return save_file.resolveSibling(save_file.getFileName() + ".journal." + generation);
+    }
+    
+    /**
+     * @return the journal files that exist for the save file, by generation
+     */
+    static SortedMap<Long, Path> list(Path save_file) throws IOException {
+        var pattern = Pattern.compile(Pattern.quote(save_file.getFileName() + ".journal.") + "(\\d+)");
+        var journals = new TreeMap<Long, Path>();
+        
+        var directory = save_file.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory))
+            return journals;
+        
+        try (var stream = Files.list(directory)) {
+            stream.forEach((e) -> {
+                var matcher = pattern.matcher(e.getFileName().toString());
+                if (matcher.matches())
+                    journals.put(Long.parseLong(matcher.group(1)), e);
+            });
+        }
+        return journals;
+    }
+    
+    /**
+     * reads every record in a journal
+     * <p>
+     * a record that can't be parsed means the bot went down while appending it,
+     * so it and anything after it are ignored
+     *
+     * @return the number of records read
+     */
+    static long replay(Path file, Consumer<JSONObject> consumer) throws IOException {
+        long count = 0;
+        try (var reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                
+                JSONObject record;
+                try {
+                    record = new JSONObject(line);
+                } catch (JSONException e) {
+                    logger.warn("ignoring torn record at the end of journal '{}'", file);
+                    break;
+                }
+                
+                consumer.accept(record);
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private void open() throws IOException {
+        var file = path(save_file, generation);
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.size = channel.size();
+        
+        // a previous append may have been torn, make sure new records start on their own line
+        if (size > 0)
+            write(ByteBuffer.wrap(new byte[] { '\n' }));
+        
+        logger.debug("opened journal '{}'", file);
+    }
+    
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            size += channel.write(buffer);
+    }
+    
+    /**
+     * appends records and forces them to disk with a single fsync
+     *
+     * @return how many bytes were appended
+     */
+    synchronized int append(List<String> records) throws IOException {
+        var sb = new StringBuilder();
+        for (var e : records)
+            sb.append(e).append('\n');
+        
+        var bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        write(ByteBuffer.wrap(bytes));
+        channel.force(false);
+        return bytes.length;
+    }
+    
+    /**
+     * closes the current journal and starts appending to a new one
+     *
+     * @return the generation of the new journal
+     */
+    synchronized long rotate() throws IOException {
+        channel.close();
+        generation++;
+        open();
+        return generation;
+    }
+    
+    synchronized long size() {
+        return size;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
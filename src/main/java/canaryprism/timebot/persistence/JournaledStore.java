@@ -0,0 +1,235 @@
+package canaryprism.timebot.persistence;
+
+import canaryprism.timebot.data.*;
+import net.dv8tion.jda.api.JDA;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * persists {@link BotData} as a snapshot plus a write-ahead journal
+ * <p>
+ * every commit appends one record per changed entity to the journal, so its cost is proportional to the change;
+ * once the journal grows past the compaction threshold it's folded into a new snapshot in the background
+ * <p>
+ * records are whole-entity upserts, so replaying one more than once is harmless
+ */
+public class JournaledStore implements AutoCloseable {
+    
+    private static final Logger logger = LogManager.getLogger(JournaledStore.class);
+    
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 16L * 1024 * 1024;
+    
+    private final Path save_file;
+    private final long compaction_threshold;
+    
+    private volatile Journal journal;
+    
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile Thread compactor;
+    
+    private final LongAdder bytes_written = new LongAdder();
+    
+    public JournaledStore(Path save_file) {
+        this(save_file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+    
+    public JournaledStore(Path save_file, long compaction_threshold) {
+        this.save_file = Objects.requireNonNull(save_file, "save file can't be null");
+        this.compaction_threshold = compaction_threshold;
+    }
+    
+    /**
+     * reads the snapshot then replays the journals written after it
+     */
+    public BotData load(JDA api) throws IOException {
+        long snapshot_generation = 0;
+        
+        BotData data;
+        if (Files.isRegularFile(save_file)) {
+            logger.info("save file found");
+            var snapshot = SnapshotReader.read(save_file, api);
+            snapshot_generation = snapshot.journal_generation();
+            data = snapshot.data();
+        } else {
+            logger.info("no save file found");
+            data = new BotData();
+        }
+        
+        var next_generation = snapshot_generation;
+        for (var entry : Journal.list(save_file).entrySet()) {
+            if (entry.getKey() < snapshot_generation) {
+                // already folded into the snapshot
+                Files.deleteIfExists(entry.getValue());
+                continue;
+            }
+            
+            var count = Journal.replay(entry.getValue(), (record) -> apply(data, record, api));
+            logger.info("replayed {} records from journal '{}'", count, entry.getValue());
+            
+            next_generation = entry.getKey() + 1;
+        }
+        
+        // everything replayed is already durable
+        data.drainChanges();
+        
+        this.journal = Journal.open(save_file, next_generation);
+        
+        return data;
+    }
+    
+    private static void apply(BotData data, JSONObject record, JDA api) {
+        if (record.has("server_id")) {
+            var server = data.obtainServerData(record.getLong("server_id"));
+            if (record.has("user"))
+                server.putUserData(new UserData(record.getJSONObject("user"), api));
+            else
+                server.applySettings(record.getJSONObject("settings"), api);
+        } else if (record.has("dm_id")) {
+            var dm = data.obtainDmData(record.getLong("dm_id"));
+            if (record.has("user"))
+                dm.putUserData(new UserData(record.getJSONObject("user"), api));
+            else
+                dm.applySettings(record.getJSONObject("settings"));
+        } else {
+            logger.warn("ignoring unknown journal record {}", record);
+        }
+    }
+    
+    private static String record(BotData.Change change) {
+        var chat = change.chat();
+        var key = switch (chat) {
+            case ServerData server -> "{\"server_id\":" + server.getServerId();
+            case DmData dm -> "{\"dm_id\":" + dm.getChannelId();
+            default -> throw new IllegalArgumentException("unknown chat type " + chat.getClass());
+        };
+        
+        if (change.user() != null)
+            return key + ",\"user\":" + change.user().toJSONString() + "}";
+        
+        var settings = switch (chat) {
+            case ServerData server -> server.toSettingsJSON();
+            case DmData dm -> dm.toSettingsJSON();
+            default -> throw new IllegalArgumentException("unknown chat type " + chat.getClass());
+        };
+        return key + ",\"settings\":" + settings + "}";
+    }
+    
+    /**
+     * appends every change made since the last commit to the journal
+     *
+     * @return whether there was anything to commit
+     * @throws IOException if writing failed, the changes are queued again for the next commit
+     */
+    public boolean commit(BotData data) throws IOException {
+        var changes = data.drainChanges();
+        if (changes.isEmpty())
+            return false;
+        
+        try {
+            bytes_written.add(journal.append(changes.stream()
+                    .map(JournaledStore::record)
+                    .toList()));
+        } catch (IOException | RuntimeException e) {
+            requeue(changes);
+            throw e;
+        }
+        
+        logger.debug("committed {} changes", changes.size());
+        
+        if (journal.size() >= compaction_threshold)
+            compactAsync(data);
+        
+        return true;
+    }
+    
+    private static void requeue(List<BotData.Change> changes) {
+        for (var e : changes) {
+            if (e.user() != null)
+                e.user().markDirty();
+            else
+                e.chat().markDirty();
+        }
+    }
+    
+    private void compactAsync(BotData data) {
+        if (!compacting.compareAndSet(false, true))
+            return;
+        
+        compactor = Thread.ofVirtual().name("compactor").start(() -> {
+            try {
+                compact(data);
+            } catch (IOException e) {
+                logger.error("failed to compact journal: ", e);
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+    
+    /**
+     * writes a new snapshot and deletes the journals it covers
+     * <p>
+     * the journal is rotated first, so every record in the older journals happened before the snapshot was taken
+     */
+    public void compact(BotData data) throws IOException {
+        logger.debug("compacting journal...");
+        
+        var generation = journal.rotate();
+        
+        var temp_file = save_file.resolveSibling(save_file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temp_file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             var writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            data.toJSON()
+                    .put("journal_generation", generation)
+                    .write(writer);
+            writer.flush();
+            channel.force(true);
+        }
+        bytes_written.add(Files.size(temp_file));
+        Files.move(temp_file, save_file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        
+        for (var e : Journal.list(save_file).headMap(generation).values())
+            Files.deleteIfExists(e);
+        
+        logger.debug("compacted journal into snapshot, now at generation {}", generation);
+    }
+    
+    /**
+     * @return every byte written to journals and snapshots since this store was created
+     */
+    public long getBytesWritten() {
+        return bytes_written.sum();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        var compactor = this.compactor;
+        if (compactor != null) {
+            try {
+                compactor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        var journal = this.journal;
+        if (journal != null)
+            journal.close();
+    }
+}
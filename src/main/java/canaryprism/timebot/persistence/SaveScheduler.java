@@ -0,0 +1,147 @@
+package canaryprism.timebot.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * a write-behind stage for saving
+ * <p>
+ * save requests arriving within the window of each other are coalesced into a single save,
+ * and saves all run on one thread so there's never more than one write in flight
+ */
+public class SaveScheduler implements AutoCloseable {
+    
+    private static final Logger logger = LogManager.getLogger(SaveScheduler.class);
+    
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(500);
+    
+    private final BooleanSupplier save_action;
+    private final Duration window;
+    
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+            Thread.ofPlatform().name("save").daemon().factory());
+    
+    private final AtomicBoolean pending = new AtomicBoolean();
+    
+    private final LongAdder requested = new LongAdder();
+    private final LongAdder performed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder total_write_nanos = new LongAdder();
+    private final AtomicLong max_write_nanos = new AtomicLong();
+    private volatile long last_write_nanos;
+    
+    /**
+     * @param save_action the save to perform, returns whether anything was actually written
+     * @param window how long to wait for more requests before saving
+     */
+    public SaveScheduler(BooleanSupplier save_action, Duration window) {
+        this.save_action = Objects.requireNonNull(save_action, "save action can't be null");
+        this.window = Objects.requireNonNull(window, "window can't be null");
+        if (window.isNegative())
+            throw new IllegalArgumentException("window can't be negative");
+        
+        // a pending coalesced save is superseded by the final save in close()
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+    
+    public void request() {
+        requested.increment();
+        if (pending.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::run, window.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                pending.set(false);
+                logger.warn("save requested after shutdown, only the final save in close() still runs");
+            }
+        }
+    }
+    
+    private void run() {
+        pending.set(false);
+        perform();
+    }
+    
+    private void perform() {
+        var start = System.nanoTime();
+        try {
+            if (save_action.getAsBoolean())
+                written.increment();
+        } catch (RuntimeException e) {
+            logger.error("save failed: ", e);
+        } finally {
+            var elapsed = System.nanoTime() - start;
+            performed.increment();
+            total_write_nanos.add(elapsed);
+            max_write_nanos.accumulateAndGet(elapsed, Math::max);
+            last_write_nanos = elapsed;
+        }
+    }
+    
+    /**
+     * saves right now, waiting for any write already in flight to finish first
+     */
+    public void flush() {
+        try {
+            executor.submit(this::perform).get();
+        } catch (RejectedExecutionException e) {
+            logger.warn("flush requested after shutdown, ignoring");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("flush failed: ", e.getCause());
+        }
+    }
+    
+    public Stats getStats() {
+        var performed = this.performed.sum();
+        return new Stats(
+                requested.sum(),
+                performed,
+                written.sum(),
+                Duration.ofNanos(last_write_nanos),
+                Duration.ofNanos(max_write_nanos.get()),
+                Duration.ofNanos((performed == 0) ? 0 : total_write_nanos.sum() / performed)
+        );
+    }
+    
+    /**
+     * stops accepting requests, then saves one last time
+     * <p>
+     * the final save runs after the executor has stopped, so it covers every request that got in before then
+     * and the ones turned away while it was stopping
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        var terminated = false;
+        try {
+            terminated = executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // saves must never overlap, so only once the executor's thread is done with any write it had in flight
+        if (terminated)
+            perform();
+        else
+            logger.error("save executor didn't terminate in time, skipping the final save");
+        
+        logger.info("save scheduler closed; {}", getStats());
+    }
+    
+    /**
+     * @param requested how many saves were requested
+     * @param performed how many saves actually ran
+     * @param written how many of the saves that ran had changes to write
+     */
+    public record Stats(long requested, long performed, long written,
+                        Duration last_latency, Duration max_latency, Duration mean_latency) {}
+}
@@ -0,0 +1,152 @@
+package canaryprism.timebot.persistence;
+
+import canaryprism.timebot.data.BotData;
+import canaryprism.timebot.data.DmData;
+import canaryprism.timebot.data.ServerData;
+import canaryprism.timebot.data.UserData;
+import net.dv8tion.jda.api.JDA;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * reads a snapshot without ever holding all of it in memory
+ * <p>
+ * the file is pulled through a {@link JSONTokener} and only a single user's json is materialized at a time,
+ * it's turned into a {@link UserData} straight away and discarded
+ */
+class SnapshotReader {
+    
+    record Snapshot(BotData data, long journal_generation) {}
+    
+    private final JSONTokener tokener;
+    private final JDA api;
+    
+    private SnapshotReader(JSONTokener tokener, JDA api) {
+        this.tokener = tokener;
+        this.api = api;
+    }
+    
+    static Snapshot read(Path file, JDA api) throws IOException {
+        try (var reader = Files.newBufferedReader(file)) {
+            return new SnapshotReader(new JSONTokener(reader), api).readSnapshot();
+        }
+    }
+    
+    private Snapshot readSnapshot() {
+        var data = new BotData();
+        var journal_generation = new long[] { 0 };
+        
+        readObject((key) -> {
+            switch (key) {
+                case "servers" -> readArray(() -> data.putServerData(readServer()));
+                case "dms" -> readArray(() -> data.putDmData(readDm()));
+                case "journal_generation" -> journal_generation[0] = ((Number) tokener.nextValue()).longValue();
+                default -> tokener.nextValue();
+            }
+        });
+        
+        return new Snapshot(data, journal_generation[0]);
+    }
+    
+    private ServerData readServer() {
+        var settings = new JSONObject();
+        var users = new ArrayList<UserData>();
+        
+        readObject((key) -> {
+            if (key.equals("users"))
+                readArray(() -> users.add(readUser()));
+            else
+                settings.put(key, tokener.nextValue());
+        });
+        
+        // the server id may come after the users, so the server can only be made once the whole object is read
+        var server = new ServerData(settings.put("users", new JSONArray()), api);
+        for (var e : users)
+            server.putUserData(e);
+        return server;
+    }
+    
+    private DmData readDm() {
+        var settings = new JSONObject();
+        var users = new ArrayList<UserData>();
+        
+        readObject((key) -> {
+            if (key.equals("users"))
+                readArray(() -> users.add(readUser()));
+            else
+                settings.put(key, tokener.nextValue());
+        });
+        
+        var dm = new DmData(settings.put("users", new JSONArray()), api);
+        for (var e : users)
+            dm.putUserData(e);
+        return dm;
+    }
+    
+    private UserData readUser() {
+        if (!(tokener.nextValue() instanceof JSONObject json))
+            throw tokener.syntaxError("expected a user object");
+        
+        return new UserData(json, api);
+    }
+    
+    /**
+     * reads an object, the handler is given each key and must consume its value
+     */
+    private void readObject(Consumer<String> value_reader) {
+        if (tokener.nextClean() != '{')
+            throw tokener.syntaxError("expected '{'");
+        
+        if (tokener.nextClean() == '}')
+            return;
+        tokener.back();
+        
+        while (true) {
+            if (!(tokener.nextValue() instanceof String key))
+                throw tokener.syntaxError("expected a key");
+            if (tokener.nextClean() != ':')
+                throw tokener.syntaxError("expected ':'");
+            
+            value_reader.accept(key);
+            
+            switch (tokener.nextClean()) {
+                case ',' -> {}
+                case '}' -> {
+                    return;
+                }
+                default -> throw tokener.syntaxError("expected ',' or '}'");
+            }
+        }
+    }
+    
+    /**
+     * reads an array, the element reader is run once per element and must consume it
+     */
+    private void readArray(Runnable element_reader) {
+        if (tokener.nextClean() != '[')
+            throw tokener.syntaxError("expected '['");
+        
+        if (tokener.nextClean() == ']')
+            return;
+        tokener.back();
+        
+        while (true) {
+            element_reader.run();
+            
+            switch (tokener.nextClean()) {
+                case ',' -> {}
+                case ']' -> {
+                    return;
+                }
+                default -> throw tokener.syntaxError("expected ',' or ']'");
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package canaryprism.timebot.scheduler;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * keys filed by the hour of the year they're due every year, so one wake up an hour finds everything due in it
+ * <p>
+ * there's a bucket for each of the 24 hours of each of the 366 days a year may have; adding, moving and removing a
+ * key is constant time, and nothing is scheduled per key
+ * <p>
+ * february 29th is only its own day in leap years, in other years its buckets are due along with february 28th's
+ * <p>
+ * keys are compared by identity, so keys that are equal but distinct, like the same person's data in two servers,
+ * are filed separately
+ *
+ * @param <K> the key type
+ */
+public class BirthdayCalendar<K> {
+
+    public static final int DAYS = 366;
+    public static final int HOURS = 24;
+
+    // day of year in a leap year, so every month and day has a fixed index
+    private static final Year LEAP_YEAR = Year.of(2000);
+    private static final int FEBRUARY_29 = LEAP_YEAR.atMonth(Month.FEBRUARY).atDay(29).getDayOfYear() - 1;
+
+    // all guarded by this
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final Set<K>[] buckets = new Set[DAYS * HOURS];
+    private final Map<K, Integer> slots = new IdentityHashMap<>();
+
+    /**
+     * files the key under the hour, moving it from wherever it was before
+     */
+    public synchronized void put(K key, int month, int day, int hour) {
+        Objects.requireNonNull(key, "key can't be null");
+        var slot = slot(month, day, hour);
+
+        var previous = slots.put(key, slot);
+        if (previous != null) {
+            if (previous == slot)
+                return;
+            removeFromBucket(key, previous);
+        }
+
+        var bucket = buckets[slot];
+        if (bucket == null)
+            bucket = buckets[slot] = Collections.newSetFromMap(new IdentityHashMap<>());
+        bucket.add(key);
+    }
+
+    public synchronized void remove(K key) {
+        var previous = slots.remove(key);
+        if (previous != null)
+            removeFromBucket(key, previous);
+    }
+
+    private void removeFromBucket(K key, int slot) {
+        var bucket = buckets[slot];
+        bucket.remove(key);
+        if (bucket.isEmpty())
+            buckets[slot] = null;
+    }
+
+    /**
+     * @param hour a utc date and time, only its date and hour are used
+     * @return a copy of the keys due in that hour
+     */
+    public synchronized List<K> due(LocalDateTime hour) {
+        var keys = new ArrayList<K>();
+        addBucket(keys, slot(hour.getMonthValue(), hour.getDayOfMonth(), hour.getHour()));
+
+        if (hour.getMonth() == Month.FEBRUARY && hour.getDayOfMonth() == 28 && !Year.isLeap(hour.getYear()))
+            addBucket(keys, FEBRUARY_29 * HOURS + hour.getHour());
+
+        return keys;
+    }
+
+    private void addBucket(List<K> keys, int slot) {
+        var bucket = buckets[slot];
+        if (bucket != null)
+            keys.addAll(bucket);
+    }
+
+    /**
+     * @return how many keys are filed
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    private static int slot(int month, int day, int hour) {
+        if (hour < 0 || hour >= HOURS)
+            throw new IllegalArgumentException("hour must be 0 to 23");
+        return (LEAP_YEAR.atMonth(month).atDay(day).getDayOfYear() - 1) * HOURS + hour;
+    }
+}
@@ -0,0 +1,39 @@
+package canaryprism.timebot.scheduler;
+
+import java.time.Instant;
+
+public interface TaskScheduler extends AutoCloseable {
+
+    /**
+     * schedules a task to run at (or as soon as possible after) the given time
+     * <p>
+     * times in the past run as soon as possible
+     *
+     * @param task the task to run
+     * @param time the time to run it at
+     * @return a handle that may be used to cancel the task
+     */
+    Handle schedule(Runnable task, Instant time);
+
+    /**
+     * @return the number of tasks that are scheduled but haven't been dispatched yet
+     */
+    int pendingCount();
+
+    @Override
+    void close();
+
+    interface Handle {
+
+        Instant getTime();
+
+        /**
+         * cancels the task if it hasn't been dispatched yet
+         *
+         * @return true if this call cancelled the task
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+    }
+}
@@ -0,0 +1,293 @@
+package canaryprism.timebot.scheduler;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * a hierarchical timing wheel
+ * <p>
+ * tasks are bucketed by deadline into {@value LEVELS} wheels of {@value WHEEL_SIZE} slots each,
+ * every level covering {@value WHEEL_SIZE} times the span of the one below it;
+ * inserting and cancelling are O(1), and tasks in higher wheels are cascaded down as the
+ * lower wheel wraps around
+ * <p>
+ * the wheel is advanced by a single ticker thread which only moves due tasks onto the executor,
+ * so a slow task never delays any other
+ */
+public class TimingWheelScheduler implements TaskScheduler {
+
+    private static final Logger logger = LogManager.getLogger(TimingWheelScheduler.class);
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 6;
+
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private static final long MAX_SLEEP_MILLIS = 1000;
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+
+    private final long tick_millis;
+    private final long start_millis;
+
+    private final ExecutorService executor;
+
+    private final Entry[][] wheels = new Entry[LEVELS][WHEEL_SIZE];
+
+    // all below guarded by this
+    private long current_tick;
+    private int pending;
+
+    private final Thread ticker;
+    private volatile boolean closed;
+
+    public TimingWheelScheduler() {
+        this(DEFAULT_TICK, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * @param tick the resolution of the wheel
+     * @param executor the executor due tasks are run on, it's shut down when this scheduler is closed
+     */
+    public TimingWheelScheduler(Duration tick, ExecutorService executor) {
+        this.tick_millis = Objects.requireNonNull(tick, "tick can't be null").toMillis();
+        if (tick_millis <= 0)
+            throw new IllegalArgumentException("tick must be at least 1 millisecond");
+
+        this.executor = Objects.requireNonNull(executor, "executor can't be null");
+
+        for (var wheel : wheels)
+            for (int i = 0; i < WHEEL_SIZE; i++)
+                wheel[i] = Entry.sentinel();
+
+        this.start_millis = System.currentTimeMillis();
+
+        this.ticker = Thread.ofPlatform()
+                .name("timing_wheel")
+                .start(this::tickLoop);
+    }
+
+    @Override
+    public Handle schedule(Runnable task, Instant time) {
+        Objects.requireNonNull(task, "task can't be null");
+        Objects.requireNonNull(time, "time can't be null");
+
+        if (closed)
+            throw new IllegalStateException("scheduler closed");
+
+        var entry = new Entry(this, task, time,
+                Math.ceilDiv(time.toEpochMilli() - start_millis, tick_millis));
+
+        boolean due;
+        synchronized (this) {
+            pending++;
+            due = !insert(entry);
+            if (due) {
+                pending--;
+                entry.state = Entry.DISPATCHED;
+            }
+        }
+
+        if (due)
+            dispatch(entry);
+
+        return entry;
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        return pending;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ticker.interrupt();
+        executor.shutdown();
+    }
+
+    /**
+     * places an entry into the wheel it belongs in relative to the current tick
+     *
+     * @return false if the entry is already due and wasn't placed
+     */
+    private boolean insert(Entry entry) {
+        var delta = entry.deadline - current_tick;
+        if (delta <= 0)
+            return false;
+
+        var placement = current_tick + Math.min(delta, MAX_DELTA);
+
+        var level = (63 - Long.numberOfLeadingZeros(Math.min(delta, MAX_DELTA))) / WHEEL_BITS;
+        var slot = (int) ((placement >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+        entry.link(wheels[level][slot]);
+        return true;
+    }
+
+    private synchronized List<Entry> advance() {
+        current_tick++;
+
+        var due = new ArrayList<Entry>();
+
+        // cascade the higher wheels first so their entries may still land in a lower slot that's due this tick
+        for (int level = LEVELS - 1; level > 0; level--) {
+            var shift = WHEEL_BITS * level;
+            if ((current_tick & ((1L << shift) - 1)) != 0)
+                continue;
+
+            var head = wheels[level][(int) ((current_tick >>> shift) & WHEEL_MASK)];
+            for (var entry = head.detachAll(); entry != null; ) {
+                var next = entry.next;
+                entry.next = entry.prev = null;
+                if (!insert(entry))
+                    due.add(entry);
+                entry = next;
+            }
+        }
+
+        var head = wheels[0][(int) (current_tick & WHEEL_MASK)];
+        for (var entry = head.detachAll(); entry != null; ) {
+            var next = entry.next;
+            entry.next = entry.prev = null;
+            due.add(entry);
+            entry = next;
+        }
+
+        for (var entry : due)
+            entry.state = Entry.DISPATCHED;
+        pending -= due.size();
+
+        return due;
+    }
+
+    private void tickLoop() {
+        logger.debug("timing wheel started with a tick of {}ms", tick_millis);
+        while (!closed) {
+            long next_tick_millis;
+            synchronized (this) {
+                next_tick_millis = start_millis + (current_tick + 1) * tick_millis;
+            }
+
+            var wait = next_tick_millis - System.currentTimeMillis();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(Math.min(wait, MAX_SLEEP_MILLIS));
+                } catch (InterruptedException e) {
+                    if (closed)
+                        break;
+                }
+                continue;
+            }
+
+            for (var entry : advance())
+                dispatch(entry);
+        }
+        logger.debug("timing wheel stopped");
+    }
+
+    private void dispatch(Entry entry) {
+        try {
+            executor.execute(() -> {
+                try {
+                    entry.task.run();
+                } catch (RuntimeException e) {
+                    logger.error("scheduled task threw an exception: ", e);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("couldn't dispatch scheduled task: ", e);
+        }
+    }
+
+    private static final class Entry implements Handle {
+
+        static final int PENDING = 0, CANCELLED = 1, DISPATCHED = 2;
+
+        private final TimingWheelScheduler scheduler;
+        private final Runnable task;
+        private final Instant time;
+        private final long deadline;
+
+        // all below guarded by scheduler
+        private int state = PENDING;
+        private Entry prev, next;
+
+        Entry(TimingWheelScheduler scheduler, Runnable task, Instant time, long deadline) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.time = time;
+            this.deadline = deadline;
+        }
+
+        static Entry sentinel() {
+            var entry = new Entry(null, null, null, 0);
+            entry.prev = entry.next = entry;
+            return entry;
+        }
+
+        void link(Entry head) {
+            this.prev = head.prev;
+            this.next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = null;
+        }
+
+        /**
+         * empties the list this sentinel heads
+         *
+         * @return the first entry of the now detached, null terminated list
+         */
+        Entry detachAll() {
+            if (next == this)
+                return null;
+
+            var first = next;
+            prev.next = null;
+            prev = next = this;
+            return first;
+        }
+
+        @Override
+        public Instant getTime() {
+            return time;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (scheduler) {
+                if (state != PENDING)
+                    return false;
+
+                state = CANCELLED;
+                if (next != null)
+                    unlink();
+                scheduler.pending--;
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            synchronized (scheduler) {
+                return state == CANCELLED;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package canaryprism.timebot.util;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * a thread safe map from primitive longs to non-null values
+ * <p>
+ * keys are spread over independently locked {@link LongMap} stripes, so threads working on different keys rarely
+ * contend on the same lock; a stripe is only created once a key is put in it, so a map with few keys, like a dm's
+ * users, costs about as much as a single {@link LongMap}
+ *
+ * @param <V> the value type
+ */
+public class ConcurrentLongMap<V> {
+    
+    private static final int DEFAULT_STRIPES = 16;
+    
+    // null until something is put in the stripe, after that never replaced
+    private final AtomicReferenceArray<LongMap<V>> stripes;
+    private final int shift;
+    
+    public ConcurrentLongMap() {
+        this(DEFAULT_STRIPES);
+    }
+    
+    public ConcurrentLongMap(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1)
+            throw new IllegalArgumentException("stripe count must be a positive power of 2");
+        
+        this.stripes = new AtomicReferenceArray<>(stripes);
+        this.shift = 64 - Integer.numberOfTrailingZeros(stripes);
+    }
+    
+    private int stripeIndex(long key) {
+        // picks from the high bits of a different mix than LongMap uses internally, so a stripe's keys still spread
+        return (shift == 64) ? 0 : (int) ((key * 0x9e3779b97f4a7c15L) >>> shift);
+    }
+    
+    /**
+     * @return the key's stripe, or null if nothing has been put in it yet
+     */
+    private LongMap<V> stripeFor(long key) {
+        return stripes.get(stripeIndex(key));
+    }
+    
+    private LongMap<V> obtainStripe(long key) {
+        var index = stripeIndex(key);
+        var stripe = stripes.get(index);
+        if (stripe == null) {
+            var created = new LongMap<V>();
+            stripe = stripes.compareAndExchange(index, null, created);
+            if (stripe == null)
+                stripe = created;
+        }
+        return stripe;
+    }
+    
+    public V get(long key) {
+        var stripe = stripeFor(key);
+        if (stripe == null)
+            return null;
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+    
+    public V put(long key, V value) {
+        var stripe = obtainStripe(key);
+        synchronized (stripe) {
+            return stripe.put(key, value);
+        }
+    }
+    
+    /**
+     * the mapping function runs while the key's stripe is locked, it mustn't touch this map
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mapping) {
+        var stripe = obtainStripe(key);
+        synchronized (stripe) {
+            return stripe.computeIfAbsent(key, mapping);
+        }
+    }
+    
+    public V remove(long key) {
+        var stripe = stripeFor(key);
+        if (stripe == null)
+            return null;
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+    
+    public int size() {
+        var size = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            var stripe = stripes.get(i);
+            if (stripe == null)
+                continue;
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * @return an unmodifiable, weakly consistent view of the values
+     * <p>
+     * iterating only locks one stripe at a time, long enough to take that stripe's values,
+     * so it never blocks writers to the rest of the map
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<>() {
+                    private int next_stripe = 0;
+                    private Object[] current = new Object[0];
+                    private int index = 0;
+                    
+                    @Override
+                    public boolean hasNext() {
+                        while (index >= current.length) {
+                            if (next_stripe >= stripes.length())
+                                return false;
+                            
+                            var stripe = stripes.get(next_stripe++);
+                            if (stripe == null)
+                                continue;
+                            synchronized (stripe) {
+                                current = stripe.values().toArray();
+                            }
+                            index = 0;
+                        }
+                        return true;
+                    }
+                    
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public V next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        return (V) current[index++];
+                    }
+                };
+            }
+            
+            @Override
+            public int size() {
+                return ConcurrentLongMap.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,154 @@
+package canaryprism.timebot.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * runs tasks on virtual threads, one at a time and in submission order for each key
+ * <p>
+ * tasks with different keys run concurrently and never wait on each other; a key only holds a queue while it has
+ * tasks waiting or running, so idle keys cost nothing
+ *
+ * @param <K> the key type, compared by equals
+ */
+public class KeyedExecutor<K> implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(KeyedExecutor.class);
+
+    private final class KeyQueue {
+        final K key;
+
+        // all below guarded by this
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        boolean running;
+        boolean retired;
+
+        KeyQueue(K key) {
+            this.key = key;
+        }
+    }
+
+    private final Map<K, KeyQueue> queues = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param name the name given to the virtual threads tasks run on
+     */
+    public KeyedExecutor(String name) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name).factory());
+    }
+
+    /**
+     * runs the task after every task submitted for the key before it has finished
+     *
+     * @throws RejectedExecutionException if this executor is closed
+     */
+    public void execute(K key, Runnable task) {
+        Objects.requireNonNull(key, "key can't be null");
+        Objects.requireNonNull(task, "task can't be null");
+
+        if (closed)
+            throw new RejectedExecutionException("executor closed");
+
+        pending.incrementAndGet();
+
+        while (true) {
+            var queue = queues.computeIfAbsent(key, KeyQueue::new);
+            boolean start;
+            synchronized (queue) {
+                // lost a race with the queue going idle, it's out of the map so get a fresh one
+                if (queue.retired)
+                    continue;
+
+                queue.tasks.add(task);
+                start = !queue.running;
+                queue.running = true;
+            }
+
+            if (start)
+                executor.execute(() -> drain(queue));
+            return;
+        }
+    }
+
+    private void drain(KeyQueue queue) {
+        while (true) {
+            Runnable task;
+            synchronized (queue) {
+                task = queue.tasks.poll();
+                if (task == null) {
+                    queue.running = false;
+                    queue.retired = true;
+                    queues.remove(queue.key, queue);
+                    return;
+                }
+            }
+
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("task for {} threw an exception: ", queue.key, e);
+            } finally {
+                if (pending.decrementAndGet() == 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return tasks submitted and not yet finished, running ones included
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * stops accepting tasks and waits for the submitted ones to finish
+     *
+     * @param timeout the longest to wait, tasks still waiting after it are interrupted
+     */
+    public void close(Duration timeout) {
+        closed = true;
+
+        var deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (this) {
+            while (pending.get() > 0) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    logger.warn("{} tasks still pending at shutdown", pending.get());
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,210 @@
+package canaryprism.timebot.util;
+
+import java.util.*;
+import java.util.function.LongFunction;
+
+/**
+ * an open addressing hash map from primitive longs to non-null values
+ * <p>
+ * keys are stored unboxed with linear probing, so an entry costs two array slots instead of a node, a boxed key
+ * and a table slot like in {@link HashMap}
+ * <p>
+ * not thread safe
+ *
+ * @param <V> the value type
+ */
+public class LongMap<V> {
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    private long[] keys;
+    private V[] values;
+    private int size;
+    private int resize_at;
+    
+    public LongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public LongMap(int expected_size) {
+        allocate(tableSizeFor(expected_size));
+    }
+    
+    private static int tableSizeFor(int expected_size) {
+        var needed = (int) Math.ceil(Math.max(expected_size, 1) / LOAD_FACTOR);
+        return Math.max(DEFAULT_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = (V[]) new Object[capacity];
+        this.resize_at = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    private static int hash(long key) {
+        // snowflakes have very regular low bits, so mix them properly before masking
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+    
+    private int indexOf(long key) {
+        var mask = keys.length - 1;
+        var i = hash(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -(i + 1);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+    
+    public V get(long key) {
+        var i = indexOf(key);
+        return (i >= 0) ? values[i] : null;
+    }
+    
+    /**
+     * @return the previous value, or null if there wasn't one
+     */
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value can't be null");
+        
+        var i = indexOf(key);
+        if (i >= 0) {
+            var old = values[i];
+            values[i] = value;
+            return old;
+        }
+        
+        insertAt(-(i + 1), key, value);
+        return null;
+    }
+    
+    public V computeIfAbsent(long key, LongFunction<? extends V> mapping) {
+        var i = indexOf(key);
+        if (i >= 0)
+            return values[i];
+        
+        var value = Objects.requireNonNull(mapping.apply(key), "mapped value can't be null");
+        
+        // the mapping function may not modify this map so the slot is still free
+        insertAt(-(i + 1), key, value);
+        return value;
+    }
+    
+    private void insertAt(int i, long key, V value) {
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resize_at)
+            rehash(keys.length << 1);
+    }
+    
+    public V remove(long key) {
+        var i = indexOf(key);
+        if (i < 0)
+            return null;
+        
+        var old = values[i];
+        
+        // shift back any entries after it in the probe sequence so lookups never stop early at the hole
+        var mask = keys.length - 1;
+        var hole = i;
+        var j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null)
+                break;
+            
+            var home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        size--;
+        
+        return old;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+    
+    private void rehash(int capacity) {
+        var old_keys = keys;
+        var old_values = values;
+        allocate(capacity);
+        
+        var mask = capacity - 1;
+        for (int i = 0; i < old_keys.length; i++) {
+            if (old_values[i] == null)
+                continue;
+            
+            var j = hash(old_keys[i]) & mask;
+            while (values[j] != null)
+                j = (j + 1) & mask;
+            keys[j] = old_keys[i];
+            values[j] = old_values[i];
+        }
+    }
+    
+    /**
+     * @return a view of the values, it reflects changes to this map and mustn't be iterated while the map is modified
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<>() {
+                    private int index = advance(0);
+                    
+                    private int advance(int from) {
+                        while (from < values.length && values[from] == null)
+                            from++;
+                        return from;
+                    }
+                    
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+                    
+                    @Override
+                    public V next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        var value = values[index];
+                        index = advance(index + 1);
+                        return value;
+                    }
+                };
+            }
+            
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
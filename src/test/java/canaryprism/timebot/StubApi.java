@@ -0,0 +1,59 @@
+package canaryprism.timebot;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.requests.restaction.CacheRestAction;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * just enough of a {@link JDA} to load saved data without a connection
+ * <p>
+ * users are made up on the spot from their id and equal by it; there are no channels, so the data can't have
+ * birthdays, timers or alarms
+ */
+public final class StubApi {
+    
+    private StubApi() {}
+    
+    public static User user(long id) {
+        return (User) Proxy.newProxyInstance(StubApi.class.getClassLoader(), new Class<?>[] { User.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getIdLong" -> id;
+                    case "getId" -> Long.toUnsignedString(id);
+                    case "getAsMention" -> "<@" + id + ">";
+                    case "equals" -> args[0] instanceof User other && other.getIdLong() == id;
+                    case "hashCode" -> Long.hashCode(id);
+                    case "toString" -> "User:" + id;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+    
+    public static JDA jda() {
+        return (JDA) Proxy.newProxyInstance(StubApi.class.getClassLoader(), new Class<?>[] { JDA.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUserById" -> user(toId(args[0]));
+                    case "retrieveUserById" -> retrieved(user(toId(args[0])));
+                    case "getGuildChannelById", "getTextChannelById", "getGuildById" -> null;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "StubApi";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+    
+    private static long toId(Object id) {
+        return (id instanceof String string) ? Long.parseUnsignedLong(string) : (long) id;
+    }
+    
+    private static CacheRestAction<?> retrieved(User user) {
+        return (CacheRestAction<?>) Proxy.newProxyInstance(StubApi.class.getClassLoader(), new Class<?>[] { CacheRestAction.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "complete" -> user;
+                    case "submit" -> CompletableFuture.completedFuture(user);
+                    case "useCache", "setCheck", "timeout", "deadline" -> proxy;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,120 @@
+package canaryprism.timebot.autocomplete;
+
+import canaryprism.slavacord.autocomplete.AutocompleteSuggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionIndexTest {
+
+    @Test
+    void ranksExactThenPrefixThenWordThenAnywhere() {
+        var anywhere = AutocompleteSuggestion.of("comparison");
+        var word = AutocompleteSuggestion.of("Europe/Paris");
+        var prefix = AutocompleteSuggestion.of("Parisian");
+        var exact = AutocompleteSuggestion.of("Paris");
+
+        // added worst first, so the order can only come from the ranking
+        var index = SuggestionIndex.<String>builder()
+                .add(anywhere, "comparison")
+                .add(word, "Europe/Paris")
+                .add(prefix, "Parisian")
+                .add(exact, "Paris")
+                .build();
+
+        assertEquals(List.of(exact, prefix, word, anywhere), index.search("paris"));
+    }
+
+    @Test
+    void tiesGoToTheSuggestionAddedFirst() {
+        var first = AutocompleteSuggestion.of("America/New_York");
+        var second = AutocompleteSuggestion.of("America/Chicago");
+
+        var index = SuggestionIndex.<String>builder()
+                .add(first, "America/New_York")
+                .add(second, "America/Chicago")
+                .build();
+
+        assertEquals(List.of(first, second), index.search("america"));
+    }
+
+    @Test
+    void aSuggestionCountsOnceAtItsBestMatch() {
+        var tokyo = AutocompleteSuggestion.of("Asia/Tokyo");
+        var kyoto = AutocompleteSuggestion.of("Kyoto");
+
+        var index = SuggestionIndex.<String>builder()
+                .add(tokyo, "Asia/Tokyo", "Tokyo Kyoto")
+                .add(kyoto, "Kyoto")
+                .build();
+
+        // tokyo matches "kyoto" anywhere in "asiatokyo" and as a word in "tokyokyoto", kyoto matches exactly
+        assertEquals(List.of(kyoto, tokyo), index.search("kyoto"));
+    }
+
+    @Test
+    void resultsAreLimited() {
+        var builder = SuggestionIndex.<String>builder();
+        var added = new ArrayList<AutocompleteSuggestion<String>>();
+        for (int i = 0; i < 40; i++) {
+            var suggestion = AutocompleteSuggestion.of("zone " + i);
+            added.add(suggestion);
+            builder.add(suggestion, "zone " + i);
+        }
+        var index = builder.build();
+
+        assertEquals(40, index.size());
+        assertEquals(SuggestionIndex.MAX_SUGGESTIONS, index.search("zone").size());
+        assertEquals(added.subList(0, 3), index.search("zone", 3));
+        assertEquals(List.of(), index.search("zone", 0));
+
+        // a better match past the limit still gets in
+        assertEquals(List.of(added.get(39)), index.search("zone 39", 1));
+    }
+
+    @Test
+    void blankQueriesGiveTheFirstSuggestions() {
+        var builder = SuggestionIndex.<String>builder();
+        var added = new ArrayList<AutocompleteSuggestion<String>>();
+        for (int i = 0; i < 30; i++) {
+            var suggestion = AutocompleteSuggestion.of("zone " + i);
+            added.add(suggestion);
+            builder.add(suggestion, "zone " + i);
+        }
+        var index = builder.build();
+
+        assertEquals(added.subList(0, SuggestionIndex.MAX_SUGGESTIONS), index.search(""));
+        assertEquals(added.subList(0, 2), index.search(" / ", 2));
+    }
+
+    @Test
+    void queriesAreNormalized() {
+        var sao_paulo = AutocompleteSuggestion.of("America/Sao_Paulo");
+        var index = SuggestionIndex.<String>builder()
+                .add(sao_paulo, "America/Sao_Paulo", "São Paulo")
+                .build();
+
+        assertEquals(List.of(sao_paulo), index.search("SÃO pau"));
+        assertEquals(List.of(sao_paulo), index.search("sao-paulo"));
+        assertEquals(List.of(), index.search("lisbon"));
+
+        assertTrue(index.hasExactMatch("são paulo"));
+        assertFalse(index.hasExactMatch("paulo"));
+    }
+
+    @Test
+    void offsetSignsAreKept() {
+        var plus = AutocompleteSuggestion.of("+05:00");
+        var minus = AutocompleteSuggestion.of("-05:00");
+        var index = SuggestionIndex.<String>builder()
+                .add(plus, "+05:00")
+                .add(minus, "-05:00")
+                .build();
+
+        assertEquals(List.of(minus), index.search("-05"));
+        assertEquals(List.of(plus, minus), index.search("05"));
+    }
+}
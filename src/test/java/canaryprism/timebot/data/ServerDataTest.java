@@ -0,0 +1,84 @@
+package canaryprism.timebot.data;
+
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerDataTest {
+    
+    private static final GuildMessageChannel CHANNEL = (GuildMessageChannel) Proxy.newProxyInstance(
+            ServerDataTest.class.getClassLoader(), new Class<?>[] { GuildMessageChannel.class },
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+    
+    private final ServerData server = new ServerData(1);
+    
+    private final ZonedDateTime this_hour = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+    
+    private UserData withBirthday(long id, ZonedDateTime time) {
+        var user = server.obtainUserData(UserSnowflake.fromId(id));
+        user.setBirthdayData(new BirthdayData(time.withYear(2000), CHANNEL));
+        return user;
+    }
+    
+    private static List<UserData> users(List<ServerData.UpcomingBirthday> upcoming) {
+        return upcoming.stream().map(ServerData.UpcomingBirthday::user).toList();
+    }
+    
+    @Test
+    void upcomingBirthdaysComeSoonestFirst() {
+        var in_two_days = withBirthday(1, this_hour.plusDays(2));
+        var in_a_day = withBirthday(2, this_hour.plusDays(1));
+        withBirthday(3, this_hour.plusDays(10));
+        
+        var now = Instant.now();
+        var upcoming = server.getUpcomingBirthdays(now, now.plus(Duration.ofDays(7)));
+        
+        assertEquals(List.of(in_a_day, in_two_days), users(upcoming));
+        assertEquals(this_hour.plusDays(1).toInstant(), upcoming.getFirst().next());
+    }
+    
+    @Test
+    void birthdaysAlreadyAnnouncedThisHourAreLeftOut() {
+        // earlier this hour, so it's already been announced and moved on to next year
+        var announced = withBirthday(1, this_hour);
+        var tomorrow = withBirthday(2, this_hour.plusDays(1));
+        
+        var now = Instant.now();
+        assertTrue(announced.getBirthdayData().orElseThrow().getNextBirthday().isAfter(now));
+        
+        assertEquals(List.of(tomorrow), users(server.getUpcomingBirthdays(now, now.plus(Duration.ofDays(7)))));
+    }
+    
+    @Test
+    void birthdaysAlreadyAnnouncedThisHourComeLastOverAYear() {
+        var announced = withBirthday(1, this_hour);
+        var tomorrow = withBirthday(2, this_hour.plusDays(1));
+        
+        var now = Instant.now();
+        var upcoming = server.getUpcomingBirthdays(now, now.plus(Duration.ofDays(366)));
+        
+        assertEquals(List.of(tomorrow, announced), users(upcoming));
+    }
+    
+    @Test
+    void usersWithoutBirthdaysArentUpcoming() {
+        server.obtainUserData(UserSnowflake.fromId(1));
+        var removed = withBirthday(2, this_hour.plusDays(1));
+        removed.setBirthdayData(null);
+        
+        var now = Instant.now();
+        assertEquals(List.of(), server.getUpcomingBirthdays(now, now.plus(Duration.ofDays(366))));
+    }
+}
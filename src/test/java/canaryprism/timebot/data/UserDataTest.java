@@ -0,0 +1,118 @@
+package canaryprism.timebot.data;
+
+import canaryprism.timebot.ResponderFlags;
+import canaryprism.timebot.data.timers.AlarmData;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDataTest {
+    
+    private static final MessageChannel CHANNEL = (MessageChannel) Proxy.newProxyInstance(
+            UserDataTest.class.getClassLoader(), new Class<?>[] { MessageChannel.class },
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+    
+    private final UserData user = new UserData(1);
+    
+    // the target time each alarm had when its change was fired
+    private final List<AlarmData> changed = new ArrayList<>();
+    private final List<Optional<Instant>> targets = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        var listener = new DataListener() {
+            @Override
+            public void alarmChanged(AlarmData alarm) {
+                assertFalse(Thread.holdsLock(user), "fired while the user was locked");
+                changed.add(alarm);
+                targets.add(alarm.getTargetTime());
+            }
+        };
+        
+        user.setChat(new ChatData() {
+            @Override
+            public Optional<UserData> getUserData(UserSnowflake snowflake) {
+                return Optional.of(user);
+            }
+            
+            @Override
+            public UserData obtainUserData(UserSnowflake snowflake) {
+                return user;
+            }
+            
+            @Override
+            public Optional<ResponderFlags> getForcedMessageFlag() {
+                return Optional.empty();
+            }
+            
+            @Override
+            public void markDirty() {}
+            
+            @Override
+            public void markDirty(UserData user) {}
+            
+            @Override
+            public DataListener getDataListener() {
+                return listener;
+            }
+        });
+    }
+    
+    @Test
+    void changingTheTimezoneChangesEveryAlarm() {
+        user.setTimezone(ZoneId.of("Europe/London"));
+        var morning = new AlarmData(user, LocalTime.of(9, 0), CHANNEL, "morning");
+        var evening = new AlarmData(user, LocalTime.of(21, 0), CHANNEL, "evening");
+        user.addAlarm(morning);
+        user.addAlarm(evening);
+        var london_target = morning.getTargetTime().orElseThrow();
+        changed.clear();
+        targets.clear();
+        
+        user.setTimezone(ZoneId.of("Asia/Tokyo"));
+        
+        assertEquals(List.of(morning, evening), changed);
+        // the listener already sees the alarm due at 9:00 in the new zone
+        var tokyo_target = targets.getFirst().orElseThrow();
+        assertNotEquals(london_target, tokyo_target);
+        assertEquals(LocalTime.of(9, 0), tokyo_target.atZone(ZoneId.of("Asia/Tokyo")).toLocalTime());
+    }
+    
+    @Test
+    void removingTheTimezoneChangesEveryAlarm() {
+        user.setTimezone(ZoneId.of("Europe/London"));
+        var alarm = new AlarmData(user, LocalTime.of(9, 0), CHANNEL, "morning");
+        user.addAlarm(alarm);
+        changed.clear();
+        targets.clear();
+        
+        user.setTimezone(null);
+        
+        assertEquals(List.of(alarm), changed);
+        assertEquals(List.of(Optional.empty()), targets);
+    }
+    
+    @Test
+    void settingTheSameTimezoneChangesNothing() {
+        user.setTimezone(ZoneId.of("Europe/London"));
+        user.addAlarm(new AlarmData(user, LocalTime.of(9, 0), CHANNEL, "morning"));
+        changed.clear();
+        
+        user.setTimezone(ZoneId.of("Europe/London"));
+        
+        assertEquals(List.of(), changed);
+    }
+}
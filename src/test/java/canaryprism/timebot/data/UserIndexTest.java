@@ -0,0 +1,134 @@
+package canaryprism.timebot.data;
+
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserIndexTest {
+    
+    private static final GuildMessageChannel CHANNEL = (GuildMessageChannel) Proxy.newProxyInstance(
+            UserIndexTest.class.getClassLoader(), new Class<?>[] { GuildMessageChannel.class },
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+    
+    private final UserIndex index = new UserIndex();
+    
+    private UserData withBirthday(long id, int month, int day, int hour) {
+        var user = new UserData(id);
+        user.setBirthdayData(new BirthdayData(ZonedDateTime.of(2000, month, day, hour, 0, 0, 0, ZoneOffset.UTC), CHANNEL));
+        index.update(user);
+        return user;
+    }
+    
+    private static LocalDateTime utc(String time) {
+        return LocalDateTime.parse(time);
+    }
+    
+    @Test
+    void birthdaysComeInTheOrderTheyFallInTheYear() {
+        var april = withBirthday(1, 4, 1, 0);
+        var march_5th = withBirthday(2, 3, 5, 0);
+        var march_8th = withBirthday(3, 3, 8, 23);
+        var march_1st = withBirthday(4, 3, 1, 10);
+        
+        assertEquals(List.of(march_1st, march_5th, march_8th),
+                index.birthdaysBetween(utc("2026-03-01T10:00"), utc("2026-03-08T23:00")));
+        assertEquals(List.of(march_5th, march_8th, april),
+                index.birthdaysBetween(utc("2026-03-01T11:00"), utc("2026-04-01T00:00")));
+    }
+    
+    @Test
+    void bothEndsAreInclusiveToTheHour() {
+        var user = withBirthday(1, 6, 15, 12);
+        
+        assertEquals(List.of(user), index.birthdaysBetween(utc("2026-06-15T12:00"), utc("2026-06-15T12:00")));
+        assertEquals(List.of(), index.birthdaysBetween(utc("2026-06-15T13:00"), utc("2026-06-20T00:00")));
+        assertEquals(List.of(), index.birthdaysBetween(utc("2026-06-14T00:00"), utc("2026-06-15T11:00")));
+    }
+    
+    @Test
+    void sameHourIsOrderedByUserId() {
+        var second = withBirthday(20, 6, 15, 12);
+        var first = withBirthday(10, 6, 15, 12);
+        
+        assertEquals(List.of(first, second), index.birthdaysBetween(utc("2026-06-01T00:00"), utc("2026-06-30T00:00")));
+    }
+    
+    @Test
+    void rangesWrapPastTheEndOfTheYear() {
+        var june = withBirthday(1, 6, 1, 0);
+        var new_years_eve = withBirthday(2, 12, 31, 23);
+        var january = withBirthday(3, 1, 2, 0);
+        var december = withBirthday(4, 12, 30, 0);
+        
+        assertEquals(List.of(december, new_years_eve, january),
+                index.birthdaysBetween(utc("2026-12-29T00:00"), utc("2027-01-05T00:00")));
+        assertEquals(List.of(new_years_eve),
+                index.birthdaysBetween(utc("2026-12-31T23:00"), utc("2027-01-01T00:00")));
+        assertFalse(index.birthdaysBetween(utc("2026-12-29T00:00"), utc("2027-01-05T00:00")).contains(june));
+    }
+    
+    @Test
+    void aYearOrMoreGivesEveryoneStartingFromTheFirstHour() {
+        var june = withBirthday(1, 6, 1, 0);
+        var december = withBirthday(2, 12, 30, 0);
+        var january = withBirthday(3, 1, 2, 0);
+        
+        assertEquals(List.of(june, december, january),
+                index.birthdaysBetween(utc("2026-06-01T00:00"), utc("2027-06-01T00:00")));
+        assertEquals(List.of(december, january, june),
+                index.birthdaysBetween(utc("2026-06-01T01:00"), utc("2028-01-01T00:00")));
+    }
+    
+    @Test
+    void movedAndRemovedBirthdaysAreReindexed() {
+        var user = withBirthday(1, 3, 1, 0);
+        
+        user.getBirthdayData().orElseThrow().setBirthday(ZonedDateTime.of(2000, 9, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+        index.update(user);
+        assertEquals(List.of(), index.birthdaysBetween(utc("2026-03-01T00:00"), utc("2026-03-02T00:00")));
+        assertEquals(List.of(user), index.birthdaysBetween(utc("2026-09-01T00:00"), utc("2026-09-02T00:00")));
+        
+        user.setBirthdayData(null);
+        index.update(user);
+        assertEquals(List.of(), index.birthdaysBetween(utc("2026-01-01T00:00"), utc("2027-01-01T00:00")));
+    }
+    
+    @Test
+    void usersAreGroupedByTimezone() {
+        var london = ZoneId.of("Europe/London");
+        var tokyo = ZoneId.of("Asia/Tokyo");
+        
+        var first = new UserData(1);
+        first.setTimezone(london);
+        index.update(first);
+        var second = new UserData(2);
+        second.setTimezone(tokyo);
+        index.update(second);
+        var third = new UserData(3);
+        third.setTimezone(london);
+        index.update(third);
+        index.update(new UserData(4));
+        
+        var groups = index.byTimezone();
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get(london).size());
+        assertTrue(groups.get(london).containsAll(List.of(first, third)));
+        assertEquals(List.of(second), groups.get(tokyo));
+        
+        second.setTimezone(london);
+        index.update(second);
+        groups = index.byTimezone();
+        assertEquals(1, groups.size());
+        assertEquals(3, groups.get(london).size());
+    }
+}
@@ -0,0 +1,68 @@
+package canaryprism.timebot.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserPreferencesTest {
+    
+    private static final DateTimeFormatter FALLBACK = DateTimeFormatter.ofPattern("HH:mm");
+    
+    @Test
+    void noDataHasEverythingUnset() {
+        var preferences = UserPreferences.of(Optional.empty());
+        
+        assertSame(UserPreferences.NONE, preferences);
+        assertEquals(Optional.empty(), preferences.timezone());
+        assertTrue(preferences.timezone_visible());
+        assertEquals(Locale.GERMAN, preferences.locale(Locale.GERMAN));
+    }
+    
+    @Test
+    void snapshotsTheUsersSettings() {
+        var user = new UserData(1);
+        user.setTimezone(ZoneId.of("Asia/Tokyo"));
+        user.setTimezoneVisible(false);
+        user.setLocale(Locale.FRENCH);
+        user.setFormatter("HH:mm:ss");
+        
+        var preferences = UserPreferences.of(Optional.of(user));
+        assertEquals(new UserPreferences(Optional.of(ZoneId.of("Asia/Tokyo")), false, Optional.of(Locale.FRENCH), Optional.of("HH:mm:ss")),
+                preferences);
+        assertEquals(Locale.FRENCH, preferences.locale(Locale.GERMAN));
+        
+        // later changes don't show up in the snapshot
+        user.setTimezone(ZoneId.of("Europe/London"));
+        assertEquals(Optional.of(ZoneId.of("Asia/Tokyo")), preferences.timezone());
+    }
+    
+    @Test
+    void visibilityDefaultsToShown() {
+        var user = new UserData(1);
+        assertTrue(user.getPreferences().timezone_visible());
+        
+        user.setTimezoneVisible(true);
+        assertTrue(user.getPreferences().timezone_visible());
+    }
+    
+    @Test
+    void formattersAreSharedPerPatternAndLocale() {
+        var first = new UserData(1);
+        first.setFormatter("HH:mm:ss");
+        var second = new UserData(2);
+        second.setFormatter("HH:mm:ss");
+        var preferences = first.getPreferences();
+        
+        assertSame(preferences.formatter(FALLBACK, Locale.ENGLISH), second.getPreferences().formatter(FALLBACK, Locale.ENGLISH));
+        assertNotSame(preferences.formatter(FALLBACK, Locale.ENGLISH), preferences.formatter(FALLBACK, Locale.FRENCH));
+        
+        var fallback = UserPreferences.NONE.formatter(FALLBACK, Locale.ENGLISH);
+        assertSame(fallback, UserPreferences.NONE.formatter(FALLBACK, Locale.ENGLISH));
+        assertEquals(Locale.ENGLISH, fallback.getLocale());
+    }
+}
@@ -0,0 +1,137 @@
+package canaryprism.timebot.data.timers;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.time.zone.ZoneRules;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static java.time.DayOfWeek.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlarmScheduleTest {
+    
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+    
+    private static Instant utc(String time) {
+        return LocalDateTime.parse(time).toInstant(ZoneOffset.UTC);
+    }
+    
+    @Test
+    void masksAndDays() {
+        var mask = AlarmSchedule.mask(Set.of(MONDAY, FRIDAY));
+        assertEquals(0b001_0001, mask);
+        assertEquals(EnumSet.of(MONDAY, FRIDAY), AlarmSchedule.days(mask));
+        assertEquals(AlarmSchedule.EVERY_DAY, AlarmSchedule.mask(EnumSet.allOf(DayOfWeek.class)));
+        assertEquals(1 << 6, AlarmSchedule.bit(SUNDAY));
+    }
+    
+    @Test
+    void daysUntilWrapsAroundTheWeek() {
+        var monday = AlarmSchedule.bit(MONDAY);
+        assertEquals(0, AlarmSchedule.daysUntil(MONDAY, monday));
+        assertEquals(6, AlarmSchedule.daysUntil(TUESDAY, monday));
+        assertEquals(2, AlarmSchedule.daysUntil(SATURDAY, monday));
+        
+        var weekend = AlarmSchedule.mask(Set.of(SATURDAY, SUNDAY));
+        assertEquals(3, AlarmSchedule.daysUntil(WEDNESDAY, weekend));
+        assertEquals(0, AlarmSchedule.daysUntil(SUNDAY, weekend));
+        
+        assertEquals(0, AlarmSchedule.daysUntil(THURSDAY, 0));
+        assertEquals(0, AlarmSchedule.daysUntil(THURSDAY, AlarmSchedule.EVERY_DAY));
+    }
+    
+    @Test
+    void nextIsStrictlyAfter() {
+        var rules = ZoneOffset.UTC.getRules();
+        var time = LocalTime.of(9, 0);
+        
+        assertEquals(utc("2024-01-03T09:00"), AlarmSchedule.next(time, 0, rules, utc("2024-01-03T08:59")));
+        assertEquals(utc("2024-01-04T09:00"), AlarmSchedule.next(time, 0, rules, utc("2024-01-03T09:00")));
+        
+        // 2024-01-03 is a wednesday
+        var mondays = AlarmSchedule.bit(MONDAY);
+        assertEquals(utc("2024-01-08T09:00"), AlarmSchedule.next(time, mondays, rules, utc("2024-01-03T12:00")));
+        assertEquals(utc("2024-01-15T09:00"), AlarmSchedule.next(time, mondays, rules, utc("2024-01-08T09:00")));
+    }
+    
+    @Test
+    void gapGoesOffLaterByTheGap() {
+        // clocks went forward from 01:00 to 02:00 in london on 2024-03-31, so 01:30 that day never happened
+        var next = AlarmSchedule.next(LocalTime.of(1, 30), 0, LONDON.getRules(), utc("2024-03-30T12:00"));
+        assertEquals(ZonedDateTime.of(2024, 3, 31, 2, 30, 0, 0, LONDON).toInstant(), next);
+        assertEquals(utc("2024-03-31T01:30"), next);
+    }
+    
+    @Test
+    void overlapOnlyGoesOffTheFirstTime() {
+        // clocks went back from 02:00 to 01:00 in london on 2024-10-27, so 01:30 happened twice that day
+        var rules = LONDON.getRules();
+        var time = LocalTime.of(1, 30);
+        
+        var first = AlarmSchedule.next(time, 0, rules, utc("2024-10-26T12:00"));
+        assertEquals(utc("2024-10-27T00:30"), first);
+        
+        var after_first = AlarmSchedule.next(time, 0, rules, first);
+        assertEquals(utc("2024-10-28T01:30"), after_first, "went off again for the repeated 01:30");
+        
+        // from inside the overlap, after the first 01:30 has gone by
+        assertEquals(utc("2024-10-28T01:30"), AlarmSchedule.next(time, 0, rules, utc("2024-10-27T01:15")));
+    }
+    
+    @Test
+    void matchesWalkingDayByDay() {
+        var random = new Random(42);
+        var zones = new ZoneId[] { LONDON, ZoneId.of("America/New_York"), ZoneId.of("Australia/Lord_Howe"), ZoneId.of("Asia/Kolkata") };
+        var start = utc("2024-01-01T00:00").getEpochSecond();
+        
+        for (int i = 0; i < 10_000; i++) {
+            var zone = zones[random.nextInt(zones.length)];
+            var time = LocalTime.ofSecondOfDay(random.nextInt(24 * 60) * 60L);
+            var days = random.nextInt(AlarmSchedule.EVERY_DAY + 1);
+            var after = Instant.ofEpochSecond(start + random.nextLong(2L * 365 * 86_400));
+            
+            assertEquals(walk(time, days, zone, after), AlarmSchedule.next(time, days, zone.getRules(), after),
+                    time + " on " + AlarmSchedule.days(days) + " in " + zone + " after " + after);
+        }
+    }
+    
+    private static Instant walk(LocalTime time, int days, ZoneId zone, Instant after) {
+        for (var date = LocalDate.ofInstant(after, zone).minusDays(1); ; date = date.plusDays(1)) {
+            if (days != 0 && (days & AlarmSchedule.bit(date.getDayOfWeek())) == 0)
+                continue;
+            
+            // ZonedDateTime.of picks the earlier offset in an overlap, so this is the first time
+            var instant = ZonedDateTime.of(date, time, zone).toInstant();
+            if (instant.isAfter(after))
+                return instant;
+        }
+    }
+    
+    @Test
+    void nextWithARule() {
+        var rules = LONDON.getRules();
+        var time = LocalTime.of(1, 30);
+        
+        // the last sunday of march is when the clocks go forward
+        var rule = new RecurrenceRule(RecurrenceRule.Frequency.MONTHLY, 12, AlarmSchedule.bit(SUNDAY), -1,
+                LocalDate.of(2024, 3, 1), LocalDate.of(2025, 12, 31), 0);
+        
+        var first = AlarmSchedule.next(time, rule, rules, utc("2024-01-01T00:00"));
+        assertEquals(Optional.of(utc("2024-03-31T01:30")), first);
+        
+        var second = AlarmSchedule.next(time, rule, rules, first.get());
+        assertEquals(Optional.of(utc("2025-03-30T01:30")), second);
+        
+        assertEquals(Optional.empty(), AlarmSchedule.next(time, rule, rules, second.get()));
+    }
+    
+    @Test
+    void rejectsBadMasks() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AlarmSchedule.next(LocalTime.NOON, 1 << 7, ZoneOffset.UTC.getRules(), Instant.EPOCH));
+    }
+}
@@ -0,0 +1,141 @@
+package canaryprism.timebot.data.timers;
+
+import canaryprism.timebot.data.timers.RecurrenceRule.Frequency;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.time.DayOfWeek.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurrenceRuleTest {
+    
+    private static LocalDate date(String date) {
+        return LocalDate.parse(date);
+    }
+    
+    private static RecurrenceRule rule(Frequency frequency, int interval, int days, int week, String start) {
+        return new RecurrenceRule(frequency, interval, days, week, date(start), null, 0);
+    }
+    
+    @Test
+    void dailyKeepsTheIntervalPhase() {
+        var rule = rule(Frequency.DAILY, 3, 0, 0, "2024-01-01");
+        
+        assertEquals(Optional.of(date("2024-01-01")), rule.next(date("2023-12-01")), "nothing before the start");
+        assertEquals(Optional.of(date("2024-01-04")), rule.next(date("2024-01-02")));
+        assertEquals(Optional.of(date("2024-01-04")), rule.next(date("2024-01-04")));
+        assertEquals(Optional.of(date("2024-03-01")), rule.next(date("2024-02-28")));
+    }
+    
+    @Test
+    void weeklyKeepsTheIntervalPhase() {
+        // every other week on monday and wednesday, starting on a wednesday so that week's monday is skipped
+        var rule = rule(Frequency.WEEKLY, 2, AlarmSchedule.mask(Set.of(MONDAY, WEDNESDAY)), 0, "2024-01-03");
+        
+        assertEquals(Optional.of(date("2024-01-03")), rule.next(date("2024-01-01")));
+        assertEquals(Optional.of(date("2024-01-15")), rule.next(date("2024-01-04")));
+        assertEquals(Optional.of(date("2024-01-15")), rule.next(date("2024-01-08")), "the week in between is skipped");
+        assertEquals(Optional.of(date("2024-01-17")), rule.next(date("2024-01-16")));
+        assertEquals(Optional.of(date("2024-01-29")), rule.next(date("2024-01-18")));
+    }
+    
+    @Test
+    void monthlyClampsToShortMonths() {
+        var rule = rule(Frequency.MONTHLY, 1, 0, 0, "2024-01-31");
+        
+        assertEquals(Optional.of(date("2024-01-31")), rule.next(date("2024-01-01")));
+        assertEquals(Optional.of(date("2024-02-29")), rule.next(date("2024-02-01")));
+        assertEquals(Optional.of(date("2024-03-31")), rule.next(date("2024-03-01")));
+        assertEquals(Optional.of(date("2024-04-30")), rule.next(date("2024-04-01")));
+    }
+    
+    @Test
+    void monthlyKeepsTheIntervalPhase() {
+        var rule = rule(Frequency.MONTHLY, 2, 0, 0, "2024-01-15");
+        
+        assertEquals(Optional.of(date("2024-03-15")), rule.next(date("2024-01-16")));
+        assertEquals(Optional.of(date("2024-03-15")), rule.next(date("2024-02-10")));
+        assertEquals(Optional.of(date("2025-01-15")), rule.next(date("2024-11-16")), "carries over into the next year");
+    }
+    
+    @Test
+    void nthWeekdayOfTheMonth() {
+        var second_tuesday = rule(Frequency.MONTHLY, 1, AlarmSchedule.bit(TUESDAY), 2, "2024-01-01");
+        assertEquals(Optional.of(date("2024-01-09")), second_tuesday.next(date("2024-01-01")));
+        assertEquals(Optional.of(date("2024-02-13")), second_tuesday.next(date("2024-01-10")));
+        
+        var fourth_thursday = rule(Frequency.MONTHLY, 1, AlarmSchedule.bit(THURSDAY), 4, "2024-01-01");
+        assertEquals(Optional.of(date("2024-11-28")), fourth_thursday.next(date("2024-11-01")));
+    }
+    
+    @Test
+    void lastWeekdayOfTheMonth() {
+        var last_friday = rule(Frequency.MONTHLY, 1, AlarmSchedule.bit(FRIDAY), -1, "2024-01-01");
+        
+        assertEquals(Optional.of(date("2024-01-26")), last_friday.next(date("2024-01-01")));
+        assertEquals(Optional.of(date("2024-02-23")), last_friday.next(date("2024-01-27")));
+        assertEquals(Optional.of(date("2024-05-31")), last_friday.next(date("2024-05-01")), "a month with five fridays");
+    }
+    
+    @Test
+    void nothingAfterUntil() {
+        var rule = new RecurrenceRule(Frequency.DAILY, 1, 0, 0, date("2024-01-01"), date("2024-01-05"), 0);
+        
+        assertEquals(Optional.of(date("2024-01-05")), rule.next(date("2024-01-05")));
+        assertEquals(Optional.empty(), rule.next(date("2024-01-06")));
+    }
+    
+    @Test
+    void countRunsOut() {
+        var rule = new RecurrenceRule(Frequency.DAILY, 1, 0, 0, date("2024-01-01"), null, 2);
+        
+        var once = rule.occurred();
+        assertEquals(Optional.of(1), once.map(RecurrenceRule::count));
+        assertEquals(Optional.empty(), once.get().occurred());
+        
+        var forever = rule(Frequency.DAILY, 1, 0, 0, "2024-01-01");
+        assertEquals(Optional.of(forever), forever.occurred());
+    }
+    
+    @Test
+    void jsonRoundTrips() {
+        var simple = rule(Frequency.DAILY, 1, 0, 0, "2024-01-01");
+        assertEquals(Set.of("frequency", "start"), simple.toJSON().keySet(), "defaults are left out");
+        assertEquals(simple, RecurrenceRule.fromJSON(simple.toJSON()));
+        
+        var full = new RecurrenceRule(Frequency.MONTHLY, 3, AlarmSchedule.bit(SUNDAY), -1,
+                date("2024-01-01"), date("2026-01-01"), 5);
+        assertEquals(full, RecurrenceRule.fromJSON(full.toJSON()));
+    }
+    
+    @Test
+    void describesItself() {
+        var weekly = new RecurrenceRule(Frequency.WEEKLY, 2, AlarmSchedule.mask(Set.of(MONDAY, FRIDAY)), 0,
+                date("2024-01-01"), date("2025-01-01"), 0);
+        assertEquals("every 2 weeks on Monday, Friday until 2025-01-01", weekly.describe());
+        
+        var last_sunday = new RecurrenceRule(Frequency.MONTHLY, 1, AlarmSchedule.bit(SUNDAY), -1,
+                date("2024-01-01"), null, 1);
+        assertEquals("on the last Sunday of every month (1 more time)", last_sunday.describe());
+    }
+    
+    @Test
+    void rejectsInvalidRules() {
+        var monday = AlarmSchedule.bit(MONDAY);
+        
+        assertThrows(IllegalArgumentException.class, () -> rule(Frequency.DAILY, 0, 0, 0, "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> rule(Frequency.DAILY, 1, monday, 0, "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> rule(Frequency.WEEKLY, 1, 0, 0, "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> rule(Frequency.WEEKLY, 1, 1 << 7, 0, "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> rule(Frequency.MONTHLY, 1, monday, 0, "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> rule(Frequency.MONTHLY, 1, monday | 2, 1, "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> rule(Frequency.MONTHLY, 1, monday, 5, "2024-01-01"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecurrenceRule(Frequency.DAILY, 1, 0, 0, date("2024-01-02"), date("2024-01-01"), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecurrenceRule(Frequency.DAILY, 1, 0, 0, date("2024-01-01"), null, -1));
+    }
+}
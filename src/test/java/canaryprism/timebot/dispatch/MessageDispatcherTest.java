@@ -0,0 +1,209 @@
+package canaryprism.timebot.dispatch;
+
+import canaryprism.timebot.metrics.MetricsRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageDispatcherTest {
+
+    /**
+     * a channel that records what's sent to it and answers each send with whatever the responder gives for that
+     * attempt, by default a success after a short random delay
+     */
+    private static final class FakeChannel {
+
+        final long id;
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger in_flight = new AtomicInteger();
+        final AtomicInteger max_in_flight = new AtomicInteger();
+        volatile IntFunction<CompletableFuture<Message>> responder = (attempt) -> CompletableFuture.supplyAsync(() -> null,
+                CompletableFuture.delayedExecutor(ThreadLocalRandom.current().nextInt(3), TimeUnit.MILLISECONDS));
+
+        FakeChannel(long id) {
+            this.id = id;
+        }
+
+        MessageChannel channel() {
+            return (MessageChannel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { MessageChannel.class },
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getIdLong" -> id;
+                        case "sendMessage" -> action(args[0].toString());
+                        case "hashCode" -> Long.hashCode(id);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private MessageCreateAction action(String content) {
+            return (MessageCreateAction) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { MessageCreateAction.class },
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "submit" -> {
+                            max_in_flight.accumulateAndGet(in_flight.incrementAndGet(), Math::max);
+                            sent.add(content);
+                            yield responder.apply(sent.size())
+                                    .whenComplete((message, error) -> in_flight.decrementAndGet());
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        List<String> lines() {
+            synchronized (sent) {
+                return sent.stream().flatMap((e) -> Arrays.stream(e.split("\n"))).toList();
+            }
+        }
+    }
+
+    private final MessageDispatcher dispatcher = new MessageDispatcher(new MetricsRegistry());
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    void aChannelsMessagesArriveInOrder() throws Exception {
+        var channel = new FakeChannel(1);
+        var futures = IntStream.range(0, 200)
+                .mapToObj((i) -> dispatcher.send(channel.channel(), "message " + i))
+                .toList();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(IntStream.range(0, 200).mapToObj((i) -> "message " + i).toList(), channel.lines());
+        assertEquals(1, channel.max_in_flight.get(), "more than one send to a channel was in flight");
+    }
+
+    @Test
+    void aStuckChannelDoesntHoldUpOthers() throws Exception {
+        var stuck_send = new CompletableFuture<Message>();
+        var stuck = new FakeChannel(1);
+        stuck.responder = (attempt) -> stuck_send;
+        var other = new FakeChannel(2);
+
+        var stuck_result = dispatcher.send(stuck.channel(), "stuck");
+        dispatcher.send(other.channel(), "sent").get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("sent"), other.lines());
+        assertFalse(stuck_result.isDone());
+
+        stuck_send.complete(null);
+        stuck_result.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void transientFailuresAreRetriedWithBackoff() throws Exception {
+        var channel = new FakeChannel(1);
+        channel.responder = (attempt) -> (attempt == 1)
+                ? CompletableFuture.failedFuture(new IOException("connection reset"))
+                : CompletableFuture.completedFuture(null);
+
+        var start = System.nanoTime();
+        dispatcher.send(channel.channel(), "retried").get(10, TimeUnit.SECONDS);
+        var elapsed = System.nanoTime() - start;
+
+        assertEquals(List.of("retried", "retried"), channel.sent);
+        assertTrue(elapsed >= MessageDispatcher.INITIAL_BACKOFF.toNanos(), "retried without backing off");
+    }
+
+    @Test
+    void otherFailuresAreGivenUpOnStraightAway() throws Exception {
+        var channel = new FakeChannel(1);
+        channel.responder = (attempt) -> (attempt == 1)
+                ? CompletableFuture.failedFuture(new IllegalStateException("missing access"))
+                : CompletableFuture.completedFuture(null);
+
+        var failed = dispatcher.send(channel.channel(), "failed");
+        var error = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+
+        // the channel carries on with the next message
+        dispatcher.send(channel.channel(), "next").get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("failed", "next"), channel.sent);
+    }
+
+    @Test
+    void closeWaitsForQueuedMessages() {
+        var channel = new FakeChannel(1);
+        for (int i = 0; i < 20; i++)
+            dispatcher.send(channel.channel(), "message " + i);
+
+        dispatcher.close();
+        assertEquals(20, channel.lines().size());
+        assertEquals(0, dispatcher.getQueuedCount());
+        assertTrue(dispatcher.send(channel.channel(), "late").isCompletedExceptionally());
+    }
+
+    @Test
+    void messagesWithinTheWindowAreCoalesced() throws Exception {
+        try (var coalescing = new MessageDispatcher(new MetricsRegistry(), Duration.ofMillis(200))) {
+            var channel = new FakeChannel(1);
+            var futures = IntStream.range(0, 10)
+                    .mapToObj((i) -> coalescing.send(channel.channel(), "message " + i))
+                    .toList();
+
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, channel.sent.size());
+            assertEquals(IntStream.range(0, 10).mapToObj((i) -> "message " + i).toList(), channel.lines());
+        }
+    }
+
+    @Test
+    void coalescingStopsAtTheMaxContentLength() throws Exception {
+        try (var coalescing = new MessageDispatcher(new MetricsRegistry(), Duration.ofMillis(200))) {
+            var channel = new FakeChannel(1);
+            var futures = IntStream.range(0, 5)
+                    .mapToObj((i) -> coalescing.send(channel.channel(), String.valueOf(i).repeat(600)))
+                    .toList();
+
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+            // 3 * 600 plus 2 newlines fits in 2000, a 4th doesn't
+            assertEquals(2, channel.sent.size());
+            assertEquals(3 * 600 + 2, channel.sent.get(0).length());
+            assertEquals(2 * 600 + 1, channel.sent.get(1).length());
+            assertTrue(channel.sent.stream().allMatch((e) -> e.length() <= Message.MAX_CONTENT_LENGTH));
+        }
+    }
+
+    @Test
+    void tooLongMessagesAreSentAlone() throws Exception {
+        try (var coalescing = new MessageDispatcher(new MetricsRegistry(), Duration.ofMillis(200))) {
+            var channel = new FakeChannel(1);
+            var long_message = "x".repeat(Message.MAX_CONTENT_LENGTH + 1);
+            var futures = List.of(
+                    coalescing.send(channel.channel(), long_message),
+                    coalescing.send(channel.channel(), "after"));
+
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+            assertEquals(List.of(long_message, "after"), channel.sent);
+        }
+    }
+
+    @Test
+    void rejectsNegativeWindows() {
+        assertThrows(IllegalArgumentException.class, () -> new MessageDispatcher(new MetricsRegistry(), Duration.ofMillis(-1)));
+    }
+}
@@ -0,0 +1,89 @@
+package canaryprism.timebot.format;
+
+import org.apache.commons.lang3.time.DurationFormatUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurationRendererTest {
+
+    private static final Pattern PLURAL_DAYS = Pattern.compile("\\b1 days\\b");
+    private static final Pattern PLURAL_HOURS = Pattern.compile("\\b1 hours\\b");
+    private static final Pattern PLURAL_MINUTES = Pattern.compile("\\b1 minutes\\b");
+    private static final Pattern PLURAL_SECONDS = Pattern.compile("\\b1 seconds\\b");
+
+    /**
+     * how durations were formatted before the renderer, kept to check it against
+     */
+    private static String formatWithRegexes(Duration duration) {
+        if (duration.isNegative())
+            return "negative time";
+
+        var str = DurationFormatUtils.formatDuration(duration.toMillis(),
+                "[d 'days' ][H 'hours' ]m 'minutes' s 'seconds'");
+
+        str = PLURAL_DAYS.matcher(str).replaceAll("1 day");
+        str = PLURAL_HOURS.matcher(str).replaceAll("1 hour");
+        str = PLURAL_MINUTES.matcher(str).replaceAll("1 minute");
+        str = PLURAL_SECONDS.matcher(str).replaceAll("1 second");
+
+        return str;
+    }
+
+    private static void assertSameAsRegexes(Duration duration) {
+        assertEquals(formatWithRegexes(duration), DurationRenderer.ENGLISH.render(duration), duration.toString());
+    }
+
+    @Test
+    void examples() {
+        assertEquals("0 minutes 0 seconds", DurationRenderer.ENGLISH.render(Duration.ZERO));
+        assertEquals("1 minute 1 second", DurationRenderer.ENGLISH.render(Duration.ofSeconds(61)));
+        assertEquals("2 days 1 hour 5 minutes 1 second",
+                DurationRenderer.ENGLISH.render(Duration.ofDays(2).plusHours(1).plusMinutes(5).plusSeconds(1)));
+        assertEquals("1 day 0 minutes 10 seconds", DurationRenderer.ENGLISH.render(Duration.ofDays(1).plusSeconds(10)));
+        assertEquals("negative time", DurationRenderer.ENGLISH.render(Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    void matchesTheRegexesOnEdges() {
+        long[] seconds = { 0, 1, 2, 59, 60, 61, 119, 120, 3599, 3600, 3601, 3660, 3661, 7200, 86399, 86400, 86401,
+                90000, 90061, 172800, 176461, 31_536_000, 86_400_000 };
+        for (var e : seconds)
+            assertSameAsRegexes(Duration.ofSeconds(e));
+
+        assertSameAsRegexes(Duration.ofMillis(1500));
+        assertSameAsRegexes(Duration.ofMillis(999));
+        assertSameAsRegexes(Duration.ofSeconds(-5));
+    }
+
+    @Test
+    void matchesTheRegexesOnRandomDurations() {
+        var random = new Random(42);
+        for (int i = 0; i < 10_000; i++)
+            assertSameAsRegexes(Duration.ofMillis(random.nextLong(1000L * 86400 * 1000)));
+    }
+
+    @Test
+    void appendsToTheBuilder() {
+        var builder = new StringBuilder("for ");
+        assertSame(builder, DurationRenderer.ENGLISH.render(Duration.ofHours(1), builder));
+        assertEquals("for 1 hour 0 minutes 0 seconds", builder.toString());
+    }
+
+    @Test
+    void usesTheGivenWords() {
+        var renderer = new DurationRenderer(
+                new DurationRenderer.Unit("jour", "jours"),
+                new DurationRenderer.Unit("heure", "heures"),
+                new DurationRenderer.Unit("minute", "minutes"),
+                new DurationRenderer.Unit("seconde", "secondes"),
+                "temps négatif");
+
+        assertEquals("1 jour 2 heures 0 minutes 1 seconde", renderer.render(Duration.ofHours(26).plusSeconds(1)));
+        assertEquals("temps négatif", renderer.render(Duration.ofDays(-1)));
+    }
+}
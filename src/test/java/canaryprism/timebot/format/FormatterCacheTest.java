@@ -0,0 +1,72 @@
+package canaryprism.timebot.format;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatterCacheTest {
+
+    @Test
+    void keyedByPatternAndLocale() {
+        var cache = new FormatterCache(16);
+
+        var uk = cache.ofPattern("HH:mm", Locale.UK);
+        assertSame(uk, cache.ofPattern("HH:mm", Locale.UK));
+        assertSame(uk, cache.ofPattern(new String("HH:mm"), Locale.forLanguageTag("en-GB")));
+
+        assertNotSame(uk, cache.ofPattern("HH:mm", Locale.FRANCE));
+        assertNotSame(uk, cache.ofPattern("HH:mm:ss", Locale.UK));
+        assertEquals(Locale.FRANCE, cache.ofPattern("HH:mm", Locale.FRANCE).getLocale());
+
+        assertEquals(new FormatterCache.Stats(3, 3, 0, 3), cache.getStats());
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        var cache = new FormatterCache(2);
+
+        var a = cache.ofPattern("HH", Locale.UK);
+        var b = cache.ofPattern("mm", Locale.UK);
+        assertSame(a, cache.ofPattern("HH", Locale.UK));
+
+        // b hasn't been used since a was, so it goes
+        cache.ofPattern("ss", Locale.UK);
+        assertEquals(1, cache.getStats().evictions());
+        assertEquals(2, cache.getStats().size());
+
+        assertSame(a, cache.ofPattern("HH", Locale.UK));
+        assertNotSame(b, cache.ofPattern("mm", Locale.UK));
+        assertEquals(2, cache.getStats().evictions());
+    }
+
+    @Test
+    void baseFormattersAreKeyedByIdentity() {
+        var cache = new FormatterCache(16);
+        var base = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM);
+        var lookalike = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM);
+
+        var french = cache.withLocale(base, Locale.FRANCE);
+        assertEquals(Locale.FRANCE, french.getLocale());
+        assertSame(french, cache.withLocale(base, Locale.FRANCE));
+        assertNotSame(french, cache.withLocale(lookalike, Locale.FRANCE));
+
+        // already in the locale, nothing to cache
+        assertSame(base, cache.withLocale(base, base.getLocale()));
+    }
+
+    @Test
+    void invalidPatternsThrowAndArentCached() {
+        var cache = new FormatterCache(16);
+        assertThrows(IllegalArgumentException.class, () -> cache.ofPattern("{", Locale.UK));
+        assertEquals(0, cache.getStats().size());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacities() {
+        assertThrows(IllegalArgumentException.class, () -> new FormatterCache(0));
+    }
+}
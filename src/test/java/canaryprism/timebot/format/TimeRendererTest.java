@@ -0,0 +1,78 @@
+package canaryprism.timebot.format;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeRendererTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-18T17:30:00Z");
+
+    private static final List<ZoneId> ZONES = List.of(
+            ZoneId.of("Europe/London"), ZoneId.of("America/New_York"), ZoneId.of("Asia/Tokyo"), ZoneId.of("Asia/Kolkata"));
+
+    private final DateTimeFormatter formatter = FormatterCache.shared().ofPattern("HH:mm zzz", Locale.ENGLISH);
+
+    @Test
+    void manyPeopleAreRenderedOncePerZone() {
+        var renderer = new TimeRenderer(NOW);
+        var random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            var zone = ZONES.get(random.nextInt(ZONES.size()));
+            assertEquals(TimeRenderer.render(NOW, zone, true, formatter), renderer.render(zone, true, formatter));
+        }
+
+        assertEquals(ZONES.size(), renderer.size());
+    }
+
+    @Test
+    void rendersTheInstantInTheZone() {
+        var renderer = new TimeRenderer(NOW);
+        var plain = FormatterCache.shared().ofPattern("HH:mm", Locale.ENGLISH);
+
+        assertEquals("18:30", renderer.render(ZoneId.of("Europe/London"), true, plain));
+        assertEquals("13:30", renderer.render(ZoneId.of("America/New_York"), true, plain));
+        assertEquals("02:30", renderer.render(ZoneId.of("Asia/Tokyo"), true, plain));
+        assertEquals(NOW, renderer.getInstant());
+    }
+
+    @Test
+    void hiddenZonesAreRenderedAsLocalTimes() {
+        var renderer = new TimeRenderer(NOW);
+        var local = FormatterCache.shared().ofPattern("HH:mm", Locale.ENGLISH);
+        var london = ZoneId.of("Europe/London");
+
+        assertEquals("18:30 BST", renderer.render(london, true, formatter));
+        assertEquals("18:30", renderer.render(london, false, local));
+
+        // a pattern that needs the zone can't format a local time
+        assertThrows(RuntimeException.class, () -> renderer.render(london, false, formatter));
+    }
+
+    @Test
+    void visibilityAndFormatterAreRenderedSeparately() {
+        var renderer = new TimeRenderer(NOW);
+        var local = FormatterCache.shared().ofPattern("HH:mm", Locale.ENGLISH);
+        var french = FormatterCache.shared().ofPattern("EEEE HH:mm", Locale.FRENCH);
+        var english = FormatterCache.shared().ofPattern("EEEE HH:mm", Locale.ENGLISH);
+        var london = ZoneId.of("Europe/London");
+
+        renderer.render(london, true, local);
+        renderer.render(london, false, local);
+        assertEquals("dimanche 18:30", renderer.render(london, true, french));
+        assertEquals("Sunday 18:30", renderer.render(london, true, english));
+
+        // the cache hands out the same formatter again, so it's the same entry
+        renderer.render(london, true, FormatterCache.shared().ofPattern("EEEE HH:mm", Locale.ENGLISH));
+
+        assertEquals(4, renderer.size());
+    }
+}
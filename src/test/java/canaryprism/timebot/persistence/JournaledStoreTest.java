@@ -0,0 +1,144 @@
+package canaryprism.timebot.persistence;
+
+import canaryprism.timebot.StubApi;
+import canaryprism.timebot.data.BotData;
+import canaryprism.timebot.data.UserData;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledStoreTest {
+    
+    private static final long SERVER_ID = 1;
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+    private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+    
+    @TempDir
+    Path directory;
+    
+    private Path saveFile() {
+        return directory.resolve("data.json");
+    }
+    
+    private static BotData load(JournaledStore store) throws IOException {
+        return store.load(StubApi.jda());
+    }
+    
+    private static void setTimezone(BotData data, long user_id, ZoneId timezone) {
+        data.obtainServerData(SERVER_ID).obtainUserData(StubApi.user(user_id)).setTimezone(timezone);
+    }
+    
+    private static Optional<ZoneId> timezoneOf(BotData data, long user_id) {
+        return data.obtainServerData(SERVER_ID).getUserData(StubApi.user(user_id))
+                .flatMap(UserData::getTimezone);
+    }
+    
+    @Test
+    void committedChangesSurviveARestart() throws IOException {
+        try (var store = new JournaledStore(saveFile())) {
+            var data = load(store);
+            setTimezone(data, 10, PARIS);
+            assertTrue(store.commit(data));
+            assertFalse(store.commit(data), "nothing changed since the last commit");
+        }
+        
+        try (var store = new JournaledStore(saveFile())) {
+            var data = load(store);
+            assertEquals(Optional.of(PARIS), timezoneOf(data, 10));
+            assertTrue(data.drainChanges().isEmpty(), "replayed records are already durable");
+        }
+    }
+    
+    @Test
+    void replayStopsAtATornRecord() throws IOException {
+        var file = directory.resolve("journal");
+        Files.writeString(file, """
+                {"dm_id":1}
+                {"dm_id":2}
+                {"dm_id":3,"user":{"user_id":""");
+        
+        var records = new ArrayList<Long>();
+        assertEquals(2, Journal.replay(file, (record) -> records.add(record.getLong("dm_id"))));
+        assertEquals(List.of(1L, 2L), records);
+    }
+    
+    @Test
+    void tornRecordIsIgnoredOnLoad() throws IOException {
+        try (var store = new JournaledStore(saveFile())) {
+            var data = load(store);
+            setTimezone(data, 10, PARIS);
+            store.commit(data);
+        }
+        
+        // the bot went down halfway through appending a record
+        Files.writeString(Journal.path(saveFile(), 0), "{\"server_id\":1,\"user\":{\"user_id\":",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        
+        try (var store = new JournaledStore(saveFile())) {
+            var data = load(store);
+            assertEquals(Optional.of(PARIS), timezoneOf(data, 10));
+            
+            // records written after the torn one still have to be replayed next time
+            setTimezone(data, 20, TOKYO);
+            store.commit(data);
+        }
+        
+        try (var store = new JournaledStore(saveFile())) {
+            var data = load(store);
+            assertEquals(Optional.of(PARIS), timezoneOf(data, 10));
+            assertEquals(Optional.of(TOKYO), timezoneOf(data, 20));
+        }
+    }
+    
+    @Test
+    void compactionReplacesOldJournalsWithASnapshot() throws IOException {
+        try (var store = new JournaledStore(saveFile())) {
+            var data = load(store);
+            setTimezone(data, 10, PARIS);
+            store.commit(data);
+            
+            store.compact(data);
+            assertTrue(Files.isRegularFile(saveFile()));
+            assertEquals(Set.of(1L), Journal.list(saveFile()).keySet());
+            
+            setTimezone(data, 20, TOKYO);
+            store.commit(data);
+        }
+        
+        try (var store = new JournaledStore(saveFile())) {
+            var data = load(store);
+            assertEquals(Optional.of(PARIS), timezoneOf(data, 10));
+            assertEquals(Optional.of(TOKYO), timezoneOf(data, 20));
+        }
+    }
+    
+    @Test
+    void commitCompactsPastTheThreshold() throws IOException {
+        try (var store = new JournaledStore(saveFile(), 1)) {
+            var data = load(store);
+            setTimezone(data, 10, PARIS);
+            store.commit(data);
+        }
+        
+        // closing waits for the compaction to finish
+        assertTrue(Files.isRegularFile(saveFile()));
+        assertFalse(Journal.list(saveFile()).containsKey(0L));
+        
+        try (var store = new JournaledStore(saveFile())) {
+            assertEquals(Optional.of(PARIS), timezoneOf(load(store), 10));
+        }
+    }
+}
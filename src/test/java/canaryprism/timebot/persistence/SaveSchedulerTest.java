@@ -0,0 +1,147 @@
+package canaryprism.timebot.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveSchedulerTest {
+    
+    /**
+     * a save action that counts its calls and checks they never overlap
+     */
+    private static final class CountingSave {
+        
+        final AtomicInteger saves = new AtomicInteger();
+        final AtomicInteger in_flight = new AtomicInteger();
+        final AtomicInteger max_in_flight = new AtomicInteger();
+        
+        boolean save() {
+            max_in_flight.accumulateAndGet(in_flight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            saves.incrementAndGet();
+            in_flight.decrementAndGet();
+            return true;
+        }
+    }
+    
+    @Test
+    void requestsWithinTheWindowAreCoalesced() throws InterruptedException {
+        var save = new CountingSave();
+        try (var scheduler = new SaveScheduler(save::save, Duration.ofMillis(200))) {
+            for (int i = 0; i < 10; i++)
+                scheduler.request();
+            
+            Thread.sleep(600);
+            assertEquals(1, save.saves.get());
+            
+            var stats = scheduler.getStats();
+            assertEquals(10, stats.requested());
+            assertEquals(1, stats.performed());
+            assertEquals(1, stats.written());
+        }
+    }
+    
+    @Test
+    void requestsInSeparateWindowsSaveSeparately() throws InterruptedException {
+        var save = new CountingSave();
+        try (var scheduler = new SaveScheduler(save::save, Duration.ofMillis(50))) {
+            scheduler.request();
+            Thread.sleep(300);
+            scheduler.request();
+            Thread.sleep(300);
+            
+            assertEquals(2, save.saves.get());
+        }
+    }
+    
+    @Test
+    void flushSavesRightAway() {
+        var save = new CountingSave();
+        try (var scheduler = new SaveScheduler(save::save, Duration.ofMinutes(1))) {
+            scheduler.flush();
+            assertEquals(1, save.saves.get());
+        }
+    }
+    
+    @Test
+    void closeSupersedesAPendingSave() {
+        var save = new CountingSave();
+        var scheduler = new SaveScheduler(save::save, Duration.ofMinutes(1));
+        scheduler.request();
+        
+        scheduler.close();
+        assertEquals(1, save.saves.get(), "the pending save should be folded into the one close() does");
+    }
+    
+    @Test
+    void savesNeverOverlap() throws InterruptedException {
+        var save = new CountingSave();
+        var scheduler = new SaveScheduler(save::save, Duration.ofMillis(1));
+        
+        var threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = Thread.ofPlatform().start(() -> {
+                for (int j = 0; j < 50; j++) {
+                    scheduler.request();
+                    if (j % 10 == 0)
+                        scheduler.flush();
+                }
+            });
+        }
+        for (var thread : threads)
+            thread.join();
+        scheduler.close();
+        
+        assertTrue(save.saves.get() > 1);
+        assertEquals(1, save.max_in_flight.get());
+    }
+    
+    @Test
+    void requestDuringCloseIsSavedAfterTheWriteInFlight() throws InterruptedException {
+        var version = new AtomicInteger();
+        var saved_version = new AtomicInteger(-1);
+        var in_flight = new AtomicInteger();
+        var max_in_flight = new AtomicInteger();
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        
+        var scheduler = new SaveScheduler(() -> {
+            max_in_flight.accumulateAndGet(in_flight.incrementAndGet(), Math::max);
+            var seen = version.get();
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            saved_version.set(seen);
+            in_flight.decrementAndGet();
+            return true;
+        }, Duration.ZERO);
+        
+        scheduler.request();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        
+        var closer = Thread.ofPlatform().start(scheduler::close);
+        
+        // close() has shut the executor down by now and is waiting for the write in flight, so this is turned away
+        Thread.sleep(100);
+        version.incrementAndGet();
+        scheduler.request();
+        
+        release.countDown();
+        closer.join();
+        
+        assertEquals(1, saved_version.get(), "the change made during close() wasn't saved");
+        assertEquals(1, max_in_flight.get(), "the final save overlapped the one in flight");
+    }
+}
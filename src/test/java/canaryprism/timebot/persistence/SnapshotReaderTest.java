@@ -0,0 +1,108 @@
+package canaryprism.timebot.persistence;
+
+import canaryprism.timebot.StubApi;
+import canaryprism.timebot.data.BotData;
+import canaryprism.timebot.data.UserData;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotReaderTest {
+    
+    // the second server has its id after its users, which the reader has to cope with
+    private static final String SNAPSHOT = """
+            {
+                "servers": [
+                    {
+                        "server_id": 1,
+                        "allowed_birthday_channels": [],
+                        "forced_message_flags": 64,
+                        "users": [
+                            { "user_id": 10, "timezone": "Europe/Paris", "locale": "fr-FR", "timers": [], "alarms": [] },
+                            { "user_id": 11, "formatter_string": "HH:mm", "timezone_visible": false }
+                        ]
+                    },
+                    {
+                        "users": [ { "user_id": 10, "timezone": "Asia/Tokyo" } ],
+                        "allow_custom_messages": true,
+                        "allowed_birthday_channels": [],
+                        "server_id": 2
+                    }
+                ],
+                "dms": [
+                    { "channel_id": 3, "users": [ { "user_id": 12, "timezone": "America/New_York" } ] },
+                    { "users": [], "channel_id": 4 }
+                ],
+                "journal_generation": 7,
+                "unknown": { "nested": [ 1, 2, { "x": "y" } ] }
+            }
+            """;
+    
+    @TempDir
+    Path directory;
+    
+    private SnapshotReader.Snapshot read(String snapshot) throws IOException {
+        var file = directory.resolve("data.json");
+        Files.writeString(file, snapshot);
+        return SnapshotReader.read(file, StubApi.jda());
+    }
+    
+    @Test
+    void readsTheSameAsParsingTheWholeTree() throws IOException {
+        var streamed = read(SNAPSHOT).data();
+        var parsed = new BotData(new JSONObject(SNAPSHOT), StubApi.jda());
+        
+        assertTrue(streamed.toJSON().similar(parsed.toJSON()),
+                () -> "streamed " + streamed.toJSON() + " but parsed " + parsed.toJSON());
+    }
+    
+    @Test
+    void readsEveryChatAndUser() throws IOException {
+        var snapshot = read(SNAPSHOT);
+        var data = snapshot.data();
+        
+        assertEquals(7, snapshot.journal_generation());
+        assertEquals(2, data.getServers().size());
+        assertEquals(2, data.getDms().size());
+        
+        var first = data.obtainServerData(1);
+        assertEquals(2, first.getUsers().size());
+        assertEquals(Optional.of(ZoneId.of("Europe/Paris")),
+                first.getUserData(StubApi.user(10)).flatMap(UserData::getTimezone));
+        assertEquals(Optional.of(Locale.FRANCE), first.getUserData(StubApi.user(10)).flatMap(UserData::getLocale));
+        assertEquals(Optional.of(false), first.getUserData(StubApi.user(11)).flatMap(UserData::isTimezoneVisible));
+        assertTrue(first.getForcedMessageFlag().isPresent());
+        
+        var second = data.obtainServerData(2);
+        assertEquals(Optional.of(ZoneId.of("Asia/Tokyo")),
+                second.getUserData(StubApi.user(10)).flatMap(UserData::getTimezone));
+        assertEquals(Optional.of(true), second.allowsCustomMessages());
+        
+        assertEquals(Optional.of(ZoneId.of("America/New_York")),
+                data.obtainDmData(3).getUserData(StubApi.user(12)).flatMap(UserData::getTimezone));
+        assertTrue(data.obtainDmData(4).getUsers().isEmpty());
+    }
+    
+    @Test
+    void roundTripsWhatItSaved() throws IOException {
+        var saved = read(SNAPSHOT).data().toJSON();
+        var reread = read(saved.toString()).data().toJSON();
+        
+        assertTrue(saved.similar(reread), () -> "saved " + saved + " but read back " + reread);
+    }
+    
+    @Test
+    void rejectsMalformedSnapshots() {
+        assertThrows(RuntimeException.class, () -> read("{ \"servers\": [ { \"server_id\": 1, \"users\": [ 5 ] } ] }"));
+        assertThrows(RuntimeException.class, () -> read("[]"));
+    }
+}
@@ -0,0 +1,97 @@
+package canaryprism.timebot.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthdayCalendarTest {
+
+    private final BirthdayCalendar<String> calendar = new BirthdayCalendar<>();
+
+    @Test
+    void keysAreDueInTheirHourEveryYear() {
+        calendar.put("alice", 3, 14, 9);
+
+        assertEquals(List.of("alice"), calendar.due(LocalDateTime.of(2025, 3, 14, 9, 0)));
+        assertEquals(List.of("alice"), calendar.due(LocalDateTime.of(2026, 3, 14, 9, 59)));
+        assertEquals(List.of(), calendar.due(LocalDateTime.of(2026, 3, 14, 8, 0)));
+        assertEquals(List.of(), calendar.due(LocalDateTime.of(2026, 3, 15, 9, 0)));
+    }
+
+    @Test
+    void puttingAgainMovesTheKey() {
+        calendar.put("alice", 3, 14, 9);
+        calendar.put("bob", 3, 14, 9);
+        calendar.put("alice", 12, 1, 0);
+
+        assertEquals(List.of("bob"), calendar.due(LocalDateTime.of(2026, 3, 14, 9, 0)));
+        assertEquals(List.of("alice"), calendar.due(LocalDateTime.of(2026, 12, 1, 0, 0)));
+        assertEquals(2, calendar.size());
+
+        // putting it where it already is changes nothing
+        calendar.put("alice", 12, 1, 0);
+        assertEquals(List.of("alice"), calendar.due(LocalDateTime.of(2026, 12, 1, 0, 0)));
+        assertEquals(2, calendar.size());
+    }
+
+    @Test
+    void removedKeysAreNoLongerDue() {
+        calendar.put("alice", 3, 14, 9);
+        calendar.put("bob", 3, 14, 9);
+        calendar.remove("alice");
+        calendar.remove("carol");
+
+        assertEquals(List.of("bob"), calendar.due(LocalDateTime.of(2026, 3, 14, 9, 0)));
+        assertEquals(1, calendar.size());
+    }
+
+    @Test
+    void february29thIsDueOnThe28thInCommonYears() {
+        calendar.put("leapling", 2, 29, 12);
+        calendar.put("alice", 2, 28, 12);
+
+        var common_year = calendar.due(LocalDateTime.of(2026, 2, 28, 12, 0));
+        assertEquals(2, common_year.size());
+        assertTrue(common_year.containsAll(List.of("leapling", "alice")));
+        assertEquals(List.of(), calendar.due(LocalDateTime.of(2026, 3, 1, 12, 0)));
+
+        assertEquals(List.of("alice"), calendar.due(LocalDateTime.of(2028, 2, 28, 12, 0)));
+        assertEquals(List.of("leapling"), calendar.due(LocalDateTime.of(2028, 2, 29, 12, 0)));
+    }
+
+    @Test
+    void lastHourOfTheYearHasItsOwnBucket() {
+        calendar.put("alice", 12, 31, 23);
+
+        assertEquals(List.of("alice"), calendar.due(LocalDateTime.of(2026, 12, 31, 23, 0)));
+        assertEquals(List.of("alice"), calendar.due(LocalDateTime.of(2028, 12, 31, 23, 0)));
+        assertEquals(List.of(), calendar.due(LocalDateTime.of(2027, 1, 1, 0, 0)));
+    }
+
+    @Test
+    void equalKeysAreFiledSeparately() {
+        // the same person's data in two servers is equal but has its own birthday in each
+        var first = new String("alice");
+        var second = new String("alice");
+        calendar.put(first, 3, 14, 9);
+        calendar.put(second, 6, 1, 9);
+
+        assertEquals(2, calendar.size());
+        assertSame(first, calendar.due(LocalDateTime.of(2026, 3, 14, 9, 0)).getFirst());
+        assertSame(second, calendar.due(LocalDateTime.of(2026, 6, 1, 9, 0)).getFirst());
+
+        calendar.remove(first);
+        assertEquals(List.of(), calendar.due(LocalDateTime.of(2026, 3, 14, 9, 0)));
+        assertSame(second, calendar.due(LocalDateTime.of(2026, 6, 1, 9, 0)).getFirst());
+    }
+
+    @Test
+    void rejectsInvalidHours() {
+        assertThrows(IllegalArgumentException.class, () -> calendar.put("alice", 1, 1, 24));
+        assertThrows(IllegalArgumentException.class, () -> calendar.put("alice", 1, 1, -1));
+        assertEquals(0, calendar.size());
+    }
+}
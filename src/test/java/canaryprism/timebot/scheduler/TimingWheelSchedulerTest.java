@@ -0,0 +1,121 @@
+package canaryprism.timebot.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelSchedulerTest {
+
+    // a 1ms tick puts anything 64ms or more out in the second wheel, so these delays cover cascading down
+    private static final long[] DELAYS_MILLIS = { 1, 5, 30, 63, 64, 65, 100, 127, 128, 129, 200, 300 };
+
+    private TimingWheelScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new TimingWheelScheduler(Duration.ofMillis(1), Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void tasksRunNoEarlierThanTheirTime() throws InterruptedException {
+        var now = System.currentTimeMillis();
+        var latch = new CountDownLatch(DELAYS_MILLIS.length);
+        var ran_at = new ConcurrentHashMap<Long, Long>();
+
+        for (var delay : DELAYS_MILLIS) {
+            scheduler.schedule(() -> {
+                ran_at.put(delay, System.currentTimeMillis());
+                latch.countDown();
+            }, Instant.ofEpochMilli(now + delay));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "not every task ran");
+        for (var delay : DELAYS_MILLIS) {
+            var late = ran_at.get(delay) - (now + delay);
+            assertTrue(late >= 0, () -> "task " + delay + "ms out ran " + -late + "ms early");
+            assertTrue(late < 1000, () -> "task " + delay + "ms out ran " + late + "ms late");
+        }
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void pastTimesRunImmediately() throws InterruptedException {
+        var latch = new CountDownLatch(1);
+        var handle = scheduler.schedule(latch::countDown, Instant.now().minusSeconds(60));
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertFalse(handle.cancel(), "a dispatched task can't be cancelled");
+        assertFalse(handle.isCancelled());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void cancelOnlySucceedsOnce() {
+        var handle = scheduler.schedule(() -> {}, Instant.now().plusSeconds(60));
+        assertEquals(1, scheduler.pendingCount());
+        assertFalse(handle.isCancelled());
+
+        assertTrue(handle.cancel());
+        assertTrue(handle.isCancelled());
+        assertEquals(0, scheduler.pendingCount());
+
+        assertFalse(handle.cancel());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void cancelledTasksNeverRun() throws InterruptedException {
+        var time = Instant.now().plusMillis(100);
+        var cancelled_ran = new AtomicBoolean();
+        var latch = new CountDownLatch(1);
+
+        // the same deadline so both are in one slot, unlinking one mustn't lose the other
+        var cancelled = scheduler.schedule(() -> cancelled_ran.set(true), time);
+        scheduler.schedule(latch::countDown, time);
+        assertTrue(cancelled.cancel());
+        assertEquals(1, scheduler.pendingCount());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "the task that wasn't cancelled didn't run");
+        Thread.sleep(50);
+        assertFalse(cancelled_ran.get());
+    }
+
+    @Test
+    void cancellingAfterCascadingStillWorks() throws InterruptedException {
+        var now = Instant.now();
+        var cancelled_ran = new AtomicBoolean();
+        var latch = new CountDownLatch(1);
+
+        var cancelled = scheduler.schedule(() -> cancelled_ran.set(true), now.plusMillis(180));
+        scheduler.schedule(latch::countDown, now.plusMillis(250));
+
+        // the second wheel cascades at 128ms, so by now the task has moved down to the first
+        Thread.sleep(140);
+        assertTrue(cancelled.cancel());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelled_ran.get());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void closedSchedulerRejectsTasks() {
+        scheduler.close();
+        assertThrows(IllegalStateException.class, () -> scheduler.schedule(() -> {}, Instant.now()));
+    }
+}
@@ -0,0 +1,101 @@
+package canaryprism.timebot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+    
+    @Test
+    void putGetAndRemoveAcrossStripes() {
+        var map = new ConcurrentLongMap<Long>();
+        for (long key = 0; key < 1000; key++)
+            assertNull(map.put(key * 7919, key));
+        assertEquals(1000, map.size());
+        
+        for (long key = 0; key < 1000; key++)
+            assertEquals(key, map.get(key * 7919));
+        
+        for (long key = 0; key < 1000; key += 2)
+            assertEquals(key, map.remove(key * 7919));
+        assertEquals(500, map.size());
+        
+        for (long key = 0; key < 1000; key++)
+            assertEquals((key % 2 == 0) ? null : key, map.get(key * 7919));
+    }
+    
+    @Test
+    void computeIfAbsentOnlyMapsMissingKeys() {
+        var map = new ConcurrentLongMap<String>();
+        assertEquals("1", map.computeIfAbsent(1, Long::toString));
+        assertEquals("1", map.computeIfAbsent(1, (key) -> fail("mapped a key that was present")));
+        assertEquals(1, map.size());
+    }
+    
+    @Test
+    void emptyStripesAreSkipped() {
+        var map = new ConcurrentLongMap<String>();
+        assertEquals(0, map.size());
+        assertFalse(map.values().iterator().hasNext());
+        assertNull(map.get(42));
+        assertNull(map.remove(42));
+        
+        // one key leaves every other stripe empty
+        map.put(42, "a");
+        assertEquals(List.of("a"), new ArrayList<>(map.values()));
+        
+        map.remove(42);
+        assertEquals(0, map.size());
+        assertTrue(map.values().isEmpty());
+    }
+    
+    @Test
+    void valuesCoverEveryStripe() {
+        var map = new ConcurrentLongMap<Long>(4);
+        LongStream.range(0, 100).forEach((key) -> map.put(key, key));
+        
+        var values = new HashSet<>(map.values());
+        assertEquals(100, map.values().size());
+        assertEquals(LongStream.range(0, 100).boxed().collect(Collectors.toSet()), values);
+    }
+    
+    @Test
+    void concurrentPutsAreAllKept() throws InterruptedException {
+        var map = new ConcurrentLongMap<Long>();
+        var threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            var thread_index = i;
+            threads[i] = Thread.ofPlatform().start(() -> {
+                for (long key = thread_index; key < 80_000; key += threads.length)
+                    map.put(key, key);
+            });
+        }
+        for (var thread : threads)
+            thread.join();
+        
+        assertEquals(80_000, map.size());
+        assertTrue(LongStream.range(0, 80_000).allMatch((key) -> map.get(key) == key));
+    }
+    
+    @Test
+    void singleStripeWorks() {
+        var map = new ConcurrentLongMap<String>(1);
+        map.put(-1, "a");
+        map.put(Long.MAX_VALUE, "b");
+        assertEquals("a", map.get(-1));
+        assertEquals("b", map.get(Long.MAX_VALUE));
+        assertEquals(2, map.size());
+    }
+    
+    @Test
+    void rejectsStripeCountsThatArentPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongMap<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongMap<String>(12));
+    }
+}
@@ -0,0 +1,121 @@
+package canaryprism.timebot.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedExecutorTest {
+
+    private final KeyedExecutor<String> executor = new KeyedExecutor<>("test-");
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void aKeysTasksRunInOrderOneAtATime() throws Exception {
+        var ran = Collections.synchronizedList(new ArrayList<Integer>());
+        var running = new AtomicInteger();
+        var max_running = new AtomicInteger();
+        var done = new CountDownLatch(500);
+
+        for (int i = 0; i < 500; i++) {
+            var n = i;
+            executor.execute("key", () -> {
+                max_running.accumulateAndGet(running.incrementAndGet(), Math::max);
+                ran.add(n);
+                Thread.yield();
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 500).boxed().toList(), ran);
+        assertEquals(1, max_running.get(), "tasks for the same key overlapped");
+    }
+
+    @Test
+    void differentKeysRunConcurrently() throws Exception {
+        // each task only finishes once the other has started, so this deadlocks if they run one after the other
+        var both_started = new CountDownLatch(2);
+        var done = new CountDownLatch(2);
+        for (var key : List.of("a", "b")) {
+            executor.execute(key, () -> {
+                both_started.countDown();
+                try {
+                    if (both_started.await(10, TimeUnit.SECONDS))
+                        done.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS), "tasks for different keys didn't run at the same time");
+    }
+
+    @Test
+    void aBlockedKeyDoesntHoldUpOthers() throws Exception {
+        var release = new CountDownLatch(1);
+        var other_ran = new CountDownLatch(1);
+
+        executor.execute("blocked", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute("blocked", other_ran::countDown);
+        executor.execute("other", other_ran::countDown);
+
+        assertTrue(other_ran.await(10, TimeUnit.SECONDS));
+        assertEquals(2, executor.getPendingCount());
+
+        release.countDown();
+    }
+
+    @Test
+    void aThrowingTaskDoesntStopTheQueue() throws Exception {
+        var ran = new CountDownLatch(1);
+        executor.execute("key", () -> {
+            throw new IllegalStateException("expected");
+        });
+        executor.execute("key", ran::countDown);
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closeWaitsForSubmittedTasks() {
+        var ran = new AtomicInteger();
+        for (int i = 0; i < 50; i++) {
+            executor.execute("key " + (i % 5), () -> {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.incrementAndGet();
+            });
+        }
+
+        executor.close(Duration.ofSeconds(10));
+        assertEquals(50, ran.get());
+        assertEquals(0, executor.getPendingCount());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("key", () -> {}));
+    }
+}
@@ -0,0 +1,109 @@
+package canaryprism.timebot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongMapTest {
+    
+    @Test
+    void putGetAndRemove() {
+        var map = new LongMap<String>();
+        assertTrue(map.isEmpty());
+        
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(-1, "b"));
+        assertNull(map.put(0, "zero"));
+        assertEquals("a", map.put(1, "c"));
+        assertEquals(3, map.size());
+        
+        assertEquals("c", map.get(1));
+        assertEquals("b", map.get(-1));
+        assertEquals("zero", map.get(0));
+        assertTrue(map.containsKey(0));
+        assertNull(map.get(2));
+        
+        assertEquals("zero", map.remove(0));
+        assertNull(map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(2, map.size());
+        
+        assertThrows(NullPointerException.class, () -> map.put(3, null));
+    }
+    
+    @Test
+    void computeIfAbsentOnlyMapsMissingKeys() {
+        var map = new LongMap<String>();
+        assertEquals("1", map.computeIfAbsent(1, Long::toString));
+        assertEquals("1", map.computeIfAbsent(1, (key) -> fail("mapped a key that was present")));
+        assertEquals(1, map.size());
+        
+        assertThrows(NullPointerException.class, () -> map.computeIfAbsent(2, (key) -> null));
+        assertFalse(map.containsKey(2));
+    }
+    
+    @Test
+    void removingAnyKeyKeepsTheRestReachable() {
+        // nine keys in the sixteen slots of a new map are bound to collide, so some removes have to shift entries back
+        var keys = new Random(42).longs(9).toArray();
+        
+        for (var removed : keys) {
+            var map = new LongMap<Long>();
+            for (var key : keys)
+                map.put(key, key);
+            
+            assertEquals(removed, map.remove(removed));
+            for (var key : keys) {
+                if (key != removed)
+                    assertEquals(key, map.get(key), "lost " + key + " after removing " + removed);
+            }
+            assertNull(map.get(removed));
+            assertEquals(keys.length - 1, map.size());
+        }
+    }
+    
+    @Test
+    void matchesHashMapUnderRandomChanges() {
+        var random = new Random(42);
+        var map = new LongMap<Long>();
+        var expected = new HashMap<Long, Long>();
+        
+        // a small key range so removes keep punching holes into clusters
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(200);
+            if (random.nextBoolean())
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            else
+                assertEquals(expected.remove(key), map.remove(key));
+        }
+        
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 200; key++)
+            assertEquals(expected.get(key), map.get(key));
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+    
+    @Test
+    void valuesReflectTheMap() {
+        var map = new LongMap<String>(100);
+        for (int i = 0; i < 100; i++)
+            map.put(i, "v" + i);
+        
+        var values = map.values();
+        assertEquals(100, values.size());
+        assertTrue(values.contains("v42"));
+        
+        map.remove(42);
+        assertEquals(99, values.size());
+        assertFalse(new ArrayList<>(values).contains("v42"));
+        
+        map.clear();
+        assertTrue(values.isEmpty());
+        assertTrue(map.isEmpty());
+    }
+}